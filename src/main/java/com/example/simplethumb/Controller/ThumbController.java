@@ -3,18 +3,26 @@ package com.example.simplethumb.Controller;
 import com.example.simplethumb.common.BaseResponse;
 import com.example.simplethumb.common.ErrorCode;
 import com.example.simplethumb.common.ResultUtils;
+import com.example.simplethumb.exception.BusinessException;
+import com.example.simplethumb.model.dto.thumb.BatchThumbRequest;
 import com.example.simplethumb.model.dto.thumb.DoThumbRequest;
 import com.example.simplethumb.service.ThumbService;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 @RestController
+@Slf4j
 @RequestMapping("/thumb")
 public class ThumbController {
     @Resource
@@ -50,6 +58,57 @@ public class ThumbController {
         return ResultUtils.success(success);
     }
 
+    /**
+     * 批量点赞 / 取消点赞，返回与请求中的操作一一对应的结果
+     */
+    @PostMapping("/batch")
+    public BaseResponse<List<Boolean>> batchThumb(@RequestBody BatchThumbRequest batchThumbRequest, HttpServletRequest request) {
+        List<Boolean> results = thumbService.batchThumb(batchThumbRequest, request);
+        return ResultUtils.success(results);
+    }
+
+    /**
+     * 异步点赞，请求线程在返回 future 后立即释放，点赞在虚拟线程上完成后再写回响应
+     */
+    @PostMapping("/do/async")
+    public CompletableFuture<BaseResponse<Boolean>> doThumbAsync(@RequestBody DoThumbRequest doThumbRequest, HttpServletRequest request) {
+        return thumbService.doThumbAsync(doThumbRequest, request).handle((result, e) -> {
+            if (e != null) {
+                failureCounter.increment();
+                return toErrorResponse(e);
+            }
+            if (result) {
+                successCounter.increment();
+                return ResultUtils.success(true);
+            }
+            failureCounter.increment();
+            return ResultUtils.<Boolean>error(ErrorCode.SYSTEM_ERROR);
+        });
+    }
+
+    /**
+     * 异步取消点赞，异常按与异步点赞相同的格式返回
+     */
+    @PostMapping("/undo/async")
+    public CompletableFuture<BaseResponse<Boolean>> cancelThumbAsync(@RequestBody DoThumbRequest doThumbRequest, HttpServletRequest request) {
+        return thumbService.undoThumbAsync(doThumbRequest, request)
+                .handle((result, e) -> e != null ? toErrorResponse(e) : ResultUtils.success(result));
+    }
+
+    /**
+     * 异步接口的异常不经过全局异常处理器，在这里按相同规则转换：
+     * 业务异常保留错误码和信息，其他异常统一返回系统错误
+     */
+    private static BaseResponse<Boolean> toErrorResponse(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof BusinessException businessException) {
+            log.error("BusinessException", businessException);
+            return ResultUtils.error(businessException.getCode(), businessException.getMessage());
+        }
+        log.error("RuntimeException", cause);
+        return ResultUtils.error(ErrorCode.SYSTEM_ERROR, "系统错误");
+    }
+
     public ThumbController(MeterRegistry registry) {
         this.successCounter = Counter.builder("thumb.success.count")
                 .description("Total successful thumb")
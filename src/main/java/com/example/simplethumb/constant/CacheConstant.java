@@ -0,0 +1,12 @@
+package com.example.simplethumb.constant;
+
+/**
+ * 本地缓存相关常量
+ */
+public interface CacheConstant {
+
+    /**
+     * 本地缓存失效广播的 Redis 频道，消息内容为 "节点标识|复合键"
+     */
+    String INVALIDATION_CHANNEL = "cache:invalidation";
+}
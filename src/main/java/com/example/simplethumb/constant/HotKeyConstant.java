@@ -0,0 +1,17 @@
+package com.example.simplethumb.constant;
+
+/**
+ * 热点 key 相关常量
+ */
+public interface HotKeyConstant {
+
+    /**
+     * 各节点发布的本地热点快照，hash 结构，field 为 key，value 为计数
+     */
+    String NODE_SNAPSHOT_KEY_PREFIX = "hotkey:node:";
+
+    /**
+     * 活跃节点集合，zset 结构，score 为最近一次发布时间
+     */
+    String NODES_KEY = "hotkey:nodes";
+}
@@ -3,6 +3,8 @@ package com.example.simplethumb.constant;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.data.redis.core.script.RedisScript;
 
+import java.util.List;
+
 /**
  * Lua脚本常量
  * 统一管理所有 Lua 脚本
@@ -11,34 +13,24 @@ public class RedisLuaScriptConstant {
 
     /**
      * 点赞 Lua 脚本
-     * KEYS[1]       -- 临时计数键
-     * KEYS[2]       -- 用户点赞状态键
-     * ARGV[1]       -- 用户 ID
-     * ARGV[2]       -- 博客 ID
+     * 只操作用户点赞状态键，时间片临时计数由 TEMP_THUMB_DELTA_SCRIPT 单独写入，
+     * 两个 key 不需要在 Redis Cluster 的同一个槽中
+     * KEYS[1]       -- 用户点赞状态键
+     * ARGV[1]       -- 博客 ID
      * 返回:
      * -1: 已点赞
      * 1: 操作成功
      */
     public static final RedisScript<Long> THUMB_SCRIPT = new DefaultRedisScript<>("""  
-            local tempThumbKey = KEYS[1]       -- 临时计数键（如 thumb:temp:{timeSlice}）  
-            local userThumbKey = KEYS[2]       -- 用户点赞状态键（如 thumb:{userId}）  
-            local userId = ARGV[1]             -- 用户 ID  
-            local blogId = ARGV[2]             -- 博客 ID  
+            local userThumbKey = KEYS[1]       -- 用户点赞状态键（如 thumb:123）  
+            local blogId = ARGV[1]             -- 博客 ID  
               
             -- 1. 检查是否已点赞（避免重复操作）  
             if redis.call('HEXISTS', userThumbKey, blogId) == 1 then  
                 return -1  -- 已点赞，返回 -1 表示失败  
             end  
               
-            -- 2. 获取旧值（不存在则默认为 0）  
-            local hashKey = userId .. ':' .. blogId  
-            local oldNumber = tonumber(redis.call('HGET', tempThumbKey, hashKey) or 0)  
-              
-            -- 3. 计算新值  
-            local newNumber = oldNumber + 1  
-              
-            -- 4. 原子性更新：写入临时计数 + 标记用户已点赞  
-            redis.call('HSET', tempThumbKey, hashKey, newNumber)  
+            -- 2. 标记用户已点赞  
             redis.call('HSET', userThumbKey, blogId, 1)  
               
             return 1  -- 返回 1 表示成功  
@@ -52,30 +44,33 @@ public class RedisLuaScriptConstant {
      * 1: 操作成功
      */
     public static final RedisScript<Long> UNDO_THUMB_SCRIPT = new DefaultRedisScript<>("""  
-            local tempThumbKey = KEYS[1]      -- 临时计数键（如 thumb:temp:{timeSlice}）  
-            local userThumbKey = KEYS[2]      -- 用户点赞状态键（如 thumb:{userId}）  
-            local userId = ARGV[1]            -- 用户 ID  
-            local blogId = ARGV[2]            -- 博客 ID  
+            local userThumbKey = KEYS[1]      -- 用户点赞状态键（如 thumb:123）  
+            local blogId = ARGV[1]            -- 博客 ID  
               
             -- 1. 检查用户是否已点赞（若未点赞，直接返回失败）  
             if redis.call('HEXISTS', userThumbKey, blogId) ~= 1 then  
                 return -1  -- 未点赞，返回 -1 表示失败  
             end  
               
-            -- 2. 获取当前临时计数（若不存在则默认为 0）  
-            local hashKey = userId .. ':' .. blogId  
-            local oldNumber = tonumber(redis.call('HGET', tempThumbKey, hashKey) or 0)  
-              
-            -- 3. 计算新值并更新  
-            local newNumber = oldNumber - 1  
-              
-            -- 4. 原子性操作：更新临时计数 + 删除用户点赞标记  
-            redis.call('HSET', tempThumbKey, hashKey, newNumber)  
+            -- 2. 删除用户点赞标记  
             redis.call('HDEL', userThumbKey, blogId)  
               
             return 1  -- 返回 1 表示成功  
             """, Long.class);
 
+    /**
+     * 时间片临时计数 Lua 脚本，点赞 / 取消点赞脚本成功后执行
+     * 字段在脚本中拼接，参数经序列化后原样传入，不会给字符串加上引号
+     * KEYS[1]       -- 临时计数键（如 thumb:temp:12:30:30:{s3}）
+     * ARGV[1]       -- 用户 ID
+     * ARGV[2]       -- 博客 ID
+     * ARGV[3]       -- 增量，点赞为 1，取消点赞为 -1
+     * 返回: 累加后的临时计数
+     */
+    public static final RedisScript<Long> TEMP_THUMB_DELTA_SCRIPT = new DefaultRedisScript<>("""
+            return redis.call('HINCRBY', KEYS[1], ARGV[1] .. ':' .. ARGV[2], ARGV[3])
+            """, Long.class);
+
 
     /**
      * 消息队列实现
@@ -123,4 +118,71 @@ public class RedisLuaScriptConstant {
         return 1  
         """, Long.class);
 
+    /**
+     * 消息队列
+     * 批量点赞 / 取消点赞 Lua 脚本，按顺序执行，同一篇博客出现多次时以前面的操作为准继续判断
+     * KEYS[1]       -- 用户点赞状态键
+     * ARGV[2i-1]    -- 第 i 个操作的博客 ID
+     * ARGV[2i]      -- 第 i 个操作的类型，1 点赞，-1 取消点赞
+     * 返回: 与操作一一对应的数组
+     * -1: 已点赞 / 未点赞，操作未生效
+     * 1: 操作成功
+     */
+    @SuppressWarnings("rawtypes")
+    public static final RedisScript<List> BATCH_THUMB_SCRIPT_MQ = new DefaultRedisScript<>("""
+        local userThumbKey = KEYS[1]
+        local results = {}
+
+        for i = 1, #ARGV, 2 do
+            local blogId = ARGV[i]
+            local thumbType = tonumber(ARGV[i + 1])
+            local exists = redis.call("HEXISTS", userThumbKey, blogId) == 1
+            if thumbType == 1 and not exists then
+                -- 添加点赞记录
+                redis.call("HSET", userThumbKey, blogId, 1)
+                results[#results + 1] = 1
+            elseif thumbType == -1 and exists then
+                -- 删除点赞记录
+                redis.call("HDEL", userThumbKey, blogId)
+                results[#results + 1] = 1
+            else
+                results[#results + 1] = -1
+            end
+        end
+        return results
+        """, List.class);
+
+    /**
+     * 释放分布式锁租约 Lua 脚本
+     * KEYS[1]       -- 锁键
+     * ARGV[1]       -- 加锁时写入的令牌
+     * 返回:
+     * 0: 租约已过期或被其他节点持有
+     * 1: 释放成功
+     */
+    public static final RedisScript<Long> RELEASE_LOCK_SCRIPT = new DefaultRedisScript<>("""
+        -- 只删除自己持有的租约，避免过期后误删其他节点的锁
+        if redis.call("GET", KEYS[1]) == ARGV[1] then
+            return redis.call("DEL", KEYS[1])
+        end
+        return 0
+        """, Long.class);
+
+    /**
+     * 续期分布式锁租约 Lua 脚本
+     * KEYS[1]       -- 锁键
+     * ARGV[1]       -- 加锁时写入的令牌
+     * ARGV[2]       -- 新的有效期（毫秒）
+     * 返回:
+     * 0: 租约已过期或被其他节点持有
+     * 1: 续期成功
+     */
+    public static final RedisScript<Long> RENEW_LOCK_SCRIPT = new DefaultRedisScript<>("""
+        -- 只续期自己持有的租约
+        if redis.call("GET", KEYS[1]) == ARGV[1] then
+            return redis.call("PEXPIRE", KEYS[1], ARGV[2])
+        end
+        return 0
+        """, Long.class);
+
 }
@@ -6,6 +6,15 @@ public interface ThumbConstant {
 
     String TEMP_THUMB_KEY_PREFIX = "thumb:temp:";
 
+    // 每个时间片的临时点赞数据分散到的 key 数量，必须是 2 的幂
+    int TEMP_THUMB_SHARDS = 16;
+
+    // 批量点赞一次最多包含的操作数
+    int BATCH_THUMB_MAX_SIZE = 100;
+
+    // 用户点赞操作的分布式锁租约，lock:thumb:{userId}
+    String USER_LOCK_KEY_PREFIX = "lock:thumb:";
+
     // 当值为 0 时表示取消点赞热点 Key
     Long UN_THUMB_CONSTANT = 0L;
   
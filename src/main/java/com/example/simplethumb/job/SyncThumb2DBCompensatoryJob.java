@@ -4,14 +4,21 @@ import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.ObjUtil;
 import com.example.simplethumb.constant.ThumbConstant;
 import com.example.simplethumb.util.RedisKeyUtil;
+import com.example.simplethumb.util.TimeSliceClock;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 /**
  * 定时将 Redis 中的临时点赞数据同步到数据库的补偿措施
@@ -29,22 +36,44 @@ public class SyncThumb2DBCompensatoryJob {
     @Scheduled(cron = "0 0 2 * * *")
     public void run() {
         log.info("开始补偿缺失数据");
-        Set<String> thumbKeys = redisTemplate.keys(RedisKeyUtil.getTempThumbKey("") + "*");
-        Set<String> needHandleDataSet = new HashSet<>();
-        thumbKeys.stream().filter(ObjUtil::isNotEmpty).forEach(thumbKey ->
-                needHandleDataSet.add(
-                        thumbKey.replace(
-                                ThumbConstant.TEMP_THUMB_KEY_PREFIX.formatted(""), "")));
-
-        if(CollUtil.isEmpty(needHandleDataSet)) {
+        Set<String> thumbKeys = redisTemplate.keys(ThumbConstant.TEMP_THUMB_KEY_PREFIX + "*");
+        // 当前时间片仍在写入、上一个时间片正由定时同步任务处理，都跳过
+        String currentSlice = TimeSliceClock.currentSlice();
+        Set<String> activeSlices = Set.of(currentSlice, TimeSliceClock.previousSlice());
+        List<String> needHandleData = thumbKeys.stream().filter(ObjUtil::isNotEmpty)
+                .filter(thumbKey -> !activeSlices.contains(RedisKeyUtil.getTempThumbSlice(thumbKey)))
+                .toList();
+
+        if(CollUtil.isEmpty(needHandleData)) {
             log.info("补偿缺失数据结束，未发现需要补偿的数据");
             return;
         }
 
-        // 补偿数据
-        for(String date : needHandleDataSet) {
-            syncThumb2DBJob.syncThumb2DBByDate(date);
+        // 同一用户对同一博客先点赞、后取消点赞可能落在相邻的时间片上，必须按时间顺序写入数据库；
+        // 同一时间片的分片之间互不影响，仍然并行同步
+        for (Map.Entry<String, List<String>> slice : groupBySliceInTimeOrder(needHandleData, currentSlice).entrySet()) {
+            if (!syncThumb2DBJob.syncTempThumbKeys(slice.getValue())) {
+                // 之后的时间片可能包含同一操作的后续变化，留在 Redis 中等下次补偿
+                log.warn("时间片 {} 补偿失败，跳过之后的时间片", slice.getKey());
+                return;
+            }
         }
         log.info("临时数据补偿完成");
     }
+
+    /**
+     * 按时间片分组并按时间先后排序
+     * 时间片标签只有时分秒，晚于当前时间片的标签是前一天留下的，排在当天的时间片之前
+     */
+    static SortedMap<String, List<String>> groupBySliceInTimeOrder(Collection<String> tempThumbKeys,
+                                                                   String currentSlice) {
+        Comparator<String> timeOrder = Comparator.<String, Boolean>comparing(slice -> slice.compareTo(currentSlice) <= 0)
+                .thenComparing(Comparator.naturalOrder());
+        SortedMap<String, List<String>> keysBySlice = new TreeMap<>(timeOrder);
+        for (String tempThumbKey : tempThumbKeys) {
+            keysBySlice.computeIfAbsent(RedisKeyUtil.getTempThumbSlice(tempThumbKey), slice -> new ArrayList<>())
+                    .add(tempThumbKey);
+        }
+        return keysBySlice;
+    }
 }
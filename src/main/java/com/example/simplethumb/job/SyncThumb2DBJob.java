@@ -1,8 +1,6 @@
 package com.example.simplethumb.job;
 
 import cn.hutool.core.collection.CollUtil;
-import cn.hutool.core.date.DateTime;
-import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.text.StrPool;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.example.simplethumb.constant.ThumbConstant;
@@ -13,20 +11,26 @@ import com.example.simplethumb.model.entity.Thumb;
 import com.example.simplethumb.model.enums.ThumbTypeEnum;
 import com.example.simplethumb.service.ThumbService;
 import com.example.simplethumb.util.RedisKeyUtil;
+import com.example.simplethumb.util.TimeSliceClock;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 定时将 Redis 中的临时点赞数据同步到数据库
- *
+ * 每个时间片分散在 TEMP_THUMB_SHARDS 个 key 上，各分片在虚拟线程中并行同步
  */
 
 @Component
@@ -45,50 +49,74 @@ public class SyncThumb2DBJob {
     @Resource
     private TopK hotKeyDetector;
 
+    @Resource
+    private TransactionTemplate transactionTemplate;
+
     @Scheduled(fixedRate = 10000)
-    @Transactional(rollbackFor = Exception.class)
     public void run() {
         log.info("开始执行临时点赞数据同步任务");
-        DateTime nowDate = DateUtil.date();
-        // 如果秒数为0 ~ 9，则回到上一分钟的 50 秒
-        int second = (DateUtil.second(nowDate) / 10 - 1) * 10;
-        if(second == -10) {
-            second = 50;
-            // 回到上一分钟
-            nowDate = DateUtil.offsetMinute(nowDate, -1);
-        }
-        String date = DateUtil.format(nowDate, "HH:mm:") + second;
-        syncThumb2DBByDate(date);
+        // 同步上一个时间片，当前时间片仍在写入
+        syncThumb2DBByDate(TimeSliceClock.previousSlice());
         log.info("临时数据同步完成");
     }
 
+    /**
+     * 同步一个时间片的所有分片
+     */
     public void syncThumb2DBByDate(String date) {
+        List<String> tempThumbKeys = new ArrayList<>(ThumbConstant.TEMP_THUMB_SHARDS);
+        for (int shard = 0; shard < ThumbConstant.TEMP_THUMB_SHARDS; shard++) {
+            tempThumbKeys.add(RedisKeyUtil.getTempThumbKey(date, shard));
+        }
+        syncTempThumbKeys(tempThumbKeys);
+    }
+
+    /**
+     * 并行同步多个临时点赞 key，每个 key 使用独立的事务，一个 key 失败不影响其他 key，未删除的 key 由补偿任务重试
+     * @return 是否全部同步成功
+     */
+    public boolean syncTempThumbKeys(Collection<String> tempThumbKeys) {
+        AtomicBoolean allSynced = new AtomicBoolean(true);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String tempThumbKey : tempThumbKeys) {
+                executor.execute(() -> {
+                    try {
+                        syncTempThumbKey(tempThumbKey);
+                    } catch (Exception e) {
+                        allSynced.set(false);
+                        log.error("同步临时点赞数据失败: {}", tempThumbKey, e);
+                    }
+                });
+            }
+        }
+        return allSynced.get();
+    }
+
+    private void syncTempThumbKey(String tempThumbKey) {
         // 获取到临时点赞和取消点赞数据
-        String tempThumbKey = RedisKeyUtil.getTempThumbKey(date);
         Map<Object, Object> allTempThumbMap = redisTemplate.opsForHash().entries(tempThumbKey);
-        boolean thumbMapEmpty = CollUtil.isEmpty(allTempThumbMap);
+        // 如果没有点赞数据，则直接返回
+        if (CollUtil.isEmpty(allTempThumbMap)) {
+            return;
+        }
 
         // 同步 点赞 到数据库
         // 构建插入列表并收集 blogId
         Map<Long, Long> blogThumbCountMap = new HashMap<>();
-        // 如果灭有点赞数据，则直接返回
-        if(thumbMapEmpty) {
-            return;
-        }
         ArrayList<Thumb> thumbList = new ArrayList<>();
         LambdaQueryWrapper<Thumb> wrapper = new LambdaQueryWrapper<>();
         // 用于判断是否存在取消点赞的情况
         boolean needRemove = false;
         // 保存在Redis临时表中的key是一个由userId和blogId组成的字符串，格式为userId:blogId
-        for(Object userIdBlogIdObj : allTempThumbMap.keySet()) {
+        for (Map.Entry<Object, Object> entry : allTempThumbMap.entrySet()) {
             // 强转字符串
-            String userIdBlogId = (String) userIdBlogIdObj;
+            String userIdBlogId = (String) entry.getKey();
             // 分割字符串，拿到userId和blogId
             String[] userIdAndBlogId = userIdBlogId.split(StrPool.COLON);
             Long userId = Long.valueOf(userIdAndBlogId[0]);
             Long blogId = Long.valueOf(userIdAndBlogId[1]);
             // -1 取消点赞， 1 点赞
-            Integer thumbType = Integer.valueOf(allTempThumbMap.get(userIdBlogId).toString());
+            int thumbType = Integer.parseInt(entry.getValue().toString());
             if (thumbType == ThumbTypeEnum.INCR.getValue()) {
                 Thumb thumb = new Thumb();
                 thumb.setUserId(userId);
@@ -98,27 +126,32 @@ public class SyncThumb2DBJob {
                 // 判断确认要删除
                 needRemove = true;
                 // 拼接查询条件，批量删除
-                wrapper.or().eq(Thumb::getUserId, userId).eq(Thumb::getBlogId, blogId);
-            }else {
+                wrapper.or(w -> w.eq(Thumb::getUserId, userId).eq(Thumb::getBlogId, blogId));
+            } else {
                 if (thumbType != ThumbTypeEnum.NON.getValue()) {
                     log.warn("数据异常：{}", "用户id" + userId + "," + "博客id" + blogId + "," + "点赞类型" + thumbType);
                 }
+                continue;
             }
             // 计算点赞数
-            blogThumbCountMap.put(blogId, blogThumbCountMap.getOrDefault(blogId, 0L) + thumbType);
-        }
-        // 批量插入点赞数据
-        thumbService.saveBatch(thumbList);
-        // 批量删除取消点赞数据
-        if (needRemove) {
-            blogMapper.batchUpdateThumbCount(blogThumbCountMap);
+            blogThumbCountMap.merge(blogId, (long) thumbType, Long::sum);
         }
-
-        // 虚拟线程将点赞数据在数据库同步后，异步删除 Redis 中的缓存
-        Thread.startVirtualThread(() -> {
-            redisTemplate.delete(tempThumbKey);
-
+        boolean removeNeeded = needRemove;
+        transactionTemplate.executeWithoutResult(status -> {
+            // 批量插入点赞数据
+            thumbService.saveBatch(thumbList);
+            // 批量删除取消点赞数据
+            if (removeNeeded) {
+                thumbService.remove(wrapper);
+            }
+            // 批量更新博客点赞数
+            if (!blogThumbCountMap.isEmpty()) {
+                blogMapper.batchUpdateThumbCount(blogThumbCountMap);
+            }
         });
+
+        // 点赞数据在数据库同步后，删除 Redis 中的临时数据
+        redisTemplate.delete(tempThumbKey);
     }
 
 }
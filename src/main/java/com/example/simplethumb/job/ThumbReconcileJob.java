@@ -5,6 +5,7 @@ import com.example.simplethumb.listener.thumb.msg.ThumbEvent;
 import com.example.simplethumb.model.entity.Thumb;
 import com.example.simplethumb.model.enums.ThumbTypeEnum;
 import com.example.simplethumb.service.ThumbService;
+import com.example.simplethumb.util.RedisKeyUtil;
 import com.google.common.collect.Sets;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
@@ -48,15 +49,15 @@ public class ThumbReconcileJob {
         // 1. 获取分片下的所有用户 ID
         Set<Long> userIds = new HashSet<>();
     // 创建一个 HashSet 用于存储用户 ID
-        String pattern = ThumbConstant.USER_THUMB_KEY_PREFIX + "*";
-    // 定义 Redis 键的匹配模式，用于扫描 Redis 中所有以 USER_THUMB_KEY_PREFIX 开头的键
+        String pattern = ThumbConstant.USER_THUMB_KEY_PREFIX + "[0-9]*";
+    // 定义 Redis 键的匹配模式，用于扫描 Redis 中所有用户点赞键（thumb:123），不包含临时点赞键（thumb:temp:...）
         try(Cursor<String> cursor = redisTemplate.scan(ScanOptions.scanOptions().match(pattern).count(1000).build())) {
         // 使用 RedisTemplate 的 scan 方法扫描匹配模式的键，每次扫描返回 1000 个键
             while(cursor.hasNext()) {
             // 遍历扫描结果
                 String key = cursor.next();
             // 获取当前键
-                Long userId = Long.valueOf(key.replace(ThumbConstant.USER_THUMB_KEY_PREFIX, ""));
+                Long userId = RedisKeyUtil.getUserIdFromThumbKey(key);
             // 从键中提取用户 ID
                 userIds.add(userId);
             // 将用户 ID 添加到 userIds 集合中
@@ -68,7 +69,7 @@ public class ThumbReconcileJob {
         // 遍历所有用户 ID
             Set<Long> redisBlogIds = redisTemplate
                     .opsForHash()
-                    .keys(ThumbConstant.USER_THUMB_KEY_PREFIX + userId)
+                    .keys(RedisKeyUtil.getUserThumbKey(userId))
                     .stream()
                     .map(obj -> Long.valueOf(obj.toString()))
                     .collect(Collectors.toSet());
@@ -0,0 +1,27 @@
+package com.example.simplethumb.manager.cache;
+
+import lombok.Data;
+
+/**
+ * TopK.add 的返回结果
+ */
+@Data
+class AddResult {
+    // 被挤出的 key
+    private final String expelledKey;
+    // 当前 key 是否进入 TopK
+    private final boolean isHotKey;
+    // 当前操作的 key
+    private final String currentKey;
+
+// 定义一个名为AddResult的构造函数，用于初始化AddResult类的实例
+    public AddResult(String expelledKey, boolean isHotKey, String currentKey) {
+    // 将传入的expelledKey参数赋值给当前对象的expelledKey属性
+        this.expelledKey = expelledKey;
+    // 将传入的isHotKey参数赋值给当前对象的isHotKey属性
+        this.isHotKey = isHotKey;
+    // 将传入的currentKey参数赋值给当前对象的currentKey属性
+        this.currentKey = currentKey;
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.example.simplethumb.manager.cache;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * HeavyKeeper 的桶存储
+ * 所有桶按 row * width + column 平铺在一块连续内存里，每个桶一个 long（高 32 位指纹，低 32 位计数），
+ * 整个 sketch 只有一个数组对象（堆内）或一块直接内存（堆外），不再为每个桶创建对象
+ */
+abstract class BucketStorage {
+
+    /**
+     * 创建桶存储
+     * @param size 桶总数，即 depth * width
+     * @param offHeap 是否放在堆外
+     */
+    static BucketStorage create(int size, boolean offHeap) {
+        return offHeap ? new OffHeap(size) : new OnHeap(size);
+    }
+
+    abstract long get(int index);
+
+    abstract boolean compareAndSet(int index, long expect, long update);
+
+    abstract int size();
+
+    /**
+     * 堆内实现，一个 AtomicLongArray
+     */
+    private static final class OnHeap extends BucketStorage {
+        private final AtomicLongArray array;
+
+        OnHeap(int size) {
+            this.array = new AtomicLongArray(size);
+        }
+
+        @Override
+        long get(int index) {
+            return array.get(index);
+        }
+
+        @Override
+        boolean compareAndSet(int index, long expect, long update) {
+            return array.compareAndSet(index, expect, update);
+        }
+
+        @Override
+        int size() {
+            return array.length();
+        }
+    }
+
+    /**
+     * 堆外实现，直接内存 + VarHandle 做 volatile 读和 CAS，GC 不扫描也不拷贝这块内存
+     */
+    private static final class OffHeap extends BucketStorage {
+        private static final VarHandle LONGS =
+                MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+        private final ByteBuffer buffer;
+        private final int size;
+
+        OffHeap(int size) {
+            // allocateDirect 保证 8 字节对齐，满足 VarHandle 原子访问要求，且内存已清零
+            this.buffer = ByteBuffer.allocateDirect(Math.multiplyExact(size, Long.BYTES));
+            this.size = size;
+        }
+
+        @Override
+        long get(int index) {
+            return (long) LONGS.getVolatile(buffer, index * Long.BYTES);
+        }
+
+        @Override
+        boolean compareAndSet(int index, long expect, long update) {
+            return LONGS.compareAndSet(buffer, index * Long.BYTES, expect, update);
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.example.simplethumb.manager.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 批量写入的 TopK
+ * 请求线程只把 key 追加到自己的缓冲区，后台线程定期汇总所有缓冲区，相同 key 合并后对 delegate 只调用一次 add(key, n)
+ * 是否为热点由最近一次发布的热点快照回答，快照超过 maxStaleness 未刷新时由调用线程顺带汇总一次
+ * 缓冲区按线程 id 分段，而不是每个线程一个 ThreadLocal 缓冲区：请求跑在虚拟线程上，每个请求一个线程，
+ * 线程级缓冲区数量随请求数增长且多半只写入一两个 key 就随线程丢弃，分段后内存固定、访问一定会被汇总。
+ * 代价是映射到同一段的线程会竞争该段的锁，段数为 CPU 数的 4 倍以上，临界区只有几次数组写入，竞争很短
+ * 缓冲区写满时合并成一批交给后台线程写入 delegate，请求线程不碰 sketch；后台积压过多时丢弃该批并计数
+ */
+@Slf4j
+public final class BufferedTopK implements TopK, AutoCloseable {
+    private static final int BUFFER_SIZE = 256;
+    // 等待后台写入的溢出批次上限，每批最多 BUFFER_SIZE 个 key
+    private static final int MAX_PENDING_BATCHES = 256;
+    private final TopK delegate;
+    private final KeyBuffer[] buffers;
+    private final int mask;
+    private final long maxStalenessNanos;
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final ScheduledExecutorService drainer;
+    // 写满的缓冲区合并后的批次，由后台线程写入 delegate
+    private final BlockingQueue<Map<String, Integer>> overflowBatches = new ArrayBlockingQueue<>(MAX_PENDING_BATCHES);
+    // 后台积压过多而丢弃的访问次数
+    private final LongAdder droppedSamples = new LongAdder();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile HotSnapshot snapshot = new HotSnapshot(new long[0], System.nanoTime());
+
+    /**
+     * @param delegate 实际统计的 TopK
+     * @param drainInterval 后台汇总间隔
+     * @param maxStaleness 热点快照允许的最大延迟
+     */
+    public BufferedTopK(TopK delegate, Duration drainInterval, Duration maxStaleness) {
+        this.delegate = delegate;
+        this.maxStalenessNanos = maxStaleness.toNanos();
+        int stripes = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1) << 1;
+        this.buffers = new KeyBuffer[stripes];
+        for (int i = 0; i < stripes; i++) {
+            buffers[i] = new KeyBuffer();
+        }
+        this.mask = stripes - 1;
+        this.drainer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "hot-key-drainer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalNanos = drainInterval.toNanos();
+        drainer.scheduleWithFixedDelay(this::drainQuietly, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 只写入缓冲区，结果来自热点快照，expelledKey 恒为 null
+     */
+    @Override
+    public AddResult add(String key, int increment) {
+        return new AddResult(null, addAndCheckHot(key, increment), key);
+    }
+
+    @Override
+    public boolean addAndCheckHot(String key, int increment) {
+        long hash = KeyHashing.hash(key);
+        bufferFor().append(key, 0, increment);
+        return isHot(hash);
+    }
+
+    @Override
+    public boolean addAndCheckHot(long id, int increment) {
+        long hash = KeyHashing.hash(id);
+        bufferFor().append(null, id, increment);
+        return isHot(hash);
+    }
+
+    /**
+     * 立即汇总所有缓冲区并发布新快照
+     */
+    public void flush() {
+        drainLock.lock();
+        try {
+            drain();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    /**
+     * 只包含已汇总的访问，缓冲区中尚未汇总的部分不计入
+     */
+    @Override
+    public long estimate(String key) {
+        return delegate.estimate(key);
+    }
+
+    @Override
+    public List<Item> list() {
+        return delegate.list();
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public BlockingQueue<Item> expelled() {
+        return delegate.expelled();
+    }
+
+    @Override
+    public long expelledDropCount() {
+        return delegate.expelledDropCount();
+    }
+
+    @Override
+    public void fading() {
+        drainLock.lock();
+        try {
+            drain();
+            delegate.fading();
+            publish();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public long total() {
+        return delegate.total();
+    }
+
+    /**
+     * 后台来不及写入而丢弃的访问次数
+     */
+    public long droppedSampleCount() {
+        return droppedSamples.sum();
+    }
+
+    /**
+     * 停止后台线程并汇总剩余的缓冲区，重复调用时什么都不做
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        drainer.shutdownNow();
+        flush();
+    }
+
+    private KeyBuffer bufferFor() {
+        return buffers[(int) Thread.currentThread().threadId() & mask];
+    }
+
+    private boolean isHot(long hash) {
+        HotSnapshot current = snapshot;
+        // 快照过旧时尝试在当前线程汇总一次，后台线程正在汇总则直接使用现有快照
+        if (System.nanoTime() - current.publishedAt > maxStalenessNanos && drainLock.tryLock()) {
+            try {
+                drain();
+            } finally {
+                drainLock.unlock();
+            }
+            current = snapshot;
+        }
+        return Arrays.binarySearch(current.hashes, hash) >= 0;
+    }
+
+    private void drainQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("热点 key 缓冲区汇总失败", e);
+        }
+    }
+
+    /**
+     * 写满的缓冲区交给后台线程，队列为空时唤醒后台线程立即汇总，不等下一个周期
+     */
+    private void handOff(Map<String, Integer> batch) {
+        boolean wasEmpty = overflowBatches.isEmpty();
+        if (!overflowBatches.offer(batch)) {
+            droppedSamples.add(batch.values().stream().mapToLong(Integer::longValue).sum());
+            return;
+        }
+        if (wasEmpty) {
+            try {
+                drainer.execute(this::drainQuietly);
+            } catch (RejectedExecutionException e) {
+                // 已关闭，close 时的最后一次汇总会处理
+            }
+        }
+    }
+
+    /**
+     * 汇总溢出批次和所有缓冲区并写入 delegate，调用方需持有 drainLock
+     */
+    private void drain() {
+        Map<String, Integer> counts = new HashMap<>();
+        Map<String, Integer> batch;
+        while ((batch = overflowBatches.poll()) != null) {
+            batch.forEach((key, n) -> counts.merge(key, n, Integer::sum));
+        }
+        for (KeyBuffer buffer : buffers) {
+            buffer.drainTo(counts);
+        }
+        counts.forEach(delegate::add);
+        publish();
+    }
+
+    private void publish() {
+        List<Item> items = delegate.list();
+        long[] hashes = new long[items.size()];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = KeyHashing.hash(items.get(i).key());
+        }
+        Arrays.sort(hashes);
+        snapshot = new HotSnapshot(hashes, System.nanoTime());
+    }
+
+    /**
+     * 热点快照，按哈希排序，查找不分配对象
+     */
+    private record HotSnapshot(long[] hashes, long publishedAt) {
+    }
+
+    /**
+     * 一个分段的缓冲区，写满时合并成一批交给后台线程
+     */
+    private final class KeyBuffer {
+        private final String[] keys = new String[BUFFER_SIZE];
+        private final long[] ids = new long[BUFFER_SIZE];
+        private final int[] increments = new int[BUFFER_SIZE];
+        private int size;
+
+        void append(String key, long id, int increment) {
+            Map<String, Integer> overflow = null;
+            synchronized (this) {
+                keys[size] = key;
+                ids[size] = id;
+                increments[size] = increment;
+                if (++size == BUFFER_SIZE) {
+                    overflow = new HashMap<>();
+                    drainTo(overflow);
+                }
+            }
+            if (overflow != null) {
+                handOff(overflow);
+            }
+        }
+
+        synchronized void drainTo(Map<String, Integer> counts) {
+            for (int i = 0; i < size; i++) {
+                String key = keys[i] != null ? keys[i] : Long.toString(ids[i]);
+                counts.merge(key, increments[i], Integer::sum);
+                keys[i] = null;
+            }
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.simplethumb.manager.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * 本地缓存失效广播
+ * 某个节点写入后广播复合键，其他节点收到后删除本地缓存中的对应条目，下次读取时回源 Redis
+ */
+public interface CacheInvalidationBus {
+
+    /**
+     * 广播一个失效的复合键，不会回调本节点的订阅者
+     */
+    void publish(String key);
+
+    /**
+     * 订阅其他节点广播的失效复合键
+     */
+    void subscribe(Consumer<String> listener);
+}
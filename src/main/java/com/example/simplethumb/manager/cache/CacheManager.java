@@ -1,32 +1,189 @@
 package com.example.simplethumb.manager.cache;
 
+import com.example.simplethumb.common.ErrorCode;
 import com.example.simplethumb.constant.ThumbConstant;
+import com.example.simplethumb.exception.BusinessException;
+import com.example.simplethumb.util.RedisKeyUtil;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.redis.core.Cursor;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongPredicate;
 
 
 @Component
 @Slf4j
 public class CacheManager {
-    // 定义一个 TopK 类型的成员变量，用于检测热键
-    private TopK hotKeyDetector;
-    // 定义一个 Cache 类型的成员变量，用于本地缓存
+    // 每次最多消费的被挤出 key 数量
+    private static final int EXPELLED_DRAIN_BATCH = 1024;
+    // 单个用户点赞集合最多缓存的博客数，超过则只按复合键逐条缓存
+    private static final int MAX_LIKED_SET_SIZE = 10_000;
+    // 等待其他请求回源的最长时间
+    static final Duration IN_FLIGHT_WAIT = Duration.ofSeconds(2);
+    // 停机时等待进行中的后台刷新结束的最长时间
+    private static final Duration REFRESH_SHUTDOWN_WAIT = Duration.ofSeconds(5);
+    // 版本号分段数，必须是 2 的幂
+    private static final int VERSION_STRIPES = 4096;
+    // 本地缓存默认容量（字节），可通过 thumb.cache.local.max-bytes 配置
+    public static final long DEFAULT_LOCAL_CACHE_MAX_BYTES = 16L * 1024 * 1024;
+    // 每个本地缓存条目除键和值以外的固定开销：Caffeine 节点、哈希表槽位和刷新时间戳
+    private static final int LOCAL_ENTRY_OVERHEAD_BYTES = 96;
+    // 重启预热快照的有效期，停机超过这个时间的快照不再使用
+    private static final Duration WARM_SNAPSHOT_MAX_AGE = Duration.ofMinutes(10);
+    // 快照中最多保存的本地缓存复合键数量
+    private static final int MAX_WARM_ENTRIES = 50_000;
+    // 点赞状态近缓存的槽位数
+    private static final int NEAR_CACHE_SLOTS = 1 << 14;
+    // 按 (userId, blogId) 查询时未找到点赞记录的返回值
+    public static final long NO_VALUE = PairLongCache.MISSING;
+    // 按复合键（以及用户 hash 键）分段的版本号，写入或收到失效广播时递增，回源期间版本变化说明读到的值可能已过期
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+    // 按博客、用户、复合键三个维度分别检测热键
+    private HotKeySketches hotKeySketches;
+    // 定义一个 Cache 类型的成员变量，用于本地缓存（异步加载缓存的同步视图，写入 1 分钟后再被读取时后台刷新）
+    // 容量按字节计算，只有满足准入规则的热点条目才会放入，缓存实际大小随当前热点数据量变化
     private Cache<String, Object> localCache;
+    // 已放入本地缓存的点赞记录按 (userId, blogId) 再存一份，hasThumb / getThumbValue 命中时不拼接字符串、不装箱
+    // 本地缓存条目被删除、替换或失效时同步清理，近缓存只是本地缓存的一个视图
+    private final PairLongCache nearCache = new PairLongCache(NEAR_CACHE_SLOTS);
+    // 本地缓存中的复合键分别按博客 id 和用户 hash 键索引，key 被挤出 TopK 时直接找到相关条目，不扫描整个本地缓存
+    private final ConcurrentHashMap<String, Set<String>> localKeysByBlog = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<String>> localKeysByUser = new ConcurrentHashMap<>();
+    // 正在回源 Redis 的复合键，同一个复合键同时只有一个请求回源，其他请求等待同一个结果
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlightLoads = new ConcurrentHashMap<>();
+    // 缓存已满时新条目需要超过的访问频率，取自最冷的条目，由 refreshAdmissionThreshold 每秒刷新
+    private final AtomicReference<AdmissionThreshold> admissionThreshold =
+            new AtomicReference<>(AdmissionThreshold.UNKNOWN);
+    // 正在加载点赞集合的用户，同一用户同时只加载一次
+    private final Set<String> loadingLikedSets = ConcurrentHashMap.newKeySet();
+    // 后台刷新使用虚拟线程执行，阻塞在 Redis 上不占用平台线程
+    private final Executor refreshExecutor;
+    private final Ticker ticker;
+    // 负缓存：Redis 中不存在的复合键（用户未点赞），大部分查询都是这种情况，不再每次 HGET
+    // 写入时由 putIfPresent 和失效广播删除，1 分钟过期兜底丢失的广播
+    private final Cache<String, Boolean> absentCache = Caffeine.newBuilder()
+            .maximumSize(50_000)
+            .expireAfterWrite(1, TimeUnit.MINUTES)
+            .recordStats()
+            .build();
+    // 活跃用户点赞过的全部博客 id，一个对象回答该用户的所有点赞判断，写入时写时复制更新
+    private final Cache<String, LongHashSet> likedSets = Caffeine.newBuilder()
+            .maximumWeight(8L * 1024 * 1024)
+            .weigher((String hashKey, LongHashSet liked) -> (int) Math.min(Integer.MAX_VALUE, liked.memoryBytes()))
+            .expireAfterWrite(5, TimeUnit.MINUTES)
+            .recordStats()
+            .build();
+    // 点赞过多、不加载集合的用户，与点赞集合同样 5 分钟过期，期间不再重复 HLEN
+    private final Cache<String, Boolean> oversizedLikedSets = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(5, TimeUnit.MINUTES)
+            .build();
+    // 已确认存在的博客，点赞前校验博客时不再查询数据库；博客没有删除接口，只按容量淘汰
+    private final Cache<Long, Boolean> existingBlogs = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .recordStats()
+            .build();
+    // 确认不存在的博客，挡住对同一个无效 id 的重复请求；过期时间短，刚创建的博客很快就能被点赞
+    private final Cache<Long, Boolean> absentBlogs = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(5, TimeUnit.SECONDS)
+            .build();
+
+    @Value("${thumb.cache.local.max-bytes:" + DEFAULT_LOCAL_CACHE_MAX_BYTES + "}")
+    private long localCacheCapacity = DEFAULT_LOCAL_CACHE_MAX_BYTES;
+
+    // 重启预热快照文件，停机时写入、启动完成后读取，为 null 时不保存也不加载
+    // 同一台机器上的多个实例各用一个文件，默认按端口区分，可通过 thumb.cache.warm-snapshot-path 配置
+    @Value("${thumb.cache.warm-snapshot-path:${java.io.tmpdir}/simple-thumb/warm-snapshot-${server.port:8080}.bin}")
+    private Path warmSnapshotPath;
 
     @Resource
     private RedisTemplate<String, Object> redisTemplate;
 
+    @Resource
+    private ClusterHotKeyManager clusterHotKeyManager;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    // 因 key 被挤出 TopK 而提前清理的本地缓存条目数
+    private Counter expelledEvictionCounter;
+
+    // 各级缓存的命中计数和 Redis 回源耗时
+    private CacheTierMetrics metrics;
+
+    public CacheManager() {
+        this.refreshExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        this.ticker = Ticker.systemTicker();
+    }
+
+    /**
+     * 不经过 Spring 容器构造，依赖由调用方传入，调用方随后依次调用 init 和 getLocalCache
+     * @param hotKeySketches 热点检测器，为 null 时使用默认配置
+     * @param ticker 本地缓存使用的时钟
+     * @param refreshExecutor 本地缓存后台刷新使用的线程池
+     * @param warmSnapshotPath 重启预热快照文件，为 null 时不保存也不加载
+     */
+    CacheManager(RedisTemplate<String, Object> redisTemplate, ClusterHotKeyManager clusterHotKeyManager,
+                 MeterRegistry meterRegistry, CacheInvalidationBus cacheInvalidationBus, HotKeySketches hotKeySketches,
+                 Ticker ticker, Executor refreshExecutor, Path warmSnapshotPath) {
+        this.redisTemplate = redisTemplate;
+        this.clusterHotKeyManager = clusterHotKeyManager;
+        this.meterRegistry = meterRegistry;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.hotKeySketches = hotKeySketches;
+        this.ticker = ticker;
+        this.refreshExecutor = refreshExecutor;
+        this.warmSnapshotPath = warmSnapshotPath;
+    }
+
 
     // 辅助方法，构造复合 Key
     private String buildCacheKey(String hashKey, String key) {
@@ -46,18 +203,98 @@ public class CacheManager {
         // 1.从本地缓存中获取数据
         Object value = localCache.getIfPresent(compositeKey);
         if(value != null) {
-            log.info("从本地缓存中获取数据: {} = {}", compositeKey, value);
+            metrics.localHit.increment();
             // 记录访问次数，每次访问次数 + 1;
-            hotKeyDetector.add(key, 1);
+            hotKeySketches.record(hashKey, key, compositeKey);
+            clusterHotKeyManager.record(key);
             return value;
         }
-        // 2.本地缓存未命中，查询 Redis
-        Object redisValue = redisTemplate.opsForHash().get(hashKey, key);
+        metrics.localMiss.increment();
+        // 已知不存在，直接返回
+        if(absentCache.getIfPresent(compositeKey) != null) {
+            metrics.absentHit.increment();
+            return null;
+        }
+        // 2.本地缓存未命中，同一个复合键只由一个请求回源，其他并发请求等待它的结果
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = inFlightLoads.putIfAbsent(compositeKey, load);
+        if (inFlight != null) {
+            hotKeySketches.record(hashKey, key, compositeKey);
+            clusterHotKeyManager.record(key);
+            return awaitInFlight(inFlight, hashKey, key, compositeKey);
+        }
+        try {
+            Object redisValue = loadFromRedis(hashKey, key, compositeKey);
+            load.complete(redisValue);
+            return redisValue;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightLoads.remove(compositeKey, load);
+        }
+    }
+
+    /**
+     * 等待其他请求的回源结果，回源失败时抛出原始异常
+     * 超过 IN_FLIGHT_WAIT 仍未返回时不再等待，自行回源，回源请求卡住时不会拖住所有等待者
+     */
+    private Object awaitInFlight(CompletableFuture<Object> inFlight, String hashKey, String key, String compositeKey) {
+        try {
+            return inFlight.get(IN_FLIGHT_WAIT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "读取点赞记录失败");
+        } catch (TimeoutException e) {
+            log.warn("等待回源超时，自行回源: {}", compositeKey);
+            return loadFromRedis(hashKey, key, compositeKey);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "等待读取点赞记录时被中断");
+        }
+    }
+
+    /**
+     * 回源 Redis，并按准入规则决定是否放入本地缓存或负缓存
+     */
+    private Object loadFromRedis(String hashKey, String key, String compositeKey) {
+        // 查询前记下版本号
+        long version = versionOf(compositeKey);
+        Object redisValue = metrics.redisGet.record(() -> redisTemplate.opsForHash().get(hashKey, key));
         if(redisValue == null) {
+            metrics.redisMiss.increment();
+            absentCache.put(compositeKey, Boolean.TRUE);
+            if (versionOf(compositeKey) != version) {
+                // 回源期间有写入，不能确认不存在
+                absentCache.invalidate(compositeKey);
+            }
             return null;
         }
-        // 3.记录访问
-        AddResult addResult = hotKeyDetector.add(key, 1);
+        metrics.redisHit.increment();
+        // 3.记录访问，得到各维度是否为热点
+        int hotMask = hotKeySketches.record(hashKey, key, compositeKey);
+        clusterHotKeyManager.record(key);
+        // 活跃用户加载完整点赞集合，之后该用户的点赞判断不再逐条回源
+        if (HotKeySketches.isHot(hotMask, HotKeyDimension.USER)) {
+            loadLikedSet(hashKey);
+        }
+        cacheLoaded(key, compositeKey, redisValue, hotMask, version);
+        return redisValue;
+    }
+
+    /**
+     * 回源得到值之后按热点掩码决定是否放入本地缓存，博客在集群范围内是热点也算作博客维度热点
+     * @param version 回源前记下的版本号
+     */
+    private void cacheLoaded(String key, String compositeKey, Object redisValue, int hotMask, long version) {
+        if (clusterHotKeyManager.isHotKey(key)) {
+            hotMask = HotKeySketches.withHot(hotMask, HotKeyDimension.BLOG);
+        }
 
         // 优化单点热点问题实现方案,如果当前博客是热点key，则扫描Redis中所有的点赞记录保存到本地缓存
 //        if(addResult.isHotKey()) {
@@ -77,52 +314,791 @@ public class CacheManager {
 //                }
 //            }
 //        }
-        // 4. 如果是热 Key 且不在本地缓存，则缓存数据
-        if(addResult.isHotKey() && !localCache.asMap().containsKey(compositeKey)) {
-            localCache.put(compositeKey, redisValue);
+        // 4. 满足准入规则且不在本地缓存，则缓存数据：条目本身被反复读取，或活跃用户在看热门博客
+        if(admitLocal(compositeKey, redisValue, hotMask) && putLocal(compositeKey, redisValue)
+                && versionOf(compositeKey) != version) {
+            // 回源期间有写入或失效广播，刚放入的值可能是旧的，删除后由下次读取重新回源
+            localCache.invalidate(compositeKey);
+        }
+    }
+
+    /**
+     * 批量获取同一个 hash 下的多个 key，用于列表页
+     * 先查本地缓存和负缓存，剩余的 key 用一次 HMGET 回源，热点统计中用户维度只记录一次
+     * @param hashKey Redis中的hash键
+     * @param keys Redis中的具体键
+     * @return 与 keys 一一对应的值，未找到的位置为 null
+     */
+    public List<Object> getCacheBatch(String hashKey, List<String> keys) {
+        int size = keys.size();
+        Object[] values = new Object[size];
+        String[] compositeKeys = new String[size];
+        List<Integer> misses = new ArrayList<>();
+        List<String> recorded = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String compositeKey = buildCacheKey(hashKey, keys.get(i));
+            compositeKeys[i] = compositeKey;
+            values[i] = localCache.getIfPresent(compositeKey);
+            if (values[i] != null) {
+                metrics.localHit.increment();
+                recorded.add(keys.get(i));
+                continue;
+            }
+            metrics.localMiss.increment();
+            if (absentCache.getIfPresent(compositeKey) != null) {
+                metrics.absentHit.increment();
+            } else {
+                misses.add(i);
+            }
+        }
+        // 本地命中的 key 与单个查询一样记录访问，回源的 key 在下面按返回的热点掩码记录
+        if (!recorded.isEmpty()) {
+            hotKeySketches.recordBatch(hashKey, recorded, this::buildCacheKey);
+            recorded.forEach(clusterHotKeyManager::record);
+        }
+        if (misses.isEmpty()) {
+            return Arrays.asList(values);
+        }
+
+        long[] missVersions = new long[misses.size()];
+        List<Object> missKeys = new ArrayList<>(misses.size());
+        for (int m = 0; m < misses.size(); m++) {
+            missVersions[m] = versionOf(compositeKeys[misses.get(m)]);
+            missKeys.add(keys.get(misses.get(m)));
+        }
+        List<Object> redisValues = metrics.redisMultiGet.record(() -> redisTemplate.opsForHash().multiGet(hashKey, missKeys));
+        List<String> found = new ArrayList<>(misses.size());
+        for (int m = 0; m < misses.size(); m++) {
+            int i = misses.get(m);
+            Object redisValue = redisValues.get(m);
+            values[i] = redisValue;
+            if (redisValue != null) {
+                metrics.redisHit.increment();
+                found.add(keys.get(i));
+            } else {
+                metrics.redisMiss.increment();
+                absentCache.put(compositeKeys[i], Boolean.TRUE);
+                if (versionOf(compositeKeys[i]) != missVersions[m]) {
+                    absentCache.invalidate(compositeKeys[i]);
+                }
+            }
+        }
+        if (found.isEmpty()) {
+            return Arrays.asList(values);
+        }
+        int[] hotMasks = hotKeySketches.recordBatch(hashKey, found, this::buildCacheKey);
+        // 同一批的 key 属于同一个用户，用户是热点时只触发一次点赞集合加载
+        if (HotKeySketches.isHot(hotMasks[0], HotKeyDimension.USER)) {
+            loadLikedSet(hashKey);
+        }
+        for (int m = 0, f = 0; m < misses.size(); m++) {
+            int i = misses.get(m);
+            if (values[i] == null) {
+                continue;
+            }
+            clusterHotKeyManager.record(keys.get(i));
+            cacheLoaded(keys.get(i), compositeKeys[i], values[i], hotMasks[f++], missVersions[m]);
+        }
+        return Arrays.asList(values);
+    }
+
+    /**
+     * 本地缓存准入：先按热点维度的准入规则过滤，缓存已满时再与最冷条目的访问频率比较（TinyLFU 的做法），
+     * 频率更高才放入，避免热点数据量超过容量时新旧条目互相挤出
+     * 最冷条目及其频率每秒刷新一次，准入路径只读取缓存的阈值，不再每次遍历淘汰顺序；
+     * 刷新后第一个被准入的条目直接淘汰该最冷条目，之后的由 Caffeine 按容量淘汰
+     */
+    private boolean admitLocal(String compositeKey, Object value, int hotMask) {
+        if (!hotKeySketches.admits(hotMask)) {
+            return false;
+        }
+        Policy.Eviction<String, Object> eviction = localCache.policy().eviction().orElseThrow();
+        long weightedSize = eviction.weightedSize().orElse(0);
+        if (weightedSize + weigh(compositeKey, value) <= eviction.getMaximum()) {
+            return true;
+        }
+        AdmissionThreshold threshold = admissionThreshold.get();
+        if (hotKeySketches.get(HotKeyDimension.ENTRY).estimate(compositeKey) <= threshold.estimate()) {
+            return false;
+        }
+        if (threshold.victim() != null
+                && admissionThreshold.compareAndSet(threshold, new AdmissionThreshold(null, threshold.estimate()))) {
+            evictLocal(threshold.victim());
+        }
+        return true;
+    }
+
+    /**
+     * 重新取出最冷的条目作为准入阈值，缓存未满时不需要阈值
+     */
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.SECONDS)
+    public void refreshAdmissionThreshold() {
+        Policy.Eviction<String, Object> eviction = localCache.policy().eviction().orElseThrow();
+        Map<String, Object> coldest = eviction.coldest(1);
+        if (coldest.isEmpty()) {
+            admissionThreshold.set(AdmissionThreshold.UNKNOWN);
+            return;
+        }
+        String victim = coldest.keySet().iterator().next();
+        admissionThreshold.set(new AdmissionThreshold(victim,
+                hotKeySketches.get(HotKeyDimension.ENTRY).estimate(victim)));
+    }
+
+    /**
+     * @param victim 最冷的条目，已被淘汰或尚未刷新时为 null
+     * @param estimate 最冷条目的访问频率估计
+     */
+    private record AdmissionThreshold(String victim, long estimate) {
+        static final AdmissionThreshold UNKNOWN = new AdmissionThreshold(null, 0);
+    }
+
+    /**
+     * 删除本地缓存条目，并同步清理近缓存，不等待异步执行的删除通知
+     * @return 条目是否存在
+     */
+    private boolean evictLocal(String compositeKey) {
+        boolean removed = localCache.asMap().remove(compositeKey) != null;
+        versions.incrementAndGet(stripeOf(compositeKey));
+        invalidateNear(compositeKey);
+        return removed;
+    }
+
+    /**
+     * 复合键不在本地缓存时放入，并登记到博客和用户索引
+     * @return 是否放入
+     */
+    private boolean putLocal(String compositeKey, Object value) {
+        if (localCache.asMap().putIfAbsent(compositeKey, value) != null) {
+            return false;
+        }
+        int separator = compositeKey.lastIndexOf(':');
+        if (separator > 0) {
+            addIndex(localKeysByUser, compositeKey.substring(0, separator), compositeKey);
+            addIndex(localKeysByBlog, compositeKey.substring(separator + 1), compositeKey);
+        }
+        return true;
+    }
+
+    private static void addIndex(ConcurrentHashMap<String, Set<String>> index, String key, String compositeKey) {
+        index.compute(key, (k, compositeKeys) -> {
+            Set<String> keys = compositeKeys != null ? compositeKeys : ConcurrentHashMap.newKeySet();
+            keys.add(compositeKey);
+            return keys;
+        });
+    }
+
+    private static void removeIndex(ConcurrentHashMap<String, Set<String>> index, String key, String compositeKey) {
+        index.computeIfPresent(key, (k, compositeKeys) -> {
+            compositeKeys.remove(compositeKey);
+            return compositeKeys.isEmpty() ? null : compositeKeys;
+        });
+    }
+
+    /**
+     * 本地缓存条目的近似字节数：键字符串（Latin-1 压缩存储）、值对象和固定开销
+     */
+    static int weigh(String compositeKey, Object value) {
+        int keyBytes = 40 + compositeKey.length();
+        int valueBytes = value instanceof String str ? 40 + str.length() : 16;
+        return LOCAL_ENTRY_OVERHEAD_BYTES + keyBytes + valueBytes;
+    }
+
+    /**
+     * 本地缓存当前占用的字节数（按 weigh 估算）
+     */
+    public long localCacheWeightedSize() {
+        return localCache.policy().eviction().orElseThrow().weightedSize().orElse(0);
+    }
+
+    /**
+     * 本地缓存当前的容量（字节）
+     */
+    public long localCacheMaxBytes() {
+        return localCache.policy().eviction().orElseThrow().getMaximum();
+    }
+
+    /**
+     * 本地缓存当前的条目数
+     */
+    public long localCacheSize() {
+        return localCache.estimatedSize();
+    }
+
+    /**
+     * 本地缓存启动以来的命中率，没有请求时为 1
+     */
+    public double localCacheHitRatio() {
+        return localCache.stats().hitRate();
+    }
+
+    /**
+     * 用户是否点赞过博客
+     * 依次查找近缓存、用户的完整点赞集合，最后按复合键走本地缓存 -> Redis，近缓存命中时不分配对象
+     * @param userId 用户 id
+     * @param blogId 博客 id
+     */
+    public boolean hasThumb(long userId, long blogId) {
+        long value = nearCache.get(userId, blogId);
+        if (value == NO_VALUE) {
+            String hashKey = RedisKeyUtil.getUserThumbKey(userId);
+            LongHashSet liked = likedSets.getIfPresent(hashKey);
+            if (liked != null) {
+                metrics.likedSetHit.increment();
+                return liked.contains(blogId);
+            }
+            value = loadThumbValue(hashKey, userId, blogId);
+        }
+        // 约定值为 0 表示已取消点赞
+        return value != NO_VALUE && value != ThumbConstant.UN_THUMB_CONSTANT;
+    }
+
+    /**
+     * 批量判断用户是否点赞了这些博客
+     * 已加载点赞集合的用户全部由集合回答；否则先查近缓存，其余经 getCacheBatch 查本地缓存和负缓存，最后一次 HMGET
+     * @return 与 blogIds 一一对应
+     */
+    public boolean[] hasThumbBatch(long userId, List<Long> blogIds) {
+        boolean[] thumbed = new boolean[blogIds.size()];
+        String hashKey = RedisKeyUtil.getUserThumbKey(userId);
+        LongHashSet liked = likedSets.getIfPresent(hashKey);
+        if (liked != null) {
+            metrics.likedSetHit.increment(blogIds.size());
+            for (int i = 0; i < thumbed.length; i++) {
+                thumbed[i] = liked.contains(blogIds.get(i));
+            }
+            return thumbed;
+        }
+        List<Integer> misses = new ArrayList<>();
+        List<String> missKeys = new ArrayList<>();
+        for (int i = 0; i < thumbed.length; i++) {
+            long value = nearCache.get(userId, blogIds.get(i));
+            if (value != NO_VALUE) {
+                thumbed[i] = value != ThumbConstant.UN_THUMB_CONSTANT;
+            } else {
+                misses.add(i);
+                missKeys.add(blogIds.get(i).toString());
+            }
+        }
+        if (misses.isEmpty()) {
+            return thumbed;
+        }
+        List<Object> values = getCacheBatch(hashKey, missKeys);
+        for (int m = 0; m < misses.size(); m++) {
+            thumbed[misses.get(m)] = isLikedValue(values.get(m));
+        }
+        return thumbed;
+    }
+
+    /**
+     * 用户对博客的点赞记录值，近缓存命中时不分配对象
+     * @return Redis 中保存的值，未点赞返回 NO_VALUE，已取消点赞返回 0
+     */
+    public long getThumbValue(long userId, long blogId) {
+        long value = nearCache.get(userId, blogId);
+        return value != NO_VALUE ? value : loadThumbValue(RedisKeyUtil.getUserThumbKey(userId), userId, blogId);
+    }
+
+    /**
+     * 博客是否存在，两级结果都未命中时调用 loader 查询数据库并缓存结果
+     * @param loader 按博客 id 查询数据库
+     */
+    public boolean blogExists(long blogId, LongPredicate loader) {
+        if (existingBlogs.getIfPresent(blogId) != null) {
+            return true;
+        }
+        if (absentBlogs.getIfPresent(blogId) != null) {
+            return false;
+        }
+        boolean exists = loader.test(blogId);
+        (exists ? existingBlogs : absentBlogs).put(blogId, Boolean.TRUE);
+        return exists;
+    }
+
+    /**
+     * 点赞记录的值是否表示已点赞：存在且不为 0
+     * Jackson 反序列化较小的数字时得到 Integer，按数值比较而不是 equals
+     */
+    public static boolean isLikedValue(Object value) {
+        if (value == null) {
+            return false;
+        }
+        return !(value instanceof Number number) || number.longValue() != ThumbConstant.UN_THUMB_CONSTANT;
+    }
+
+    /**
+     * 近缓存未命中时走 getCache，值已放入本地缓存则同时放入近缓存
+     */
+    private long loadThumbValue(String hashKey, long userId, long blogId) {
+        String key = Long.toString(blogId);
+        String compositeKey = buildCacheKey(hashKey, key);
+        long version = versionOf(compositeKey);
+        Object value = getCache(hashKey, key);
+        if (value == null) {
+            return NO_VALUE;
+        }
+        // Jackson 反序列化较小的数字时得到 Integer，统一按 Number 转换
+        long longValue = value instanceof Number number ? number.longValue() : Long.parseLong(value.toString());
+        if (localCache.asMap().containsKey(compositeKey)) {
+            nearCache.put(userId, blogId, longValue);
+            if (versionOf(compositeKey) != version) {
+                // 期间有写入或本地缓存条目被删除，近缓存中的值可能已过期
+                nearCache.invalidate(userId, blogId);
+            }
+        }
+        return longValue;
+    }
+
+    /**
+     * 复合键是点赞记录（thumb:userId:blogId）时清理对应的近缓存槽位
+     */
+    private void invalidateNear(String compositeKey) {
+        int separator = compositeKey.lastIndexOf(':');
+        int userSeparator = separator > 0 ? compositeKey.lastIndexOf(':', separator - 1) : -1;
+        if (userSeparator < 0 || !compositeKey.startsWith(ThumbConstant.USER_THUMB_KEY_PREFIX)) {
+            return;
+        }
+        try {
+            long userId = Long.parseLong(compositeKey, userSeparator + 1, separator, 10);
+            long blogId = Long.parseLong(compositeKey, separator + 1, compositeKey.length(), 10);
+            nearCache.invalidate(userId, blogId);
+        } catch (NumberFormatException e) {
+            // 不是点赞记录，近缓存中不会有
+        }
+    }
+
+    /**
+     * 本地缓存条目被删除、替换、淘汰或过期，递增版本号后清理近缓存，正在写入近缓存的读取方据此放弃写入
+     * 条目不再存在时同时从博客和用户索引中删除
+     */
+    private void onLocalRemoval(String compositeKey, RemovalCause cause) {
+        versions.incrementAndGet(stripeOf(compositeKey));
+        invalidateNear(compositeKey);
+        int separator = compositeKey.lastIndexOf(':');
+        if (cause == RemovalCause.REPLACED || separator <= 0) {
+            return;
+        }
+        removeIndex(localKeysByUser, compositeKey.substring(0, separator), compositeKey);
+        removeIndex(localKeysByBlog, compositeKey.substring(separator + 1), compositeKey);
+        if (localCache.asMap().containsKey(compositeKey)) {
+            // 删除通知晚于重新放入，补回索引
+            addIndex(localKeysByUser, compositeKey.substring(0, separator), compositeKey);
+            addIndex(localKeysByBlog, compositeKey.substring(separator + 1), compositeKey);
+        }
+    }
+
+    /**
+     * 在后台线程上 HGETALL 加载用户的点赞集合，点赞过多的用户不加载
+     * 请求线程不等待加载完成，本次仍按单条记录回答
+     */
+    private void loadLikedSet(String hashKey) {
+        if (likedSets.getIfPresent(hashKey) != null || oversizedLikedSets.getIfPresent(hashKey) != null
+                || !loadingLikedSets.add(hashKey)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    doLoadLikedSet(hashKey);
+                } catch (RuntimeException e) {
+                    log.warn("加载用户点赞集合失败: {}", hashKey, e);
+                } finally {
+                    loadingLikedSets.remove(hashKey);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            loadingLikedSets.remove(hashKey);
+        }
+    }
+
+    private void doLoadLikedSet(String hashKey) {
+        long version = versionOf(hashKey);
+        Long size = redisTemplate.opsForHash().size(hashKey);
+        if (size == null) {
+            return;
+        }
+        if (size > MAX_LIKED_SET_SIZE) {
+            oversizedLikedSets.put(hashKey, Boolean.TRUE);
+            return;
+        }
+        Map<Object, Object> entries = metrics.redisEntries.record(() -> redisTemplate.opsForHash().entries(hashKey));
+        long[] blogIds = new long[entries.size()];
+        int n = 0;
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            if (!isLikedValue(entry.getValue())) {
+                continue;
+            }
+            try {
+                blogIds[n] = Long.parseLong(entry.getKey().toString());
+                n++;
+            } catch (NumberFormatException e) {
+                log.warn("点赞记录中无法解析的博客 id: {} -> {}", hashKey, entry.getKey());
+            }
+        }
+        likedSets.put(hashKey, LongHashSet.of(Arrays.copyOf(blogIds, n)));
+        if (versionOf(hashKey) != version) {
+            // 加载期间该用户有写入，集合可能缺少最新的点赞
+            likedSets.invalidate(hashKey);
         }
-        return redisValue;
     }
 
     // 定义一个方法，用于在缓存中更新指定键的值，但仅当该键已经存在时
+    // 同时递增版本号、删除负缓存，并广播给其他节点删除各自的本地缓存条目
     public void putIfPresent(String hashKey, String key, Object value) {
         // 构建一个复合键，由hashKey和key拼接而成
         String compositeKey = buildCacheKey(hashKey, key);
-        // 从本地缓存中获取该复合键对应的值
-        Object object = localCache.getIfPresent(compositeKey);
-        // 如果该复合键不存在于缓存中，则直接返回，不进行任何操作
-        if(object == null) {
+        // 如果该复合键存在于缓存中，则更新该键对应的值为传入的value，不存在则不进行任何操作
+        localCache.asMap().computeIfPresent(compositeKey, (k, old) -> value);
+        // 本地缓存更新之后再递增版本号并清理近缓存，期间读到旧值的读取方看到版本号变化后放弃写入近缓存
+        // 不等待异步执行的删除通知
+        versions.incrementAndGet(stripeOf(compositeKey));
+        versions.incrementAndGet(stripeOf(hashKey));
+        absentCache.invalidate(compositeKey);
+        invalidateNear(compositeKey);
+        cacheInvalidationBus.publish(compositeKey);
+        // 已加载的点赞集合同步加入或删除该博客
+        updateLikedSet(hashKey, key, isLikedValue(value));
+    }
+
+    private void updateLikedSet(String hashKey, String key, boolean liked) {
+        long blogId;
+        try {
+            blogId = Long.parseLong(key);
+        } catch (NumberFormatException e) {
+            likedSets.invalidate(hashKey);
             return;
         }
-        // 如果该复合键存在于缓存中，则更新该键对应的值为传入的value
-        localCache.put(compositeKey, value);
+        likedSets.asMap().computeIfPresent(hashKey, (k, set) -> liked ? set.with(blogId) : set.without(blogId));
+    }
+
+    /**
+     * 处理其他节点广播的失效复合键
+     */
+    public void invalidateLocal(String compositeKey) {
+        // 广播中没有写入的值，整个点赞集合失效，下次重新加载
+        String hashKey = compositeKey.substring(0, Math.max(0, compositeKey.lastIndexOf(':')));
+        localCache.invalidate(compositeKey);
+        // 与 putIfPresent 相同，删除本地缓存条目之后同步清理近缓存
+        versions.incrementAndGet(stripeOf(compositeKey));
+        versions.incrementAndGet(stripeOf(hashKey));
+        absentCache.invalidate(compositeKey);
+        invalidateNear(compositeKey);
+        likedSets.invalidate(hashKey);
+    }
+
+    private long versionOf(String key) {
+        return versions.get(stripeOf(key));
     }
 
-    // 定期清理过期的热 Key 检测数据
+    private static int stripeOf(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (VERSION_STRIPES - 1);
+    }
+
+    // 衰减按 10s 的 epoch 惰性进行，这里只做增量清扫，每次处理 1/16 的桶
     @Scheduled(fixedRate = 20, timeUnit = TimeUnit.SECONDS)
     public void cleanHotKeys() {
-        hotKeyDetector.fading();
+        hotKeySketches.fading();
     }
 
-    // 定义一个 Bean，用于获取热键检测器
-    @Bean
+    // 近缓存命中时只在槽位上计数，这里按原来的字符串 key 汇总到热点统计
+    // 近缓存命中不经过 Caffeine，这里对每个被命中的条目读取一次本地缓存：到了刷新时间的条目在后台重新加载，
+    // 重新加载后的替换通知清理近缓存，近缓存中的值最多比 refreshAfterWrite 多旧一个汇总周期
+    // Caffeine 的 cache.gets（cache=local）中每个条目每周期只计一次命中，近缓存命中次数以 cache.requests（tier=near）为准
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.SECONDS)
+    public void flushNearCacheHits() {
+        nearCache.drainHits((userId, blogId, hits) -> {
+            metrics.nearHit.increment(hits);
+            String hashKey = RedisKeyUtil.getUserThumbKey(userId);
+            String key = Long.toString(blogId);
+            String compositeKey = buildCacheKey(hashKey, key);
+            localCache.getIfPresent(compositeKey);
+            hotKeySketches.record(hashKey, key, compositeKey, hits);
+            clusterHotKeyManager.record(key, hits);
+        });
+    }
+
+    // 消费被挤出 TopK 的 key，立即清理不再满足准入规则的本地缓存条目，把位置让给当前的热点，不必等 5 分钟过期
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.SECONDS)
+    public void evictExpelledKeys() {
+        Map<HotKeyDimension, Set<String>> expelled = hotKeySketches.drainExpelled(EXPELLED_DRAIN_BATCH);
+        if (expelled.values().stream().allMatch(Set::isEmpty)) {
+            return;
+        }
+        // 通过索引找到受影响的条目，只检查这些条目
+        Set<String> candidates = new HashSet<>(expelled.get(HotKeyDimension.ENTRY));
+        for (String blogKey : expelled.get(HotKeyDimension.BLOG)) {
+            candidates.addAll(localKeysByBlog.getOrDefault(blogKey, Set.of()));
+        }
+        for (String hashKey : expelled.get(HotKeyDimension.USER)) {
+            candidates.addAll(localKeysByUser.getOrDefault(hashKey, Set.of()));
+        }
+        Map<HotKeyDimension, Set<String>> hotKeys = hotKeySketches.hotKeys();
+        int evicted = 0;
+        for (String compositeKey : candidates) {
+            // 复合键的最后一段是 Redis hash 中的 key，前面是 hash 键
+            int separator = compositeKey.lastIndexOf(':');
+            if (separator <= 0 || !localCache.asMap().containsKey(compositeKey)) {
+                continue;
+            }
+            String hashKey = compositeKey.substring(0, separator);
+            String key = compositeKey.substring(separator + 1);
+            // 被挤出后又重新进入 TopK，或博客在集群范围内仍是热点，仍满足准入规则的条目保留
+            int hotMask = hotKeySketches.hotMask(hotKeys, hashKey, key, compositeKey);
+            if (clusterHotKeyManager.isHotKey(key)) {
+                hotMask = HotKeySketches.withHot(hotMask, HotKeyDimension.BLOG);
+            }
+            if (!hotKeySketches.admits(hotMask) && evictLocal(compositeKey)) {
+                evicted++;
+            }
+        }
+        expelledEvictionCounter.increment(evicted);
+    }
+
+    @PostConstruct
+    public void init() {
+        cacheInvalidationBus.subscribe(this::invalidateLocal);
+        if (hotKeySketches == null) {
+            hotKeySketches = defaultHotKeySketches();
+        }
+
+        // 被挤出队列有界，按维度导出积压和丢弃数量，以及当前热点数和衰减后的访问总数
+        for (HotKeyDimension dimension : HotKeyDimension.values()) {
+            TopK sketch = hotKeySketches.get(dimension);
+            String tag = dimension.name().toLowerCase();
+            Gauge.builder("hotkey.topk.size", this, manager -> manager.hotKeySketches.get(dimension).size())
+                    .description("Keys currently held in the top-k heap")
+                    .tag("dimension", tag)
+                    .register(meterRegistry);
+            Gauge.builder("hotkey.total", this, manager -> manager.hotKeySketches.get(dimension).total())
+                    .description("Decayed access count seen by the sketch")
+                    .tag("dimension", tag)
+                    .register(meterRegistry);
+            Gauge.builder("hotkey.expelled.queue.size", sketch, topK -> topK.expelled().size())
+                    .description("Expelled hot keys waiting to be consumed")
+                    .tag("dimension", tag)
+                    .register(meterRegistry);
+            FunctionCounter.builder("hotkey.expelled.dropped", sketch, TopK::expelledDropCount)
+                    .description("Expelled hot keys dropped because the queue was full")
+                    .tag("dimension", tag)
+                    .register(meterRegistry);
+        }
+        expelledEvictionCounter = Counter.builder("hotkey.expelled.evicted")
+                .description("Local cache entries evicted after their key left the top-k")
+                .register(meterRegistry);
+
+        metrics = new CacheTierMetrics(meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, absentCache, "absent");
+        CaffeineCacheMetrics.monitor(meterRegistry, likedSets, "likedSet");
+        CaffeineCacheMetrics.monitor(meterRegistry, existingBlogs, "existingBlog");
+        // 本地缓存在 getLocalCache 中创建，指标读取时再取当前实例
+        Gauge.builder("cache.local.size", this, CacheManager::localCacheSize)
+                .description("Entries in the local cache")
+                .register(meterRegistry);
+        Gauge.builder("cache.local.weight", this, CacheManager::localCacheWeightedSize)
+                .description("Estimated bytes held by the local cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("cache.local.max", this, CacheManager::localCacheMaxBytes)
+                .description("Local cache capacity")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("cache.local.hit.ratio", this, CacheManager::localCacheHitRatio)
+                .description("Local cache hit ratio since startup")
+                .register(meterRegistry);
+    }
+
+
+    private static HotKeySketches defaultHotKeySketches() {
+        // 使用无锁版本，避免请求线程在桶锁和共享 Random 上竞争
+        // 按 10s 一个 epoch 滑动衰减，计数反映最近几十秒的访问，不再每 20s 全量减半
+        // 外层批量写入：请求线程只写缓冲区，每 100ms 后台汇总一次，热点判断最多滞后 1s
+        Map<HotKeyDimension, TopK> sketches = new EnumMap<>(HotKeyDimension.class);
+        // 博客：监控 Top 100， 数组宽度为 100000，深度为 5，衰减系数为 0.92，最小出现 10 次才记录
+        sketches.put(HotKeyDimension.BLOG, newSketch(100, 100000, 5, 10));
+        // 用户：监控 Top 100 活跃用户
+        sketches.put(HotKeyDimension.USER, newSketch(100, 20000, 3, 10));
+        // 复合键：监控 Top 1000，被读取 3 次以上的条目才算热点，同时为本地缓存准入提供频率估计
+        sketches.put(HotKeyDimension.ENTRY, newSketch(1000, 100000, 5, 3));
+        return new HotKeySketches(sketches, List.of(
+                EnumSet.of(HotKeyDimension.ENTRY),
+                EnumSet.of(HotKeyDimension.USER, HotKeyDimension.BLOG)));
+    }
+
+    private static TopK newSketch(int k, int width, int depth, int minCount) {
+        return new BufferedTopK(
+                new WindowedHeavyKeeper(k, width, depth, 0.92, minCount, Duration.ofSeconds(10)),
+                Duration.ofMillis(100), Duration.ofSeconds(1));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        closeRefreshExecutor();
+        saveWarmSnapshot();
+        closeHotKeySketches();
+    }
+
+    /**
+     * 停止后台刷新，等待进行中的刷新结束，之后提交的刷新被拒绝，不会在 Redis 连接关闭后继续访问 Redis
+     * 调用方传入的不是线程池（如测试中的同步执行）时什么都不做
+     */
+    private void closeRefreshExecutor() {
+        if (!(refreshExecutor instanceof ExecutorService executorService)) {
+            return;
+        }
+        executorService.shutdown();
+        try {
+            if (!executorService.awaitTermination(REFRESH_SHUTDOWN_WAIT.toMillis(), TimeUnit.MILLISECONDS)) {
+                executorService.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executorService.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void closeHotKeySketches() {
+        hotKeySketches.close();
+    }
+
+    /**
+     * 当前的本地缓存实例，getLocalCache 是 Bean 方法，每次调用都会新建缓存
+     */
+    Cache<String, Object> localCache() {
+        return localCache;
+    }
+
+    HotKeySketches hotKeySketches() {
+        return hotKeySketches;
+    }
+
+    /**
+     * 保存各维度的热点和本地缓存中的复合键，下次启动时预热
+     */
+    public void saveWarmSnapshot() {
+        if (warmSnapshotPath == null) {
+            return;
+        }
+        List<String> entryKeys = localCache.asMap().keySet().stream().limit(MAX_WARM_ENTRIES).toList();
+        try {
+            new WarmSnapshot(System.currentTimeMillis(), hotKeySketches.snapshot(), entryKeys).writeTo(warmSnapshotPath);
+            log.info("已保存预热快照 {}，本地缓存条目 {} 个", warmSnapshotPath, entryKeys.size());
+        } catch (IOException e) {
+            log.warn("保存预热快照失败: {}", warmSnapshotPath, e);
+        }
+    }
+
+    /**
+     * 启动完成后读取预热快照：先恢复各维度的热点计数，再按复合键从 Redis 重新读取值放入本地缓存
+     * 快照不存在、已损坏或超过有效期时按冷启动处理
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (warmSnapshotPath == null || !Files.exists(warmSnapshotPath)) {
+            return;
+        }
+        WarmSnapshot snapshot;
+        try {
+            snapshot = WarmSnapshot.readFrom(warmSnapshotPath);
+        } catch (IOException e) {
+            log.warn("读取预热快照失败，按冷启动处理: {}", warmSnapshotPath, e);
+            return;
+        }
+        long ageMillis = System.currentTimeMillis() - snapshot.savedAtMillis();
+        if (ageMillis > WARM_SNAPSHOT_MAX_AGE.toMillis()) {
+            log.info("预热快照已保存 {} 秒，超过有效期，按冷启动处理", ageMillis / 1000);
+            return;
+        }
+        hotKeySketches.restore(snapshot.hotKeys());
+        int warmed = warmLocalCache(snapshot.entryKeys());
+        log.info("预热完成：恢复热点 {} 个，本地缓存条目 {} 个", snapshot.hotKeys().values().stream().mapToInt(List::size).sum(), warmed);
+    }
+
+    /**
+     * 按 hash 键分组，每个 hash 一次 HMGET 读取最新的值放入本地缓存
+     * @return 放入本地缓存的条目数
+     */
+    private int warmLocalCache(List<String> compositeKeys) {
+        Map<String, List<String>> keysByHash = new LinkedHashMap<>();
+        for (String compositeKey : compositeKeys) {
+            int separator = compositeKey.lastIndexOf(':');
+            if (separator <= 0) {
+                continue;
+            }
+            keysByHash.computeIfAbsent(compositeKey.substring(0, separator), hashKey -> new ArrayList<>())
+                    .add(compositeKey.substring(separator + 1));
+        }
+        int warmed = 0;
+        try {
+            for (Map.Entry<String, List<String>> entry : keysByHash.entrySet()) {
+                String hashKey = entry.getKey();
+                List<String> keys = entry.getValue();
+                long[] keyVersions = new long[keys.size()];
+                for (int i = 0; i < keys.size(); i++) {
+                    keyVersions[i] = versionOf(buildCacheKey(hashKey, keys.get(i)));
+                }
+                List<Object> values = metrics.redisMultiGet.record(() ->
+                        redisTemplate.opsForHash().multiGet(hashKey, new ArrayList<>(keys)));
+                for (int i = 0; i < keys.size(); i++) {
+                    Object value = values.get(i);
+                    String compositeKey = buildCacheKey(hashKey, keys.get(i));
+                    if (value == null || !putLocal(compositeKey, value)) {
+                        continue;
+                    }
+                    if (versionOf(compositeKey) != keyVersions[i]) {
+                        // 读取期间有写入，放弃这一条
+                        localCache.invalidate(compositeKey);
+                    } else {
+                        warmed++;
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("预热本地缓存中断，已放入 {} 个条目", warmed, e);
+        }
+        return warmed;
+    }
+
+    // 定义一个 Bean，用于获取热键检测器（博客维度）
+    // 检测器随 hotKeySketches 在 shutdown 中关闭，不让 Spring 按 close 方法推断销毁方法再关闭一次
+    @Bean(destroyMethod = "")
     public TopK getHotKeyDetector() {
-        // 监控 Top 100 Key， 数组宽度为 100000，深度为 5，衰减系数为 0.92，最小出现 10 次才记录
-        hotKeyDetector = new HeavyKeeper(100, 100000, 5, 0.92, 10);
-        return hotKeyDetector;
+        return hotKeySketches.get(HotKeyDimension.BLOG);
     }
 
     @Bean
 // 标记该方法为一个Spring Bean，Spring框架会自动管理这个Bean的生命周期
     public Cache<String, Object> getLocalCache() {
     // 定义一个方法，返回一个类型为Cache<String, Object>的本地缓存实例
-        return localCache = Caffeine.newBuilder()
+        localCache = Caffeine.newBuilder()
             // 使用Caffeine库创建一个新的缓存构建器
-                .maximumSize(1000)
-            // 设置缓存的最大容量为1000个条目
+                .maximumWeight(localCacheCapacity)
+                .weigher(CacheManager::weigh)
+            // 按字节计算容量，默认 16MB，由准入规则决定放入哪些条目
+                .recordStats()
+            // 记录命中率
+                .removalListener((String compositeKey, Object value, RemovalCause cause) -> onLocalRemoval(compositeKey, cause))
+            // 条目被删除、替换、淘汰或过期时同步清理近缓存
                 .expireAfterWrite(5, TimeUnit.MINUTES)
             // 设置缓存条目在写入后5分钟自动过期
-                .build();
-    // 构建并返回缓存实例
+                .refreshAfterWrite(1, TimeUnit.MINUTES)
+            // 写入1分钟后再被读取时，在后台重新从 Redis 加载，读取方继续拿到旧值，热点条目不会集中过期
+            // 刷新期间条目被写入或失效时，Caffeine 丢弃刷新结果；Redis 中已不存在时刷新结果为 null，条目被删除
+                .executor(refreshExecutor)
+                .ticker(ticker)
+                .buildAsync(this::reload)
+                .synchronous();
+    // 构建缓存实例
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "local");
+    // 导出 Caffeine 的命中、未命中、淘汰和加载统计（cache.gets、cache.evictions 等，cache 标签为 local）
+        return localCache;
+    }
+
+    /**
+     * 后台刷新时重新读取一个复合键
+     */
+    private Object reload(String compositeKey) {
+        int separator = compositeKey.lastIndexOf(':');
+        return metrics.redisRefresh.record(() ->
+                redisTemplate.opsForHash().get(compositeKey.substring(0, separator), compositeKey.substring(separator + 1)));
     }
 }
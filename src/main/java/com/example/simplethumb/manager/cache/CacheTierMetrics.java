@@ -0,0 +1,56 @@
+package com.example.simplethumb.manager.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * CacheManager 各级缓存的命中计数和 Redis 回源耗时
+ * cache.requests 按 tier（near、local、liked_set、absent、redis）和 result（hit、miss）区分，
+ * 本地命中率 = local hit / (local hit + local miss)，回源比例 = redis 请求数 / 全部请求数
+ * near 命中不经过 Caffeine，不计入 local，由 CacheManager.flushNearCacheHits 每秒汇总计入
+ * cache.redis.fetch 按 op（hget、hmget、hgetall、refresh）区分
+ */
+final class CacheTierMetrics {
+    final Counter nearHit;
+    final Counter localHit;
+    final Counter localMiss;
+    final Counter likedSetHit;
+    final Counter absentHit;
+    final Counter redisHit;
+    final Counter redisMiss;
+    final Timer redisGet;
+    final Timer redisMultiGet;
+    final Timer redisEntries;
+    final Timer redisRefresh;
+
+    CacheTierMetrics(MeterRegistry meterRegistry) {
+        nearHit = requests(meterRegistry, "near", "hit");
+        localHit = requests(meterRegistry, "local", "hit");
+        localMiss = requests(meterRegistry, "local", "miss");
+        likedSetHit = requests(meterRegistry, "liked_set", "hit");
+        absentHit = requests(meterRegistry, "absent", "hit");
+        redisHit = requests(meterRegistry, "redis", "hit");
+        redisMiss = requests(meterRegistry, "redis", "miss");
+        redisGet = redisFetch(meterRegistry, "hget");
+        redisMultiGet = redisFetch(meterRegistry, "hmget");
+        redisEntries = redisFetch(meterRegistry, "hgetall");
+        redisRefresh = redisFetch(meterRegistry, "refresh");
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String tier, String result) {
+        return Counter.builder("cache.requests")
+                .description("Cache lookups answered by each tier")
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static Timer redisFetch(MeterRegistry meterRegistry, String op) {
+        return Timer.builder("cache.redis.fetch")
+                .description("Latency of Redis reads issued on local cache misses")
+                .tag("op", op)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
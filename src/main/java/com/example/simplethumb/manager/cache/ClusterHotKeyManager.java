@@ -0,0 +1,123 @@
+package com.example.simplethumb.manager.cache;
+
+import cn.hutool.core.util.IdUtil;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 集群热点 key 管理
+ * 负载均衡把同一个博客的访问分散到各个节点，单节点计数可能一直达不到 minCount，
+ * 因此每个节点额外维护一个不设门槛的候选 sketch，定期把候选 TopK 发布到共享存储，
+ * 再合并所有节点的快照得到全局 TopK，供本地缓存准入使用
+ */
+@Component
+@Slf4j
+public class ClusterHotKeyManager {
+    // 全局 TopK 数量
+    private static final int K = 100;
+    // 全局累计达到该次数才算热点
+    private static final int MIN_COUNT = 10;
+    // 节点快照有效期，超过未更新视为节点下线
+    private static final Duration SNAPSHOT_TTL = Duration.ofSeconds(30);
+
+    private final HotKeySnapshotStore hotKeySnapshotStore;
+    private final String nodeId;
+    // 本节点候选热点，minCount 为 1，低于本地门槛的 key 也能参与全局合并
+    // 只用于发布快照，没有人消费被挤出的 key，不记录被挤出队列
+    private final BufferedTopK candidates;
+    private volatile Set<String> globalHotKeys = Set.of();
+
+    public ClusterHotKeyManager(HotKeySnapshotStore hotKeySnapshotStore) {
+        this.hotKeySnapshotStore = hotKeySnapshotStore;
+        this.nodeId = ManagementFactory.getRuntimeMXBean().getName() + ":" + IdUtil.fastSimpleUUID().substring(0, 8);
+        this.candidates = new BufferedTopK(new ConcurrentHeavyKeeper(K, 20000, 3, 0.92, 1, false, false),
+                Duration.ofMillis(100), Duration.ofSeconds(1));
+    }
+
+    /**
+     * 记录一次访问
+     */
+    public void record(String key) {
+        record(key, 1);
+    }
+
+    /**
+     * 一次记录多次访问
+     */
+    public void record(String key, int increment) {
+        candidates.addAndCheckHot(key, increment);
+    }
+
+    /**
+     * 是否为集群范围的热点
+     */
+    public boolean isHotKey(String key) {
+        return globalHotKeys.contains(key);
+    }
+
+    /**
+     * 发布本节点快照并合并全局热点
+     */
+    @Scheduled(fixedRate = 5, timeUnit = TimeUnit.SECONDS)
+    public void refresh() {
+        try {
+            candidates.flush();
+            hotKeySnapshotStore.publish(nodeId, candidates.list(), SNAPSHOT_TTL);
+            Map<String, List<Item>> snapshots = hotKeySnapshotStore.loadAll(SNAPSHOT_TTL);
+            globalHotKeys = merge(snapshots.values(), K, MIN_COUNT).stream()
+                    .map(Item::key)
+                    .collect(Collectors.toUnmodifiableSet());
+        } catch (Exception e) {
+            // 共享存储不可用时保留上一次的全局热点，本地检测不受影响
+            log.error("集群热点快照同步失败", e);
+        }
+    }
+
+    // 与本地检测器保持相同的衰减节奏
+    @Scheduled(fixedRate = 20, timeUnit = TimeUnit.SECONDS)
+    public void fading() {
+        candidates.fading();
+    }
+
+    @PreDestroy
+    public void close() {
+        candidates.close();
+    }
+
+    /**
+     * 本节点的候选 sketch
+     */
+    TopK candidates() {
+        return candidates;
+    }
+
+    /**
+     * 合并各节点快照：按 key 累加计数，过滤掉不足 minCount 的，取计数最大的 k 个
+     */
+    static List<Item> merge(Collection<List<Item>> snapshots, int k, int minCount) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (List<Item> snapshot : snapshots) {
+            for (Item item : snapshot) {
+                counts.merge(item.key(), item.count(), Integer::sum);
+            }
+        }
+        return counts.entrySet().stream()
+                .filter(entry -> entry.getValue() >= minCount)
+                .map(entry -> new Item(entry.getKey(), entry.getValue()))
+                .sorted((a, b) -> Integer.compare(b.count(), a.count()))
+                .limit(k)
+                .toList();
+    }
+}
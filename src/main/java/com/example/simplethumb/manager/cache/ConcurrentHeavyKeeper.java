@@ -0,0 +1,251 @@
+package com.example.simplethumb.manager.cache;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁版 HeavyKeeper
+ * 桶的指纹和计数打包进一个 long（高 32 位指纹，低 32 位计数），通过 CAS 整体更新，
+ * 随机数使用 ThreadLocalRandom，总数使用 LongAdder，避免多核下线程在桶锁和共享 Random 上排队
+ * 所有桶平铺在一块 BucketStorage 中，可选放在堆外，大 sketch 不会给老年代带来压力
+ * addAndCheckHot 路径直接对字符串或数字 id 计算哈希，在 key 已是热点或未达到 minCount 时不分配任何对象
+ */
+public class ConcurrentHeavyKeeper implements TopK {
+    private static final int LOOKUP_TABLE_SIZE = 256;
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+    // record 的返回标记，按引用比较，避免每次调用分配结果对象
+    private static final Item BELOW_MIN_COUNT = new Item(null, 0);
+    private static final Item NOT_HOT = new Item(null, 0);
+    private static final Item HOT = new Item(null, 0);
+    private final int k;
+    private final int width;
+    private final int depth;
+    private final double[] lookupTable;
+    // 平铺的桶存储，第 i 层第 j 列位于 i * width + j，元素为打包后的 指纹 + 计数
+    private final BucketStorage buckets;
+    private final IndexedMinHeap minHeap;
+    private final ExpelledQueue expelledQueue;
+    // 为 false 时不记录被挤出的 key，expelled() 始终为空
+    private final boolean trackExpelled;
+    private final LongAdder total;
+    private final int minCount;
+
+    public ConcurrentHeavyKeeper(int k, int width, int depth, double decay, int minCount) {
+        this(k, width, depth, decay, minCount, false);
+    }
+
+    /**
+     * @param offHeap 桶是否存放在堆外内存
+     */
+    public ConcurrentHeavyKeeper(int k, int width, int depth, double decay, int minCount, boolean offHeap) {
+        this(k, width, depth, decay, minCount, offHeap, true);
+    }
+
+    /**
+     * @param trackExpelled 是否记录被挤出的 key，没有消费方时关闭，避免队列写满后一直丢弃
+     */
+    public ConcurrentHeavyKeeper(int k, int width, int depth, double decay, int minCount, boolean offHeap,
+                                 boolean trackExpelled) {
+        this.k = k;
+        this.width = width;
+        this.depth = depth;
+        this.minCount = minCount;
+
+        this.lookupTable = new double[LOOKUP_TABLE_SIZE];
+        for (int i = 0; i < LOOKUP_TABLE_SIZE; i++) {
+            lookupTable[i] = Math.pow(decay, i);
+        }
+
+        this.buckets = BucketStorage.create(Math.multiplyExact(depth, width), offHeap);
+
+        this.minHeap = new IndexedMinHeap(k);
+        this.trackExpelled = trackExpelled;
+        this.expelledQueue = new ExpelledQueue(trackExpelled ? ExpelledQueue.DEFAULT_CAPACITY : 1);
+        this.total = new LongAdder();
+    }
+
+    @Override
+    public AddResult add(String key, int increment) {
+        Item result = record(KeyHashing.hash(key), key, 0, increment);
+        if (result == BELOW_MIN_COUNT) {
+            return new AddResult(null, false, null);
+        }
+        return new AddResult(result.key(), result != NOT_HOT, key);
+    }
+
+    @Override
+    public boolean addAndCheckHot(String key, int increment) {
+        return isHot(record(KeyHashing.hash(key), key, 0, increment));
+    }
+
+    @Override
+    public boolean addAndCheckHot(long id, int increment) {
+        return isHot(record(KeyHashing.hash(id), null, id, increment));
+    }
+
+    /**
+     * 更新 sketch 和 TopK 堆
+     * @param key 字符串 key，为 null 时表示数字 id，只在入堆时才转换为字符串
+     * @return BELOW_MIN_COUNT / NOT_HOT / HOT，或发生淘汰时被挤出的 Item
+     */
+    private Item record(long hash, String key, long id, int increment) {
+        int maxCount = updateBuckets(hash, increment);
+        total.add(increment);
+
+        if (maxCount < minCount) {
+            return BELOW_MIN_COUNT;
+        }
+
+        synchronized (minHeap) {
+            // 已在 TopK 中，原地更新计数
+            if (minHeap.updateIfPresent(hash, maxCount)) {
+                return HOT;
+            }
+            // 堆未满直接加入
+            if (!minHeap.isFull()) {
+                minHeap.insert(hash, key != null ? key : Long.toString(id), maxCount);
+                return HOT;
+            }
+            // 堆已满，计数不小于堆顶时挤掉堆顶
+            if (maxCount >= minHeap.peekCount()) {
+                Item expelled = minHeap.replaceMin(hash, key != null ? key : Long.toString(id), maxCount);
+                if (trackExpelled) {
+                    expelledQueue.offer(expelled);
+                }
+                return expelled;
+            }
+            return NOT_HOT;
+        }
+    }
+
+    /**
+     * 逐层更新桶，返回各层中当前 key 的最大计数
+     */
+    private int updateBuckets(long hash, int increment) {
+        int itemFingerprint = KeyHashing.fingerprint(hash);
+        int maxCount = 0;
+
+        for (int i = 0; i < depth; i++) {
+            // 每层使用独立种子计算列号
+            int bucketNumber = i * width + KeyHashing.column(hash, i, width);
+            // CAS 自旋，失败说明有其他线程改了这个桶，基于最新值重新计算
+            while (true) {
+                long current = buckets.get(bucketNumber);
+                int count = count(current);
+                int fingerprint = fingerprint(current);
+                long next;
+                int observed = 0;
+                if (count == 0) {
+                    // 空桶直接占用
+                    next = pack(itemFingerprint, increment);
+                    observed = increment;
+                } else if (fingerprint == itemFingerprint) {
+                    int newCount = saturatedAdd(count, increment);
+                    next = pack(fingerprint, newCount);
+                    observed = newCount;
+                } else {
+                    // 指纹不同，按概率衰减原有计数，衰减到 0 则由当前 key 接管
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    int decayed = count;
+                    int remaining = 0;
+                    for (int j = 0; j < increment; j++) {
+                        double decay = decayed < LOOKUP_TABLE_SIZE ?
+                                lookupTable[decayed] :
+                                lookupTable[LOOKUP_TABLE_SIZE - 1];
+                        if (random.nextDouble() < decay) {
+                            decayed--;
+                            if (decayed == 0) {
+                                remaining = increment - j;
+                                break;
+                            }
+                        }
+                    }
+                    if (decayed == 0) {
+                        next = pack(itemFingerprint, remaining);
+                        observed = remaining;
+                    } else {
+                        next = pack(fingerprint, decayed);
+                    }
+                }
+                if (next == current || buckets.compareAndSet(bucketNumber, current, next)) {
+                    maxCount = Math.max(maxCount, observed);
+                    break;
+                }
+            }
+        }
+        return maxCount;
+    }
+
+    private static boolean isHot(Item result) {
+        return result != BELOW_MIN_COUNT && result != NOT_HOT;
+    }
+
+    @Override
+    public List<Item> list() {
+        synchronized (minHeap) {
+            return minHeap.toList();
+        }
+    }
+
+    @Override
+    public int size() {
+        synchronized (minHeap) {
+            return minHeap.size();
+        }
+    }
+
+    @Override
+    public BlockingQueue<Item> expelled() {
+        return expelledQueue;
+    }
+
+    @Override
+    public long expelledDropCount() {
+        return expelledQueue.droppedCount();
+    }
+
+    @Override
+    public void fading() {
+        // 逐个桶 CAS 减半，不阻塞并发的 add
+        for (int i = 0, size = buckets.size(); i < size; i++) {
+            long current;
+            long next;
+            do {
+                current = buckets.get(i);
+                next = pack(fingerprint(current), count(current) >> 1);
+            } while (current != next && !buckets.compareAndSet(i, current, next));
+        }
+
+        synchronized (minHeap) {
+            minHeap.halveCounts();
+        }
+
+        // 取出当前总数后减半写回，期间并发累加的值不会丢失
+        long sum = total.sumThenReset();
+        total.add(sum >> 1);
+    }
+
+    @Override
+    public long total() {
+        return total.sum();
+    }
+
+    private static long pack(int fingerprint, int count) {
+        return ((long) fingerprint << 32) | (count & COUNT_MASK);
+    }
+
+    private static int fingerprint(long bucket) {
+        return (int) (bucket >>> 32);
+    }
+
+    private static int count(long bucket) {
+        return (int) bucket;
+    }
+
+    private static int saturatedAdd(int count, int increment) {
+        long sum = (long) count + increment;
+        return sum > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) sum;
+    }
+}
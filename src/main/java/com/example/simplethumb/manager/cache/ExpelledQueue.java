@@ -0,0 +1,37 @@
+package com.example.simplethumb.manager.cache;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 有界的被挤出 key 队列
+ * 队列满时丢弃最早的元素并计数，保留最近被挤出、与当前缓存内容最相关的 key，
+ * 不阻塞写入 TopK 的请求线程，内存占用有上限
+ */
+class ExpelledQueue extends ArrayBlockingQueue<Item> {
+    static final int DEFAULT_CAPACITY = 4096;
+
+    private final LongAdder dropped = new LongAdder();
+
+    ExpelledQueue(int capacity) {
+        super(capacity);
+    }
+
+    @Override
+    public boolean offer(Item item) {
+        while (!super.offer(item)) {
+            // 与消费方并发时队列可能已被取空，只有真正丢弃了元素才计数
+            if (super.poll() != null) {
+                dropped.increment();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 因队列已满被丢弃的元素数量
+     */
+    long droppedCount() {
+        return dropped.sum();
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.simplethumb.manager.cache;
+
+/**
+ * 热点统计的维度
+ * 本地缓存的条目是 "用户:博客" 的复合键，只按博客判断热点会把热门博客下每个用户的条目都放进缓存
+ */
+public enum HotKeyDimension {
+    /**
+     * 博客，Redis hash 中的 field
+     */
+    BLOG,
+    /**
+     * 用户，Redis hash 的 key
+     */
+    USER,
+    /**
+     * 复合键，即本地缓存中的一个条目
+     */
+    ENTRY;
+
+    int mask() {
+        return 1 << ordinal();
+    }
+}
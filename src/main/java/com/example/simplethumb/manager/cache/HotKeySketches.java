@@ -0,0 +1,214 @@
+package com.example.simplethumb.manager.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BinaryOperator;
+
+/**
+ * 按维度分开统计的热点 sketch
+ * 每次访问同时记录到博客、用户、复合键三个 sketch，得到一个 "哪些维度是热点" 的位掩码，
+ * 再按准入规则决定是否把复合键放入本地缓存：任意一条规则要求的维度全部为热点即准入
+ * 例如 {ENTRY} 表示条目本身被反复读取，{USER, BLOG} 表示活跃用户在看热门博客
+ */
+public class HotKeySketches implements AutoCloseable {
+    private final Map<HotKeyDimension, TopK> sketches;
+    private final int[] ruleMasks;
+
+    /**
+     * @param sketches 每个维度的 TopK，三个维度都需要提供
+     * @param admissionRules 准入规则，每条规则是一组必须同时为热点的维度
+     */
+    public HotKeySketches(Map<HotKeyDimension, TopK> sketches, Collection<Set<HotKeyDimension>> admissionRules) {
+        this.sketches = new EnumMap<>(sketches);
+        for (HotKeyDimension dimension : HotKeyDimension.values()) {
+            if (!this.sketches.containsKey(dimension)) {
+                throw new IllegalArgumentException("missing sketch for " + dimension);
+            }
+        }
+        this.ruleMasks = admissionRules.stream()
+                .mapToInt(rule -> rule.stream().mapToInt(HotKeyDimension::mask).reduce(0, (a, b) -> a | b))
+                .toArray();
+    }
+
+    public TopK get(HotKeyDimension dimension) {
+        return sketches.get(dimension);
+    }
+
+    /**
+     * 记录一次访问
+     * @return 当前为热点的维度位掩码
+     */
+    public int record(String userKey, String blogKey, String entryKey) {
+        return record(userKey, blogKey, entryKey, 1);
+    }
+
+    /**
+     * 一次记录多次访问，用于汇总在别处累计的命中次数
+     * @return 当前为热点的维度位掩码
+     */
+    public int record(String userKey, String blogKey, String entryKey, int increment) {
+        int hotMask = 0;
+        if (sketches.get(HotKeyDimension.BLOG).addAndCheckHot(blogKey, increment)) {
+            hotMask |= HotKeyDimension.BLOG.mask();
+        }
+        if (sketches.get(HotKeyDimension.USER).addAndCheckHot(userKey, increment)) {
+            hotMask |= HotKeyDimension.USER.mask();
+        }
+        if (sketches.get(HotKeyDimension.ENTRY).addAndCheckHot(entryKey, increment)) {
+            hotMask |= HotKeyDimension.ENTRY.mask();
+        }
+        return hotMask;
+    }
+
+    /**
+     * 记录同一用户对多篇博客的访问，用户维度只写入一次（次数为博客数），其余维度逐个写入
+     * @param entryKeyBuilder 由用户 key 和博客 key 构造复合键
+     * @return 与 blogKeys 一一对应的热点掩码
+     */
+    public int[] recordBatch(String userKey, List<String> blogKeys, BinaryOperator<String> entryKeyBuilder) {
+        int[] hotMasks = new int[blogKeys.size()];
+        if (blogKeys.isEmpty()) {
+            return hotMasks;
+        }
+        int userMask = sketches.get(HotKeyDimension.USER).addAndCheckHot(userKey, blogKeys.size()) ?
+                HotKeyDimension.USER.mask() : 0;
+        TopK blogs = sketches.get(HotKeyDimension.BLOG);
+        TopK entries = sketches.get(HotKeyDimension.ENTRY);
+        for (int i = 0; i < hotMasks.length; i++) {
+            String blogKey = blogKeys.get(i);
+            int hotMask = userMask;
+            if (blogs.addAndCheckHot(blogKey, 1)) {
+                hotMask |= HotKeyDimension.BLOG.mask();
+            }
+            if (entries.addAndCheckHot(entryKeyBuilder.apply(userKey, blogKey), 1)) {
+                hotMask |= HotKeyDimension.ENTRY.mask();
+            }
+            hotMasks[i] = hotMask;
+        }
+        return hotMasks;
+    }
+
+    /**
+     * 在热点掩码上追加一个维度，用于合并集群范围等外部的热点判断
+     */
+    public static int withHot(int hotMask, HotKeyDimension dimension) {
+        return hotMask | dimension.mask();
+    }
+
+    /**
+     * 热点掩码中某个维度是否为热点
+     */
+    public static boolean isHot(int hotMask, HotKeyDimension dimension) {
+        return (hotMask & dimension.mask()) != 0;
+    }
+
+    /**
+     * 热点掩码是否满足任意一条准入规则
+     */
+    public boolean admits(int hotMask) {
+        for (int rule : ruleMasks) {
+            if ((hotMask & rule) == rule) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 按当前各维度的 TopK 计算热点掩码，不记录访问
+     */
+    public int hotMask(Map<HotKeyDimension, Set<String>> hotKeys, String userKey, String blogKey, String entryKey) {
+        int hotMask = 0;
+        if (hotKeys.get(HotKeyDimension.BLOG).contains(blogKey)) {
+            hotMask |= HotKeyDimension.BLOG.mask();
+        }
+        if (hotKeys.get(HotKeyDimension.USER).contains(userKey)) {
+            hotMask |= HotKeyDimension.USER.mask();
+        }
+        if (hotKeys.get(HotKeyDimension.ENTRY).contains(entryKey)) {
+            hotMask |= HotKeyDimension.ENTRY.mask();
+        }
+        return hotMask;
+    }
+
+    /**
+     * 各维度当前 TopK 中的 key
+     */
+    public Map<HotKeyDimension, Set<String>> hotKeys() {
+        Map<HotKeyDimension, Set<String>> result = new EnumMap<>(HotKeyDimension.class);
+        sketches.forEach((dimension, sketch) -> {
+            Set<String> keys = new HashSet<>();
+            for (Item item : sketch.list()) {
+                keys.add(item.key());
+            }
+            result.put(dimension, keys);
+        });
+        return result;
+    }
+
+    /**
+     * 取出各维度被挤出 TopK 的 key，每个维度最多 maxPerDimension 个
+     */
+    public Map<HotKeyDimension, Set<String>> drainExpelled(int maxPerDimension) {
+        Map<HotKeyDimension, Set<String>> result = new EnumMap<>(HotKeyDimension.class);
+        List<Item> drained = new ArrayList<>();
+        sketches.forEach((dimension, sketch) -> {
+            drained.clear();
+            sketch.expelled().drainTo(drained, maxPerDimension);
+            Set<String> keys = new HashSet<>();
+            for (Item item : drained) {
+                keys.add(item.key());
+            }
+            result.put(dimension, keys);
+        });
+        return result;
+    }
+
+    /**
+     * 各维度当前 TopK 中的 key 及计数，用于保存重启预热快照
+     */
+    public Map<HotKeyDimension, List<Item>> snapshot() {
+        Map<HotKeyDimension, List<Item>> result = new EnumMap<>(HotKeyDimension.class);
+        sketches.forEach((dimension, sketch) -> result.put(dimension, sketch.list()));
+        return result;
+    }
+
+    /**
+     * 按快照中的计数写回各维度，重启后热点不必从 0 开始累计
+     */
+    public void restore(Map<HotKeyDimension, List<Item>> snapshot) {
+        snapshot.forEach((dimension, items) -> {
+            TopK sketch = sketches.get(dimension);
+            for (Item item : items) {
+                if (item.count() > 0) {
+                    sketch.add(item.key(), item.count());
+                }
+            }
+            if (sketch instanceof BufferedTopK buffered) {
+                buffered.flush();
+            }
+        });
+    }
+
+    public void fading() {
+        sketches.values().forEach(TopK::fading);
+    }
+
+    @Override
+    public void close() {
+        for (TopK sketch : sketches.values()) {
+            if (sketch instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+}
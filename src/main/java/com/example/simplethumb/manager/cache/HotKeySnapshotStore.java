@@ -0,0 +1,26 @@
+package com.example.simplethumb.manager.cache;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 集群热点快照存储
+ * 每个节点定期发布自己的本地热点快照，合并时读取所有存活节点的快照
+ */
+public interface HotKeySnapshotStore {
+
+    /**
+     * 发布本节点快照，覆盖上一次发布的内容
+     * @param nodeId 节点标识
+     * @param items 本地热点
+     * @param ttl 快照有效期，节点下线后过期自动失效
+     */
+    void publish(String nodeId, List<Item> items, Duration ttl);
+
+    /**
+     * 读取有效期内所有节点的快照
+     * @return 节点标识 -> 快照
+     */
+    Map<String, List<Item>> loadAll(Duration ttl);
+}
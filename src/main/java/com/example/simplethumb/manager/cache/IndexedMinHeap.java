@@ -0,0 +1,240 @@
+package com.example.simplethumb.manager.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 带索引的最小堆，用于维护 TopK 的候选集合
+ * 以 key 的 64 位哈希为索引（开放寻址表，哈希 -> 节点）提供 O(1) 的成员判断，节点记录自己在数组堆中的下标，
+ * 更新计数后原地上浮 / 下沉，整体 O(log k)，替代 PriorityQueue 的线性查找和 remove(Object)
+ * 查找和更新只用基本类型哈希，不需要 key 对象，也不分配内存；只有新 key 入堆时才需要 key 字符串
+ * 非线程安全，由调用方加锁
+ */
+class IndexedMinHeap {
+    private final int capacity;
+    private final Node[] heap;
+    private int size;
+    // 线性探测的哈希索引，mask = 表长 - 1
+    private final long[] tableHashes;
+    private final Node[] tableNodes;
+    private final int mask;
+
+    IndexedMinHeap(int capacity) {
+        this.capacity = capacity;
+        this.heap = new Node[capacity];
+        this.size = 0;
+        // 负载因子不超过 0.5
+        int tableSize = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;
+        this.tableHashes = new long[tableSize];
+        this.tableNodes = new Node[tableSize];
+        this.mask = tableSize - 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isFull() {
+        return size >= capacity;
+    }
+
+    boolean contains(long hash) {
+        return find(hash) != null;
+    }
+
+    /**
+     * 堆顶（最小）计数，堆为空时返回 0
+     */
+    long peekCount() {
+        return size == 0 ? 0 : heap[0].count;
+    }
+
+    /**
+     * key 已在堆中则更新计数并调整位置
+     * @return key 是否在堆中
+     */
+    boolean updateIfPresent(long hash, long count) {
+        Node node = find(hash);
+        if (node == null) {
+            return false;
+        }
+        long old = node.count;
+        node.count = count;
+        if (count < old) {
+            siftUp(node.index);
+        } else if (count > old) {
+            siftDown(node.index);
+        }
+        return true;
+    }
+
+    /**
+     * 堆未满时插入新 key
+     */
+    void insert(long hash, String key, long count) {
+        if (isFull()) {
+            throw new IllegalStateException("heap is full");
+        }
+        Node node = new Node(hash, key, count, size);
+        heap[size++] = node;
+        put(node);
+        siftUp(node.index);
+    }
+
+    /**
+     * 用新 key 替换堆顶，复用堆顶节点
+     * @return 被挤出的 key 及其计数
+     */
+    Item replaceMin(long hash, String key, long count) {
+        return replaceMin(hash, key, count, 0);
+    }
+
+    /**
+     * 用新 key 替换堆顶，被挤出 key 的计数与 toList(shift) 一样先右移 shift 位再截断为 int
+     */
+    Item replaceMin(long hash, String key, long count, int shift) {
+        Node min = heap[0];
+        Item expelled = new Item(min.key, toInt(min.count >> shift));
+        remove(min.hash);
+        min.hash = hash;
+        min.key = key;
+        min.count = count;
+        put(min);
+        siftDown(0);
+        return expelled;
+    }
+
+    /**
+     * 所有计数右移一位，整体同比例缩小不改变堆序，无需重建
+     */
+    void halveCounts() {
+        shiftCounts(1);
+    }
+
+    /**
+     * 所有计数右移 bits 位，同样不改变堆序
+     */
+    void shiftCounts(int bits) {
+        for (int i = 0; i < size; i++) {
+            heap[i].count >>= bits;
+        }
+    }
+
+    /**
+     * 按计数降序导出
+     */
+    List<Item> toList() {
+        return toList(0);
+    }
+
+    /**
+     * 计数右移 shift 位后按降序导出，不修改堆中的计数
+     */
+    List<Item> toList(int shift) {
+        List<Item> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(new Item(heap[i].key, toInt(heap[i].count >> shift)));
+        }
+        result.sort((a, b) -> Integer.compare(b.count(), a.count()));
+        return result;
+    }
+
+    private Node find(long hash) {
+        for (int i = slot(hash); tableNodes[i] != null; i = (i + 1) & mask) {
+            if (tableHashes[i] == hash) {
+                return tableNodes[i];
+            }
+        }
+        return null;
+    }
+
+    private void put(Node node) {
+        int i = slot(node.hash);
+        while (tableNodes[i] != null) {
+            i = (i + 1) & mask;
+        }
+        tableHashes[i] = node.hash;
+        tableNodes[i] = node;
+    }
+
+    /**
+     * 线性探测的删除：把后续同一探测链上的元素前移填补空位，不使用墓碑
+     */
+    private void remove(long hash) {
+        int i = slot(hash);
+        while (tableHashes[i] != hash || tableNodes[i] == null) {
+            i = (i + 1) & mask;
+        }
+        int hole = i;
+        for (int j = (hole + 1) & mask; tableNodes[j] != null; j = (j + 1) & mask) {
+            int home = slot(tableHashes[j]);
+            // home 不在 (hole, j] 区间内，说明该元素可以前移到 hole
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                tableHashes[hole] = tableHashes[j];
+                tableNodes[hole] = tableNodes[j];
+                hole = j;
+            }
+        }
+        tableNodes[hole] = null;
+        tableHashes[hole] = 0;
+    }
+
+    private int slot(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void siftUp(int i) {
+        Node node = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            Node p = heap[parent];
+            if (p.count <= node.count) {
+                break;
+            }
+            place(p, i);
+            i = parent;
+        }
+        place(node, i);
+    }
+
+    private void siftDown(int i) {
+        Node node = heap[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && heap[right].count < heap[child].count) {
+                child = right;
+            }
+            if (node.count <= heap[child].count) {
+                break;
+            }
+            place(heap[child], i);
+            i = child;
+        }
+        place(node, i);
+    }
+
+    private void place(Node node, int i) {
+        heap[i] = node;
+        node.index = i;
+    }
+
+    private static int toInt(long count) {
+        return count > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) count;
+    }
+
+    private static final class Node {
+        long hash;
+        String key;
+        long count;
+        int index;
+
+        Node(long hash, String key, long count, int index) {
+            this.hash = hash;
+            this.key = key;
+            this.count = count;
+            this.index = index;
+        }
+    }
+}
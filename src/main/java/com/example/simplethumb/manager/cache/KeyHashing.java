@@ -0,0 +1,75 @@
+package com.example.simplethumb.manager.cache;
+
+/**
+ * 热点检测用的 64 位哈希
+ * 直接遍历 CharSequence 的字符计算，不再 getBytes() 拷贝；数字 id 按其十进制字符串的哈希计算，
+ * 保证 hash(123L) == hash("123")，两种 key 形式统计到同一个桶里
+ * 每一层使用不同种子对基础哈希再混合一次，各层落到相互独立的列上
+ */
+final class KeyHashing {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long GOLDEN = 0x9e3779b97f4a7c15L;
+
+    private KeyHashing() {
+    }
+
+    static long hash(CharSequence key) {
+        long h = FNV_OFFSET;
+        for (int i = 0, len = key.length(); i < len; i++) {
+            h = step(h, key.charAt(i));
+        }
+        return mix(h);
+    }
+
+    static long hash(long id) {
+        long h = FNV_OFFSET;
+        if (id < 0) {
+            h = step(h, '-');
+        }
+        // 统一按非正数处理，避免 Long.MIN_VALUE 取绝对值溢出
+        long n = id < 0 ? id : -id;
+        long divisor = 1;
+        while (n / divisor <= -10) {
+            divisor *= 10;
+        }
+        while (divisor > 0) {
+            int digit = (int) -((n / divisor) % 10);
+            h = step(h, (char) ('0' + digit));
+            divisor /= 10;
+        }
+        return mix(h);
+    }
+
+    /**
+     * 第 row 层的列号，范围 [0, width)
+     */
+    static int column(long hash, int row, int width) {
+        long h = mix(hash + (row + 1) * GOLDEN);
+        // 高 32 位乘 width 取高位，代替取模
+        return (int) (((h >>> 32) * width) >>> 32);
+    }
+
+    /**
+     * 32 位指纹，与列号使用不同的位
+     */
+    static int fingerprint(long hash) {
+        return (int) hash;
+    }
+
+    private static long step(long h, char c) {
+        return (h ^ c) * FNV_PRIME;
+    }
+
+    /**
+     * MurmurHash3 fmix64，让低质量的输入位充分雪崩
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.simplethumb.manager.cache;
+
+import java.util.Arrays;
+
+/**
+ * 基本类型 long 的开放寻址集合，用于缓存一个用户点赞过的全部博客 id
+ * 元素直接存放在 long 数组中（负载因子 0.25 ~ 0.5，每个元素 16 ~ 32 字节），
+ * 而按 "thumb:{userId}:{blogId}" 字符串缓存时每个条目需要键字符串、装箱值和缓存节点，约 150 字节
+ * 构造完成后不再修改，with / without 返回新集合（写时复制），读取方无需加锁
+ */
+final class LongHashSet {
+    // 0 作为空槽标记，元素 0 单独记录
+    private final long[] table;
+    private final int mask;
+    private final boolean containsZero;
+    private final int size;
+
+    private LongHashSet(long[] table, boolean containsZero, int size) {
+        this.table = table;
+        this.mask = table.length - 1;
+        this.containsZero = containsZero;
+        this.size = size;
+    }
+
+    static LongHashSet of(long... values) {
+        long[] table = new long[tableSizeFor(values.length)];
+        int mask = table.length - 1;
+        boolean containsZero = false;
+        int size = 0;
+        for (long value : values) {
+            if (value == 0) {
+                if (!containsZero) {
+                    containsZero = true;
+                    size++;
+                }
+            } else if (insert(table, mask, value)) {
+                size++;
+            }
+        }
+        return new LongHashSet(table, containsZero, size);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(long value) {
+        if (value == 0) {
+            return containsZero;
+        }
+        for (int i = slot(value, mask); table[i] != 0; i = (i + 1) & mask) {
+            if (table[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 加入一个元素后的新集合
+     */
+    LongHashSet with(long value) {
+        if (contains(value)) {
+            return this;
+        }
+        if (value == 0) {
+            return new LongHashSet(table, true, size + 1);
+        }
+        long[] copy = tableSizeFor(size + 1) > table.length ? rehash(tableSizeFor(size + 1)) : table.clone();
+        insert(copy, copy.length - 1, value);
+        return new LongHashSet(copy, containsZero, size + 1);
+    }
+
+    /**
+     * 删除一个元素后的新集合
+     */
+    LongHashSet without(long value) {
+        if (!contains(value)) {
+            return this;
+        }
+        if (value == 0) {
+            return new LongHashSet(table, false, size - 1);
+        }
+        long[] copy = table.clone();
+        int i = slot(value, mask);
+        while (copy[i] != value) {
+            i = (i + 1) & mask;
+        }
+        // 线性探测的删除：把后续同一探测链上的元素前移填补空位
+        int hole = i;
+        for (int j = (hole + 1) & mask; copy[j] != 0; j = (j + 1) & mask) {
+            int home = slot(copy[j], mask);
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                copy[hole] = copy[j];
+                hole = j;
+            }
+        }
+        copy[hole] = 0;
+        return new LongHashSet(copy, containsZero, size - 1);
+    }
+
+    /**
+     * 近似占用的堆内存字节数，用作缓存权重
+     */
+    long memoryBytes() {
+        return 16L + 8L * table.length;
+    }
+
+    private long[] rehash(int tableSize) {
+        long[] copy = new long[tableSize];
+        for (long value : table) {
+            if (value != 0) {
+                insert(copy, tableSize - 1, value);
+            }
+        }
+        return copy;
+    }
+
+    private static boolean insert(long[] table, int mask, long value) {
+        int i = slot(value, mask);
+        while (table[i] != 0) {
+            if (table[i] == value) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        table[i] = value;
+        return true;
+    }
+
+    private static int slot(long value, int mask) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private static int tableSizeFor(int expected) {
+        // 负载因子不超过 0.5，至少 2 个槽位，保证总有空槽结束探测
+        return Integer.highestOneBit(Math.max(2, expected) * 2 - 1) << 1;
+    }
+
+    @Override
+    public String toString() {
+        long[] values = new long[size];
+        int n = 0;
+        if (containsZero) {
+            values[n++] = 0;
+        }
+        for (long value : table) {
+            if (value != 0) {
+                values[n++] = value;
+            }
+        }
+        Arrays.sort(values);
+        return Arrays.toString(values);
+    }
+}
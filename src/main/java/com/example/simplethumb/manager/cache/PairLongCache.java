@@ -0,0 +1,142 @@
+package com.example.simplethumb.manager.cache;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 以 (userId, blogId) 两个 long 为键、long 为值的直接映射缓存，放在 CacheManager 本地缓存之前
+ * 每个键只对应一个槽位，冲突时直接覆盖；读取使用分段 StampedLock 的乐观读，命中时不加锁、不分配对象
+ * 命中次数累加在槽位上（允许并发丢失少量计数），由后台定期取出汇总到热点统计，请求线程不再拼接字符串 key
+ */
+final class PairLongCache {
+    // 未命中时返回的值，不会是合法的点赞记录 id
+    static final long MISSING = Long.MIN_VALUE;
+    private static final int LOCK_STRIPES = 64;
+    private final long[] userIds;
+    private final long[] blogIds;
+    private final long[] values;
+    private final boolean[] used;
+    private final int[] hits;
+    private final StampedLock[] locks = new StampedLock[LOCK_STRIPES];
+    private final int mask;
+
+    /**
+     * @param capacity 槽位数，向上取整为 2 的幂
+     */
+    PairLongCache(int capacity) {
+        int slots = Integer.highestOneBit(Math.max(LOCK_STRIPES, capacity) - 1) << 1;
+        this.userIds = new long[slots];
+        this.blogIds = new long[slots];
+        this.values = new long[slots];
+        this.used = new boolean[slots];
+        this.hits = new int[slots];
+        this.mask = slots - 1;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new StampedLock();
+        }
+    }
+
+    /**
+     * @return 缓存的值，未命中返回 MISSING
+     */
+    long get(long userId, long blogId) {
+        int slot = slot(userId, blogId);
+        StampedLock lock = lockOf(slot);
+        long stamp = lock.tryOptimisticRead();
+        boolean match = used[slot] && userIds[slot] == userId && blogIds[slot] == blogId;
+        long value = values[slot];
+        if (!lock.validate(stamp)) {
+            // 读取期间有写入，退回读锁重新读取
+            stamp = lock.readLock();
+            try {
+                match = used[slot] && userIds[slot] == userId && blogIds[slot] == blogId;
+                value = values[slot];
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        if (!match) {
+            return MISSING;
+        }
+        hits[slot]++;
+        return value;
+    }
+
+    void put(long userId, long blogId, long value) {
+        int slot = slot(userId, blogId);
+        StampedLock lock = lockOf(slot);
+        long stamp = lock.writeLock();
+        try {
+            if (!used[slot] || userIds[slot] != userId || blogIds[slot] != blogId) {
+                hits[slot] = 0;
+            }
+            userIds[slot] = userId;
+            blogIds[slot] = blogId;
+            values[slot] = value;
+            used[slot] = true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 槽位中是该键时清空
+     */
+    void invalidate(long userId, long blogId) {
+        int slot = slot(userId, blogId);
+        StampedLock lock = lockOf(slot);
+        long stamp = lock.writeLock();
+        try {
+            if (used[slot] && userIds[slot] == userId && blogIds[slot] == blogId) {
+                used[slot] = false;
+                hits[slot] = 0;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 取出各槽位累计的命中次数并清零
+     */
+    void drainHits(HitConsumer consumer) {
+        for (int slot = 0; slot <= mask; slot++) {
+            if (hits[slot] == 0) {
+                continue;
+            }
+            long userId;
+            long blogId;
+            int count;
+            StampedLock lock = lockOf(slot);
+            long stamp = lock.writeLock();
+            try {
+                if (!used[slot]) {
+                    hits[slot] = 0;
+                    continue;
+                }
+                userId = userIds[slot];
+                blogId = blogIds[slot];
+                count = hits[slot];
+                hits[slot] = 0;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            if (count > 0) {
+                consumer.accept(userId, blogId, count);
+            }
+        }
+    }
+
+    private StampedLock lockOf(int slot) {
+        return locks[slot & (LOCK_STRIPES - 1)];
+    }
+
+    private int slot(long userId, long blogId) {
+        long h = (userId * 0x9E3779B97F4A7C15L) ^ blogId;
+        h *= 0xff51afd7ed558ccdL;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    interface HitConsumer {
+        void accept(long userId, long blogId, int hits);
+    }
+}
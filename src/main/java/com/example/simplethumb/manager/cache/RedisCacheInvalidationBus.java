@@ -0,0 +1,56 @@
+package com.example.simplethumb.manager.cache;
+
+import cn.hutool.core.util.IdUtil;
+import com.example.simplethumb.constant.CacheConstant;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * 基于 Redis pub/sub 的本地缓存失效广播
+ * 消息直接以 "节点标识|复合键" 的字节发布，不经过 RedisTemplate 的 JSON 序列化，收到自己发出的消息时忽略
+ */
+@Component
+@Slf4j
+public class RedisCacheInvalidationBus implements CacheInvalidationBus {
+    private static final byte[] CHANNEL = CacheConstant.INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8);
+    private static final char SEPARATOR = '|';
+
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName() + ":" + IdUtil.fastSimpleUUID().substring(0, 8);
+
+    @Resource
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Override
+    public void publish(String key) {
+        byte[] message = (nodeId + SEPARATOR + key).getBytes(StandardCharsets.UTF_8);
+        redisTemplate.execute(connection -> connection.publish(CHANNEL, message), true);
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) {
+        redisMessageListenerContainer.addMessageListener((message, pattern) -> {
+            String body = new String(message.getBody(), StandardCharsets.UTF_8);
+            int separator = body.indexOf(SEPARATOR);
+            if (separator < 0) {
+                log.warn("无法解析的缓存失效消息: {}", body);
+                return;
+            }
+            // 本节点写入时已经处理过本地缓存
+            if (separator == nodeId.length() && body.startsWith(nodeId)) {
+                return;
+            }
+            listener.accept(body.substring(separator + 1));
+        }, new ChannelTopic(CacheConstant.INVALIDATION_CHANNEL));
+    }
+}
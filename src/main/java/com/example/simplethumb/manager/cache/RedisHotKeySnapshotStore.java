@@ -0,0 +1,66 @@
+package com.example.simplethumb.manager.cache;
+
+import com.example.simplethumb.constant.HotKeyConstant;
+import jakarta.annotation.Resource;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 基于 Redis 的集群热点快照存储
+ * 每个节点一个 hash（hotkey:node:{nodeId}），活跃节点登记在 zset（hotkey:nodes）中
+ * 新快照先写入临时 key，再 RENAME 覆盖原快照，读取方只会看到完整的旧快照或新快照
+ */
+@Component
+public class RedisHotKeySnapshotStore implements HotKeySnapshotStore {
+
+    @Resource
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Override
+    public void publish(String nodeId, List<Item> items, Duration ttl) {
+        String snapshotKey = HotKeyConstant.NODE_SNAPSHOT_KEY_PREFIX + nodeId;
+        Map<String, Object> fields = new HashMap<>(items.size() * 4 / 3 + 1);
+        for (Item item : items) {
+            fields.put(item.key(), item.count());
+        }
+        if (fields.isEmpty()) {
+            redisTemplate.delete(snapshotKey);
+        } else {
+            // 临时 key 以快照 key 作为 hash tag，集群模式下两者在同一个槽位，RENAME 才能执行
+            String tempKey = "{" + snapshotKey + "}:tmp";
+            redisTemplate.delete(tempKey);
+            redisTemplate.opsForHash().putAll(tempKey, fields);
+            redisTemplate.expire(tempKey, ttl);
+            // 原子地整体替换上一次的快照，过期时间随临时 key 一起转移
+            redisTemplate.rename(tempKey, snapshotKey);
+        }
+        redisTemplate.opsForZSet().add(HotKeyConstant.NODES_KEY, nodeId, System.currentTimeMillis());
+    }
+
+    @Override
+    public Map<String, List<Item>> loadAll(Duration ttl) {
+        long deadline = System.currentTimeMillis() - ttl.toMillis();
+        // 清理已经下线的节点
+        redisTemplate.opsForZSet().removeRangeByScore(HotKeyConstant.NODES_KEY, 0, deadline);
+        Set<Object> nodeIds = redisTemplate.opsForZSet().rangeByScore(HotKeyConstant.NODES_KEY, deadline, Double.MAX_VALUE);
+        Map<String, List<Item>> snapshots = new HashMap<>();
+        if (nodeIds == null) {
+            return snapshots;
+        }
+        for (Object nodeId : nodeIds) {
+            Map<Object, Object> entries = redisTemplate.opsForHash()
+                    .entries(HotKeyConstant.NODE_SNAPSHOT_KEY_PREFIX + nodeId);
+            List<Item> items = new ArrayList<>(entries.size());
+            entries.forEach((key, count) -> items.add(new Item(key.toString(), Integer.parseInt(count.toString()))));
+            snapshots.put(nodeId.toString(), items);
+        }
+        return snapshots;
+    }
+}
@@ -6,8 +6,51 @@ import java.util.concurrent.BlockingQueue;
 
 public interface TopK {
     AddResult add(String key, int increment);
+
+    /**
+     * 记录访问并返回 key 当前是否在 TopK 中，不创建 AddResult，适合只关心是否为热点的调用方
+     */
+    default boolean addAndCheckHot(String key, int increment) {
+        return add(key, increment).isHotKey();
+    }
+
+    /**
+     * 以数字 id 作为 key，与 addAndCheckHot(String.valueOf(id), increment) 等价
+     */
+    default boolean addAndCheckHot(long id, int increment) {
+        return addAndCheckHot(Long.toString(id), increment);
+    }
+
+    /**
+     * key 当前的访问频率估计，不记录访问；默认实现只能回答 TopK 中的 key，其余返回 0
+     */
+    default long estimate(String key) {
+        for (Item item : list()) {
+            if (item.key().equals(key)) {
+                return item.count();
+            }
+        }
+        return 0;
+    }
+
     List<Item> list();
+
+    /**
+     * TopK 中当前的 key 数量，实现应在 O(1) 内返回，供指标定期读取；默认实现复制整个列表
+     */
+    default int size() {
+        return list().size();
+    }
+
     BlockingQueue<Item> expelled();
+
+    /**
+     * 被挤出队列已满而丢弃的 key 数量，队列无界的实现返回 0
+     */
+    default long expelledDropCount() {
+        return 0;
+    }
+
     void fading();
     long total();
-}
\ No newline at end of file
+}
@@ -0,0 +1,95 @@
+package com.example.simplethumb.manager.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 重启预热用的快照：各维度 TopK 中的热点及计数，以及本地缓存中的复合键
+ * 只保存键不保存值，停机期间其他节点的写入不会被旧值覆盖，启动后按键重新从 Redis 读取
+ * 紧凑二进制格式：魔数、格式版本、保存时间，之后依次是各维度的热点和复合键，字符串使用 modified UTF-8
+ */
+record WarmSnapshot(long savedAtMillis, Map<HotKeyDimension, List<Item>> hotKeys, List<String> entryKeys) {
+    private static final int MAGIC = 0x54484B53;
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * 先写临时文件再原子替换，停机过程中被打断也不会留下半个快照
+     */
+    void writeTo(Path path) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        // 临时文件名唯一，多个进程同时保存同一个快照时不会写入同一个临时文件
+        Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            write(temp);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void write(Path temp) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(savedAtMillis);
+            out.writeInt(hotKeys.size());
+            for (Map.Entry<HotKeyDimension, List<Item>> dimension : hotKeys.entrySet()) {
+                out.writeUTF(dimension.getKey().name());
+                out.writeInt(dimension.getValue().size());
+                for (Item item : dimension.getValue()) {
+                    out.writeUTF(item.key());
+                    out.writeInt(item.count());
+                }
+            }
+            out.writeInt(entryKeys.size());
+            for (String entryKey : entryKeys) {
+                out.writeUTF(entryKey);
+            }
+        }
+    }
+
+    /**
+     * @throws IOException 文件不存在、格式或版本不符
+     */
+    static WarmSnapshot readFrom(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("unrecognized warm snapshot: " + path);
+            }
+            long savedAtMillis = in.readLong();
+            Map<HotKeyDimension, List<Item>> hotKeys = new EnumMap<>(HotKeyDimension.class);
+            int dimensions = in.readInt();
+            for (int d = 0; d < dimensions; d++) {
+                HotKeyDimension dimension;
+                try {
+                    dimension = HotKeyDimension.valueOf(in.readUTF());
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("unknown dimension in warm snapshot: " + path, e);
+                }
+                int size = in.readInt();
+                List<Item> items = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    items.add(new Item(in.readUTF(), in.readInt()));
+                }
+                hotKeys.put(dimension, items);
+            }
+            int size = in.readInt();
+            List<String> entryKeys = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                entryKeys.add(in.readUTF());
+            }
+            return new WarmSnapshot(savedAtMillis, hotKeys, entryKeys);
+        }
+    }
+}
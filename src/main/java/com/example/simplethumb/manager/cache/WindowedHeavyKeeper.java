@@ -0,0 +1,341 @@
+package com.example.simplethumb.manager.cache;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 按时间窗口衰减的 HeavyKeeper
+ * 时间按 epoch 切分，每经过一个 epoch 计数减半，统计的是 "最近若干个 epoch 内" 的热点
+ * 衰减是惰性的：每个桶记录最后写入时的 epoch，下次访问时按经过的 epoch 数一次性右移，不再定时锁住全部桶统一减半
+ * 堆中保存以 baseEpoch 为基准放大后的分数（count << (epoch - baseEpoch)），同比例衰减不改变堆序，
+ * 每 REBASE_EPOCHS 个 epoch 才把基准前移一次，代价为 O(k)
+ * fading() 每次只归一化 1 / SWEEP_ROUNDS 的桶，保证每个桶在 epoch 标记（8 位）回绕之前都被访问过
+ */
+public class WindowedHeavyKeeper implements TopK {
+    private static final int LOOKUP_TABLE_SIZE = 256;
+    private static final int COUNT_BITS = 24;
+    private static final int MAX_COUNT = (1 << COUNT_BITS) - 1;
+    private static final int TAG_MASK = 0xFF;
+    // 堆分数基准最多落后的 epoch 数，保证 count << shift 不溢出
+    private static final int REBASE_EPOCHS = 32;
+    // fading 多少次扫完一轮全部桶
+    private static final int SWEEP_ROUNDS = 16;
+    private static final Item BELOW_MIN_COUNT = new Item(null, 0);
+    private static final Item NOT_HOT = new Item(null, 0);
+    private static final Item HOT = new Item(null, 0);
+    private final int width;
+    private final int depth;
+    private final double[] lookupTable;
+    // 每个桶：高 32 位指纹，中间 8 位 epoch 标记，低 24 位计数
+    private final BucketStorage buckets;
+    private final IndexedMinHeap minHeap;
+    private final ExpelledQueue expelledQueue;
+    private final LongAdder total;
+    private final int minCount;
+    private final long epochNanos;
+    private final LongSupplier nanoClock;
+    private final long startNanos;
+    private final AtomicLong lastEpoch = new AtomicLong();
+    // 堆分数的基准 epoch，只在持有 minHeap 锁时读写
+    private long baseEpoch;
+    // 增量清扫的位置，只在 fading 中使用
+    private int sweepCursor;
+
+    /**
+     * @param epoch 每个 epoch 的长度，计数每经过一个 epoch 减半
+     */
+    public WindowedHeavyKeeper(int k, int width, int depth, double decay, int minCount, Duration epoch) {
+        this(k, width, depth, decay, minCount, epoch, false, System::nanoTime);
+    }
+
+    public WindowedHeavyKeeper(int k, int width, int depth, double decay, int minCount, Duration epoch, boolean offHeap) {
+        this(k, width, depth, decay, minCount, epoch, offHeap, System::nanoTime);
+    }
+
+    WindowedHeavyKeeper(int k, int width, int depth, double decay, int minCount, Duration epoch,
+                        boolean offHeap, LongSupplier nanoClock) {
+        this.width = width;
+        this.depth = depth;
+        this.minCount = minCount;
+        this.lookupTable = new double[LOOKUP_TABLE_SIZE];
+        for (int i = 0; i < LOOKUP_TABLE_SIZE; i++) {
+            lookupTable[i] = Math.pow(decay, i);
+        }
+        this.buckets = BucketStorage.create(Math.multiplyExact(depth, width), offHeap);
+        this.minHeap = new IndexedMinHeap(k);
+        this.expelledQueue = new ExpelledQueue(ExpelledQueue.DEFAULT_CAPACITY);
+        this.total = new LongAdder();
+        this.epochNanos = epoch.toNanos();
+        this.nanoClock = nanoClock;
+        this.startNanos = nanoClock.getAsLong();
+    }
+
+    @Override
+    public AddResult add(String key, int increment) {
+        Item result = record(KeyHashing.hash(key), key, 0, increment);
+        if (result == BELOW_MIN_COUNT) {
+            return new AddResult(null, false, null);
+        }
+        return new AddResult(result.key(), result != NOT_HOT, key);
+    }
+
+    @Override
+    public boolean addAndCheckHot(String key, int increment) {
+        return isHot(record(KeyHashing.hash(key), key, 0, increment));
+    }
+
+    @Override
+    public boolean addAndCheckHot(long id, int increment) {
+        return isHot(record(KeyHashing.hash(id), null, id, increment));
+    }
+
+    @Override
+    public List<Item> list() {
+        long epoch = advanceEpoch();
+        synchronized (minHeap) {
+            rebaseIfNeeded(epoch);
+            // 分数换算回当前 epoch 的计数，已经衰减到 0 的不再返回
+            return minHeap.toList((int) Math.max(0, epoch - baseEpoch)).stream()
+                    .filter(item -> item.count() > 0)
+                    .toList();
+        }
+    }
+
+    /**
+     * 堆中的 key 数量，包括已衰减到 0、尚未被替换的 key，不做 list 的换算和过滤
+     */
+    @Override
+    public int size() {
+        synchronized (minHeap) {
+            return minHeap.size();
+        }
+    }
+
+    /**
+     * 指纹匹配的桶中衰减到当前 epoch 后的最大计数，与 record 的判断口径一致；不在 TopK 中的 key 同样可以估计
+     */
+    @Override
+    public long estimate(String key) {
+        long epoch = advanceEpoch();
+        int tag = (int) (epoch & TAG_MASK);
+        long hash = KeyHashing.hash(key);
+        int itemFingerprint = KeyHashing.fingerprint(hash);
+        int maxCount = 0;
+        for (int i = 0; i < depth; i++) {
+            long bucket = buckets.get(i * width + KeyHashing.column(hash, i, width));
+            int count = count(bucket);
+            if (count == 0 || fingerprint(bucket) != itemFingerprint) {
+                continue;
+            }
+            int elapsed = (tag - tag(bucket)) & TAG_MASK;
+            maxCount = Math.max(maxCount, elapsed > TAG_MASK / 2 ? count : decayByEpochs(count, elapsed));
+        }
+        return maxCount;
+    }
+
+    @Override
+    public BlockingQueue<Item> expelled() {
+        return expelledQueue;
+    }
+
+    @Override
+    public long expelledDropCount() {
+        return expelledQueue.droppedCount();
+    }
+
+    /**
+     * 衰减由时间驱动，这里只做增量维护：归一化一部分桶，并推进总数和堆的基准
+     */
+    @Override
+    public synchronized void fading() {
+        long epoch = advanceEpoch();
+        int tag = (int) (epoch & TAG_MASK);
+        int size = buckets.size();
+        int chunk = (size + SWEEP_ROUNDS - 1) / SWEEP_ROUNDS;
+        int end = Math.min(size, sweepCursor + chunk);
+        for (int b = sweepCursor; b < end; b++) {
+            normalize(b, tag);
+        }
+        sweepCursor = end == size ? 0 : end;
+        synchronized (minHeap) {
+            rebaseIfNeeded(epoch);
+        }
+    }
+
+    @Override
+    public long total() {
+        advanceEpoch();
+        return total.sum();
+    }
+
+    private Item record(long hash, String key, long id, int increment) {
+        long epoch = advanceEpoch();
+        int maxCount = updateBuckets(hash, increment, (int) (epoch & TAG_MASK));
+        total.add(increment);
+
+        if (maxCount < minCount) {
+            return BELOW_MIN_COUNT;
+        }
+
+        synchronized (minHeap) {
+            rebaseIfNeeded(epoch);
+            long score = scoreOf(maxCount, epoch);
+            if (minHeap.updateIfPresent(hash, score)) {
+                return HOT;
+            }
+            if (!minHeap.isFull()) {
+                minHeap.insert(hash, key != null ? key : Long.toString(id), score);
+                return HOT;
+            }
+            if (score >= minHeap.peekCount()) {
+                // 分数可能超过 int 范围，先换算回当前 epoch 的计数再截断
+                Item expelled = minHeap.replaceMin(hash, key != null ? key : Long.toString(id), score,
+                        (int) Math.max(0, epoch - baseEpoch));
+                expelledQueue.offer(expelled);
+                return expelled;
+            }
+            return NOT_HOT;
+        }
+    }
+
+    private int updateBuckets(long hash, int increment, int tag) {
+        int itemFingerprint = KeyHashing.fingerprint(hash);
+        int maxCount = 0;
+
+        for (int i = 0; i < depth; i++) {
+            int bucketNumber = i * width + KeyHashing.column(hash, i, width);
+            while (true) {
+                long current = buckets.get(bucketNumber);
+                int fingerprint = fingerprint(current);
+                int bucketTag = tag(current);
+                int count = count(current);
+                int writeTag = tag;
+                if (count != 0) {
+                    int elapsed = (tag - bucketTag) & TAG_MASK;
+                    if (elapsed > TAG_MASK / 2) {
+                        // 其他线程已用更新的 epoch 写过该桶，沿用它的标记
+                        writeTag = bucketTag;
+                    } else {
+                        count = decayByEpochs(count, elapsed);
+                    }
+                }
+                long next;
+                int observed = 0;
+                if (count == 0) {
+                    int newCount = Math.min(increment, MAX_COUNT);
+                    next = pack(itemFingerprint, writeTag, newCount);
+                    observed = newCount;
+                } else if (fingerprint == itemFingerprint) {
+                    int newCount = (int) Math.min((long) count + increment, MAX_COUNT);
+                    next = pack(fingerprint, writeTag, newCount);
+                    observed = newCount;
+                } else {
+                    // 指纹不同，按概率衰减原有计数，衰减到 0 则由当前 key 接管
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    int decayed = count;
+                    int remaining = 0;
+                    for (int j = 0; j < increment; j++) {
+                        double decay = decayed < LOOKUP_TABLE_SIZE ?
+                                lookupTable[decayed] :
+                                lookupTable[LOOKUP_TABLE_SIZE - 1];
+                        if (random.nextDouble() < decay) {
+                            decayed--;
+                            if (decayed == 0) {
+                                remaining = increment - j;
+                                break;
+                            }
+                        }
+                    }
+                    if (decayed == 0) {
+                        next = pack(itemFingerprint, writeTag, Math.min(remaining, MAX_COUNT));
+                        observed = Math.min(remaining, MAX_COUNT);
+                    } else {
+                        next = pack(fingerprint, writeTag, decayed);
+                    }
+                }
+                if (next == current || buckets.compareAndSet(bucketNumber, current, next)) {
+                    maxCount = Math.max(maxCount, observed);
+                    break;
+                }
+            }
+        }
+        return maxCount;
+    }
+
+    /**
+     * 把一个桶的计数衰减到当前 epoch
+     */
+    private void normalize(int bucketNumber, int tag) {
+        while (true) {
+            long current = buckets.get(bucketNumber);
+            int count = count(current);
+            int elapsed = (tag - tag(current)) & TAG_MASK;
+            if (count == 0 || elapsed == 0 || elapsed > TAG_MASK / 2) {
+                return;
+            }
+            int decayed = decayByEpochs(count, elapsed);
+            long next = decayed == 0 ? 0L : pack(fingerprint(current), tag, decayed);
+            if (buckets.compareAndSet(bucketNumber, current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 当前 epoch，发现 epoch 前进时由推进成功的线程对总数做一次衰减
+     */
+    private long advanceEpoch() {
+        long epoch = (nanoClock.getAsLong() - startNanos) / epochNanos;
+        long seen = lastEpoch.get();
+        if (epoch > seen && lastEpoch.compareAndSet(seen, epoch)) {
+            long sum = total.sumThenReset();
+            total.add(sum >> Math.min(epoch - seen, 63));
+        }
+        return epoch;
+    }
+
+    /**
+     * 分数基准落后太多时整体右移并前移基准，调用方需持有 minHeap 锁
+     */
+    private void rebaseIfNeeded(long epoch) {
+        long shift = epoch - baseEpoch;
+        if (shift >= REBASE_EPOCHS) {
+            minHeap.shiftCounts((int) Math.min(shift, 63));
+            baseEpoch = epoch;
+        }
+    }
+
+    private long scoreOf(int count, long epoch) {
+        long shift = epoch - baseEpoch;
+        return shift >= 0 ? (long) count << shift : count >> Math.min(-shift, 31);
+    }
+
+    private static int decayByEpochs(int count, int epochs) {
+        return epochs >= COUNT_BITS ? 0 : count >> epochs;
+    }
+
+    private static boolean isHot(Item result) {
+        return result != BELOW_MIN_COUNT && result != NOT_HOT;
+    }
+
+    private static long pack(int fingerprint, int tag, int count) {
+        return ((long) fingerprint << 32) | ((long) (tag & TAG_MASK) << COUNT_BITS) | (count & MAX_COUNT);
+    }
+
+    private static int fingerprint(long bucket) {
+        return (int) (bucket >>> 32);
+    }
+
+    private static int tag(long bucket) {
+        return (int) (bucket >>> COUNT_BITS) & TAG_MASK;
+    }
+
+    private static int count(long bucket) {
+        return (int) bucket & MAX_COUNT;
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.simplethumb.manager.counter;
+
+import com.example.simplethumb.mapper.BlogMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 博客点赞数的写回缓存
+ * 点赞 / 取消点赞只在内存中累加增量，每秒合并成一条 batchUpdateThumbCount 写入数据库，
+ * 热门博客不再每次点赞都 UPDATE 同一行、争抢行锁
+ * 读取时在数据库中的点赞数上加上本节点尚未写入的增量；其他节点的增量在它们下一次写入后可见，最多延迟一个写入周期
+ */
+@Component
+@Slf4j
+public class ThumbCountCache {
+    // 单条 UPDATE 中最多包含的博客数
+    private static final int FLUSH_BATCH_SIZE = 500;
+    // 尚未写入数据库的增量
+    private final ConcurrentHashMap<Long, Long> pending = new ConcurrentHashMap<>();
+    // 正在写入数据库的增量，写入完成前仍计入读取结果
+    private final ConcurrentHashMap<Long, Long> flushing = new ConcurrentHashMap<>();
+    // 同一时间只有一次写入
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    @Resource
+    private BlogMapper blogMapper;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    // 写入数据库的博客行数
+    private Counter flushedRowCounter;
+
+    // 写入失败、等待下次重试的次数
+    private Counter flushFailureCounter;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("thumb.count.pending", pending, Map::size)
+                .description("Blogs with thumb count deltas not yet written to the database")
+                .register(meterRegistry);
+        flushedRowCounter = Counter.builder("thumb.count.flushed")
+                .description("Blog rows updated by thumb count write-behind")
+                .register(meterRegistry);
+        flushFailureCounter = Counter.builder("thumb.count.flush.failures")
+                .description("Thumb count flushes that failed and were requeued")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 累加点赞数增量，不访问数据库
+     * @param delta 点赞为 1，取消点赞为 -1
+     */
+    public void increment(long blogId, long delta) {
+        pending.merge(blogId, delta, Long::sum);
+    }
+
+    /**
+     * 尚未写入数据库的增量（包括正在写入的部分）
+     * 写入前后的瞬间，读取结果可能与实际值相差正在转移的增量
+     */
+    public long unflushedDelta(long blogId) {
+        return pending.getOrDefault(blogId, 0L) + flushing.getOrDefault(blogId, 0L);
+    }
+
+    /**
+     * 当前点赞数
+     * @param persisted 从数据库读到的点赞数
+     */
+    public int currentCount(long blogId, Integer persisted) {
+        long count = (persisted == null ? 0 : persisted) + unflushedDelta(blogId);
+        return (int) Math.max(0, count);
+    }
+
+    /**
+     * 取出所有增量写入数据库，写入失败的增量放回，下次重试
+     */
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.SECONDS)
+    public void flush() {
+        // 写库期间持有锁，使用 ReentrantLock 避免钉住虚拟线程的载体线程
+        flushLock.lock();
+        try {
+            doFlush();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void doFlush() {
+        Map<Long, Long> batch = new HashMap<>();
+        for (Long blogId : pending.keySet()) {
+            // 原子地从 pending 移到 flushing
+            pending.computeIfPresent(blogId, (id, delta) -> {
+                if (delta != 0) {
+                    batch.put(id, delta);
+                    flushing.merge(id, delta, Long::sum);
+                }
+                return null;
+            });
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Long> blogIds = new ArrayList<>(batch.keySet());
+        for (int from = 0; from < blogIds.size(); from += FLUSH_BATCH_SIZE) {
+            Map<Long, Long> chunk = new HashMap<>();
+            for (Long blogId : blogIds.subList(from, Math.min(blogIds.size(), from + FLUSH_BATCH_SIZE))) {
+                chunk.put(blogId, batch.get(blogId));
+            }
+            try {
+                blogMapper.batchUpdateThumbCount(chunk);
+                flushedRowCounter.increment(chunk.size());
+            } catch (RuntimeException e) {
+                log.error("点赞数写入数据库失败，{} 篇博客的增量放回等待重试", chunk.size(), e);
+                flushFailureCounter.increment();
+                chunk.forEach((blogId, delta) -> pending.merge(blogId, delta, Long::sum));
+            } finally {
+                chunk.forEach((blogId, delta) -> flushing.computeIfPresent(blogId, (id, inFlight) ->
+                        inFlight - delta == 0 ? null : inFlight - delta));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+        if (!pending.isEmpty()) {
+            log.error("停机时仍有 {} 篇博客的点赞数增量未能写入数据库: {}", pending.size(), pending);
+        }
+    }
+}
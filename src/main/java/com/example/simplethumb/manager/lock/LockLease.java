@@ -0,0 +1,28 @@
+package com.example.simplethumb.manager.lock;
+
+import java.time.Duration;
+
+/**
+ * 跨节点的锁租约
+ * 租约到期自动释放，持有者宕机不会导致死锁
+ */
+public interface LockLease {
+
+    /**
+     * 尝试获取租约，不等待
+     * @param token 持有者令牌，释放时校验
+     * @return 是否获取成功
+     */
+    boolean tryAcquire(String key, String token, Duration ttl);
+
+    /**
+     * 延长自己持有的租约
+     * @return 是否仍由该令牌持有；已过期或被他人持有时返回 false
+     */
+    boolean renew(String key, String token, Duration ttl);
+
+    /**
+     * 释放自己持有的租约，已过期或被他人持有时忽略
+     */
+    void release(String key, String token);
+}
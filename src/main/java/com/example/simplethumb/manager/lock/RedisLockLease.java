@@ -0,0 +1,36 @@
+package com.example.simplethumb.manager.lock;
+
+import com.example.simplethumb.constant.RedisLuaScriptConstant;
+import jakarta.annotation.Resource;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 基于 Redis SET NX PX 的锁租约，续期和释放时用 Lua 脚本比较令牌后再修改
+ */
+@Component
+public class RedisLockLease implements LockLease {
+
+    @Resource
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Override
+    public boolean tryAcquire(String key, String token, Duration ttl) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(key, token, ttl));
+    }
+
+    @Override
+    public boolean renew(String key, String token, Duration ttl) {
+        Long renewed = redisTemplate.execute(RedisLuaScriptConstant.RENEW_LOCK_SCRIPT, List.of(key), token,
+                ttl.toMillis());
+        return renewed != null && renewed == 1L;
+    }
+
+    @Override
+    public void release(String key, String token) {
+        redisTemplate.execute(RedisLuaScriptConstant.RELEASE_LOCK_SCRIPT, List.of(key), token);
+    }
+}
@@ -0,0 +1,301 @@
+package com.example.simplethumb.manager.lock;
+
+import cn.hutool.core.util.IdUtil;
+import com.example.simplethumb.common.ErrorCode;
+import com.example.simplethumb.constant.ThumbConstant;
+import com.example.simplethumb.exception.BusinessException;
+import com.example.simplethumb.exception.ThrowUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 按用户加锁，避免同一用户短时间内重复点赞 / 取消点赞
+ * 本节点内按 userId 哈希到固定数量的分段上，不再 intern 用户 id 字符串撑大字符串常量池；
+ * 分段锁只在登记 / 注销持有者时短暂持有，同一段上的其他用户不会因为某个用户的事务而等待，
+ * ReentrantLock 等待时也不会像 synchronized 那样钉住虚拟线程的载体线程
+ * 开启 thumb.lock.lease-enabled 后，拿到本地锁的线程再获取 Redis 租约，多节点之间同一用户的操作也互斥；
+ * 持有期间由 renewLeases 定期续期，写缓存和提交前通过 ensureHeld 确认租约没有丢失。
+ * ensureHeld 只是尽力而为的检查，不是严格的栅栏：检查之后到提交完成之前租约仍可能过期，
+ * 这段时间超过 LEASE_SAFETY_MARGIN 时（如长时间 GC 停顿）其他节点可能同时写入；
+ * 严格互斥需要把 fencing token 随写入一起校验，目前的表结构和点赞记录没有这个字段
+ * 等待时间通过 lock.wait 指标导出，按 mode（local、lease）和 result（acquired、timeout）区分
+ */
+@Component
+@Slf4j
+public class UserLockManager {
+    // 每个核心对应的分段数，分段越多不同用户落到同一段上互相等待的概率越小
+    private static final int STRIPES_PER_CORE = 16;
+    // 等待本地锁与租约的总时长，超过则提示稍后重试
+    static final Duration MAX_WAIT = Duration.ofSeconds(3);
+    // 租约有效期，持有者宕机时最多锁住这么久；持有期间每 LEASE_RENEW_INTERVAL 续期一次
+    static final Duration LEASE_TTL = Duration.ofSeconds(10);
+    static final long LEASE_RENEW_INTERVAL_MILLIS = 3000;
+    // ensureHeld 要求租约至少还剩这么久，检查之后的写缓存和提交需要在这段时间内完成
+    static final Duration LEASE_SAFETY_MARGIN = Duration.ofSeconds(2);
+    // 租约被占用时重试的最大间隔
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final Stripe[] stripes;
+    private final int mask;
+    // 租约令牌前缀，区分不同节点
+    private final String nodeToken = IdUtil.fastSimpleUUID();
+    // 本节点当前持有的租约，键为租约键
+    private final Map<String, HeldLease> heldLeases = new ConcurrentHashMap<>();
+
+    @Value("${thumb.lock.lease-enabled:false}")
+    private boolean leaseEnabled;
+
+    @Resource
+    private LockLease lockLease;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private Timer localAcquired;
+    private Timer localTimeout;
+    private Timer leaseAcquired;
+    private Timer leaseTimeout;
+
+    public UserLockManager() {
+        this(Runtime.getRuntime().availableProcessors() * STRIPES_PER_CORE);
+    }
+
+    /**
+     * @param stripeCount 分段数，向上取整为 2 的幂
+     */
+    UserLockManager(int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(2, stripeCount) - 1) << 1;
+        stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Stripe();
+        }
+        mask = size - 1;
+    }
+
+    @PostConstruct
+    public void init() {
+        localAcquired = waitTimer("local", "acquired");
+        localTimeout = waitTimer("local", "timeout");
+        leaseAcquired = waitTimer("lease", "acquired");
+        leaseTimeout = waitTimer("lease", "timeout");
+    }
+
+    /**
+     * 持有该用户的锁执行操作
+     * @throws BusinessException 在 MAX_WAIT 内没有拿到锁
+     */
+    public <T> T executeWithLock(long userId, Supplier<T> action) {
+        Stripe stripe = stripes[stripe(userId)];
+        long start = System.nanoTime();
+        long deadline = start + MAX_WAIT.toNanos();
+        int holdCount;
+        try {
+            holdCount = stripe.acquire(userId, deadline);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "等待锁时被中断");
+        }
+        boolean locked = holdCount > 0;
+        (locked ? localAcquired : localTimeout).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        ThrowUtils.throwIf(!locked, ErrorCode.OPERATION_ERROR, "操作过于频繁，请稍后重试");
+        try {
+            // 租约不可重入，同一线程嵌套加锁时沿用外层的租约
+            if (!leaseEnabled || holdCount > 1) {
+                return action.get();
+            }
+            String key = leaseKey(userId);
+            String token = nodeToken + ":" + Thread.currentThread().threadId();
+            long leaseStart = acquireLease(key, token, deadline);
+            heldLeases.put(key, new HeldLease(token, leaseStart + LEASE_TTL.toNanos()));
+            try {
+                return action.get();
+            } finally {
+                heldLeases.remove(key);
+                lockLease.release(key, token);
+            }
+        } finally {
+            stripe.release(userId);
+        }
+    }
+
+    /**
+     * 尽力确认当前线程仍持有该用户的租约，应紧挨着写缓存和事务提交调用
+     * 续期失败，或按上次续期时间计算剩余有效期不足 LEASE_SAFETY_MARGIN 时，其他节点可能已经或即将拿到租约，
+     * 抛出异常让事务回滚；检查通过后租约仍可能在提交完成前过期，见类注释
+     * @throws BusinessException 租约已丢失或即将过期
+     */
+    public void ensureHeld(long userId) {
+        if (!leaseEnabled) {
+            return;
+        }
+        HeldLease lease = heldLeases.get(leaseKey(userId));
+        String token = nodeToken + ":" + Thread.currentThread().threadId();
+        boolean held = lease != null && lease.token.equals(token) && lease.isValid();
+        if (!held) {
+            log.warn("用户锁租约已丢失: {}", leaseKey(userId));
+        }
+        ThrowUtils.throwIf(!held, ErrorCode.OPERATION_ERROR, "操作超时，请稍后重试");
+    }
+
+    /**
+     * 续期本节点持有的租约，事务执行时间超过 LEASE_TTL 时租约也不会过期
+     * 续期失败说明租约已过期并可能被其他节点拿到，标记为丢失，之后的 ensureHeld 拒绝提交
+     */
+    @Scheduled(fixedDelay = LEASE_RENEW_INTERVAL_MILLIS)
+    public void renewLeases() {
+        heldLeases.forEach((key, lease) -> {
+            if (lease.lost) {
+                return;
+            }
+            long renewStart = System.nanoTime();
+            boolean renewed;
+            try {
+                renewed = lockLease.renew(key, lease.token, LEASE_TTL);
+            } catch (Exception e) {
+                // 暂时无法访问 Redis，下次再试，有效期到了仍未续上时 ensureHeld 会拒绝提交
+                log.warn("续期用户锁租约失败: {}", key, e);
+                return;
+            }
+            if (renewed) {
+                lease.expiresAt = renewStart + LEASE_TTL.toNanos();
+            } else {
+                lease.lost = true;
+                log.warn("用户锁租约已过期或被其他节点持有: {}", key);
+            }
+        });
+    }
+
+    /**
+     * 租约被其他节点持有时按指数退避重试，直到截止时间
+     * @return 成功的那次尝试发起的时间，租约的有效期从这一刻起算
+     */
+    private long acquireLease(String key, String token, long deadline) {
+        long start = System.nanoTime();
+        long backoff = TimeUnit.MILLISECONDS.toNanos(1);
+        long attempt = start;
+        while (!lockLease.tryAcquire(key, token, LEASE_TTL)) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                leaseTimeout.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                log.warn("获取用户锁租约超时: {}", key);
+                throw new BusinessException(ErrorCode.OPERATION_ERROR, "操作过于频繁，请稍后重试");
+            }
+            LockSupport.parkNanos(Math.min(backoff, remaining));
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_NANOS);
+            attempt = System.nanoTime();
+        }
+        leaseAcquired.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return attempt;
+    }
+
+    private static String leaseKey(long userId) {
+        return ThumbConstant.USER_LOCK_KEY_PREFIX + userId;
+    }
+
+    int stripe(long userId) {
+        long h = userId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    int stripeCount() {
+        return stripes.length;
+    }
+
+    private Timer waitTimer(String mode, String result) {
+        return Timer.builder("lock.wait")
+                .description("Time spent waiting for per-user thumb locks")
+                .tag("mode", mode)
+                .tag("result", result)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * 一个分段，记录落在该段上、正在持有锁的用户
+     * 段内的 ReentrantLock 只保护持有者表，等待的线程在 released 上等待，同一段上的不同用户互不阻塞
+     */
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition released = lock.newCondition();
+        private final Map<Long, Holder> holders = new HashMap<>();
+
+        /**
+         * @return 获取后当前线程对该用户的持有次数，超时返回 0
+         */
+        int acquire(long userId, long deadline) throws InterruptedException {
+            Thread current = Thread.currentThread();
+            lock.lockInterruptibly();
+            try {
+                Holder holder;
+                while ((holder = holders.get(userId)) != null && holder.thread != current) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return 0;
+                    }
+                    released.awaitNanos(remaining);
+                }
+                if (holder == null) {
+                    holder = new Holder(current);
+                    holders.put(userId, holder);
+                }
+                return ++holder.holdCount;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void release(long userId) {
+            lock.lock();
+            try {
+                Holder holder = holders.get(userId);
+                if (--holder.holdCount == 0) {
+                    holders.remove(userId);
+                    released.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static final class Holder {
+        private final Thread thread;
+        private int holdCount;
+
+        Holder(Thread thread) {
+            this.thread = thread;
+        }
+    }
+
+    private static final class HeldLease {
+        private final String token;
+        // 按 System.nanoTime 计算的租约到期时间，每次续期成功后后移
+        private volatile long expiresAt;
+        private volatile boolean lost;
+
+        HeldLease(String token, long expiresAt) {
+            this.token = token;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isValid() {
+            return !lost && expiresAt - System.nanoTime() > LEASE_SAFETY_MARGIN.toNanos();
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.example.simplethumb.manager.redis;
+
+import com.example.simplethumb.common.ErrorCode;
+import com.example.simplethumb.exception.BusinessException;
+import com.example.simplethumb.util.VirtualThreadUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lua 脚本的组提交执行器
+ * 开启 thumb.redis.group-commit.enabled 后，并发请求的脚本调用先进入队列，后台线程收集 GROUP_WINDOW_NANOS 内到达的请求（最多 MAX_BATCH 个），
+ * 用一个 pipeline 的 EVALSHA 发给 Redis，再把各自的结果交还给调用方，一批请求只占用一次往返和一个连接；代价是每个请求最多多等一个收集窗口
+ * 未开启时直接调用 RedisTemplate.execute
+ * pipeline 中个别脚本返回 NOSCRIPT（例如 Redis 重启后脚本未加载）时，脚本没有执行，只有这些请求逐个退回 RedisTemplate.execute
+ * 重新加载脚本，已经执行成功的脚本不会重复执行；退回的请求在虚拟线程中执行，不占用组提交线程，后面排队的批次不受影响；
+ * 其他错误（脚本运行时错误、OOM 等）可能发生在部分写入之后，脚本不幂等，直接返回给调用方；连接异常时整批失败，同样不做重试
+ * 队列最多积压 MAX_QUEUED 个请求，组提交线程跟不上时新的请求直接失败，不再无限排队
+ */
+@Component
+@Slf4j
+public class GroupCommitScriptExecutor {
+    // 收集同一批请求的时间窗口
+    static final long GROUP_WINDOW_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+    // 一批最多包含的请求数
+    static final int MAX_BATCH = 256;
+    // 队列中最多等待的请求数，约为 16 批
+    static final int MAX_QUEUED = MAX_BATCH * 16;
+    // 队列为空时等待新请求的超时时间，超时后检查是否已经停止
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final BlockingQueue<PendingScript<?>> queue = new LinkedBlockingQueue<>(MAX_QUEUED);
+
+    // pipeline 中返回 NOSCRIPT 的请求在这里逐个重新执行
+    private final Executor fallbackExecutor = VirtualThreadUtil.EXECUTOR;
+
+    private volatile boolean running;
+
+    private Thread committer;
+
+    @Value("${thumb.redis.group-commit.enabled:false}")
+    private boolean enabled;
+
+    @Resource
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    // 每批请求数
+    private DistributionSummary batchSizeSummary;
+
+    // pipeline 中返回 NOSCRIPT、退回逐个执行的请求数
+    private Counter fallbackCounter;
+
+    // 队列已满被拒绝的请求数
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    public void init() {
+        batchSizeSummary = DistributionSummary.builder("redis.group.commit.batch")
+                .description("Lua script calls sent in one group-commit pipeline")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        fallbackCounter = Counter.builder("redis.group.commit.fallback")
+                .description("Pipelined script calls that failed with NOSCRIPT and were retried individually")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("redis.group.commit.rejected")
+                .description("Script calls rejected because the group-commit queue was full")
+                .register(meterRegistry);
+        if (enabled) {
+            running = true;
+            committer = Thread.ofPlatform().name("redis-group-commit").daemon().start(this::commitLoop);
+        }
+    }
+
+    /**
+     * 执行脚本并等待结果，用法同 RedisTemplate.execute(script, keys, args)
+     */
+    public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+        if (!running) {
+            return redisTemplate.execute(script, keys, args);
+        }
+        try {
+            return submit(script, keys, args).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 提交脚本，结果在所在批次执行完成后返回
+     * 队列已满时返回的 future 以 BusinessException 失败，脚本没有执行
+     */
+    public <T> CompletableFuture<T> submit(RedisScript<T> script, List<String> keys, Object... args) {
+        PendingScript<T> pending = new PendingScript<>(script, keys, args, new CompletableFuture<>());
+        if (!running) {
+            executeIndividually(pending);
+            return pending.future();
+        }
+        if (!queue.offer(pending)) {
+            rejectedCounter.increment();
+            pending.future().completeExceptionally(new BusinessException(ErrorCode.SYSTEM_ERROR, "系统繁忙，请稍后重试"));
+        }
+        return pending.future();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (committer == null) {
+            return;
+        }
+        running = false;
+        committer.join();
+        // 停止前一刻才进入队列的请求
+        List<PendingScript<?>> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.forEach(this::executeIndividually);
+    }
+
+    private void commitLoop() {
+        List<PendingScript<?>> batch = new ArrayList<>(MAX_BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingScript<?> first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + GROUP_WINDOW_NANOS;
+                while (batch.size() < MAX_BATCH) {
+                    long remaining = deadline - System.nanoTime();
+                    // 窗口结束后仍把已经在队列中的请求一起带上
+                    PendingScript<?> next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("脚本组提交线程被中断");
+            }
+            if (!batch.isEmpty()) {
+                commit(batch);
+                batch.clear();
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                running = false;
+            }
+        }
+    }
+
+    void commit(List<PendingScript<?>> batch) {
+        batchSizeSummary.record(batch.size());
+        if (batch.size() == 1) {
+            executeIndividually(batch.get(0));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+        @SuppressWarnings("unchecked")
+        RedisSerializer<Object> argSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        List<Object> results;
+        try {
+            results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (PendingScript<?> pending : batch) {
+                    pending.evalSha(connection, keySerializer, argSerializer);
+                }
+                return null;
+            });
+        } catch (RedisPipelineException e) {
+            // 每个结果要么是返回值，要么是该脚本自己的异常
+            results = e.getPipelineResult();
+        } catch (RuntimeException e) {
+            log.error("脚本 pipeline 执行失败，{} 个请求返回错误", batch.size(), e);
+            batch.forEach(pending -> pending.future().completeExceptionally(e));
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            PendingScript<?> pending = batch.get(i);
+            Object result = i < results.size() ? results.get(i) : null;
+            if (result instanceof Exception e && isNoScriptError(e)) {
+                fallbackCounter.increment();
+                retryIndividually(pending);
+            } else if (result instanceof Exception e) {
+                pending.future().completeExceptionally(e);
+            } else {
+                pending.complete(result);
+            }
+        }
+    }
+
+    /**
+     * 判断异常链中是否有 NOSCRIPT 错误，与 RedisTemplate.execute 退回 EVAL 的判断方式一致
+     */
+    static boolean isNoScriptError(Throwable e) {
+        for (Throwable current = e; current != null; current = current.getCause()) {
+            String message = current.getMessage();
+            if (message != null && message.contains("NOSCRIPT")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void executeIndividually(PendingScript<?> pending) {
+        pending.executeWith(redisTemplate);
+    }
+
+    /**
+     * 在组提交线程之外重新执行 pipeline 中返回 NOSCRIPT 的请求
+     */
+    private void retryIndividually(PendingScript<?> pending) {
+        try {
+            fallbackExecutor.execute(() -> executeIndividually(pending));
+        } catch (RejectedExecutionException e) {
+            pending.future().completeExceptionally(e);
+        }
+    }
+
+    record PendingScript<T>(RedisScript<T> script, List<String> keys, Object[] args, CompletableFuture<T> future) {
+
+        void evalSha(RedisConnection connection, RedisSerializer<String> keySerializer, RedisSerializer<Object> argSerializer) {
+            byte[][] keysAndArgs = new byte[keys.size() + args.length][];
+            int i = 0;
+            for (String key : keys) {
+                keysAndArgs[i++] = keySerializer.serialize(key);
+            }
+            for (Object arg : args) {
+                keysAndArgs[i++] = argSerializer.serialize(arg);
+            }
+            connection.scriptingCommands().evalSha(script.getSha1(), ReturnType.fromJavaType(script.getResultType()),
+                    keys.size(), keysAndArgs);
+        }
+
+        @SuppressWarnings("unchecked")
+        void complete(Object result) {
+            future.complete((T) result);
+        }
+
+        void executeWith(RedisTemplate<String, Object> redisTemplate) {
+            try {
+                future.complete(redisTemplate.execute(script, keys, args));
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.simplethumb.model.dto.thumb;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 批量点赞请求类
+ * 同步离线操作、一键点赞合集时，一次提交多篇博客的点赞 / 取消点赞，按顺序执行
+ */
+@Data
+public class BatchThumbRequest {
+
+    /**
+     * 依次执行的点赞操作
+     */
+    private List<ThumbAction> actions;
+
+    @Data
+    public static class ThumbAction {
+
+        private Long blogId;
+
+        /**
+         * true 点赞，false 取消点赞
+         */
+        private Boolean thumb;
+    }
+}
@@ -36,6 +36,11 @@ public class BlogVO {
      */
     private Date createTime;
 
+    /**
+     * 点赞数，包括尚未写入数据库的增量
+     */
+    private Integer thumbCount;
+
     /**
      * 是否已点赞
      */
@@ -15,4 +15,9 @@ public interface BlogService extends IService<Blog> {
     BlogVO getBlogVOById(Long blogId, HttpServletRequest request);
 
     List<BlogVO> getBlogVOList(List<Blog> blogList, HttpServletRequest request);
+
+    /**
+     * 博客是否存在，结果缓存在本地，点赞时校验博客不会每次查询数据库
+     */
+    boolean blogExists(Long blogId);
 }
@@ -1,10 +1,21 @@
 package com.example.simplethumb.service;
 
+import cn.hutool.core.collection.CollUtil;
+import com.example.simplethumb.common.ErrorCode;
+import com.example.simplethumb.constant.ThumbConstant;
+import com.example.simplethumb.exception.BusinessException;
+import com.example.simplethumb.exception.ThrowUtils;
+import com.example.simplethumb.model.dto.thumb.BatchThumbRequest;
 import com.example.simplethumb.model.dto.thumb.DoThumbRequest;
 import com.example.simplethumb.model.entity.Thumb;
 import com.baomidou.mybatisplus.extension.service.IService;
 import jakarta.servlet.http.HttpServletRequest;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
 /**
  *
  */
@@ -15,4 +26,70 @@ public interface ThumbService extends IService<Thumb> {
 
     Boolean hasThumb(Long blogId, Long userId);
 
+    /**
+     * 批量点赞 / 取消点赞，按顺序执行
+     * 默认逐个调用 doThumb / undoThumb，已点赞、未点赞等业务失败记为 false，不中断后续操作
+     * @return 与请求中的操作一一对应，是否生效
+     */
+    default List<Boolean> batchThumb(BatchThumbRequest batchThumbRequest, HttpServletRequest request) {
+        List<BatchThumbRequest.ThumbAction> actions = ThumbService.validateBatch(batchThumbRequest);
+        List<Boolean> results = new ArrayList<>(actions.size());
+        for (BatchThumbRequest.ThumbAction action : actions) {
+            DoThumbRequest doThumbRequest = new DoThumbRequest();
+            doThumbRequest.setBlogId(action.getBlogId());
+            try {
+                results.add(Boolean.TRUE.equals(action.getThumb())
+                        ? doThumb(doThumbRequest, request)
+                        : undoThumb(doThumbRequest, request));
+            } catch (BusinessException e) {
+                results.add(false);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 批量点赞参数校验
+     * @return 请求中的操作
+     */
+    static List<BatchThumbRequest.ThumbAction> validateBatch(BatchThumbRequest batchThumbRequest) {
+        ThrowUtils.throwIf(batchThumbRequest == null || CollUtil.isEmpty(batchThumbRequest.getActions()),
+                ErrorCode.PARAMS_ERROR, "参数错误");
+        List<BatchThumbRequest.ThumbAction> actions = batchThumbRequest.getActions();
+        ThrowUtils.throwIf(actions.size() > ThumbConstant.BATCH_THUMB_MAX_SIZE,
+                ErrorCode.PARAMS_ERROR, "单次最多操作 " + ThumbConstant.BATCH_THUMB_MAX_SIZE + " 篇博客");
+        ThrowUtils.throwIf(actions.stream().anyMatch(action -> action == null || action.getBlogId() == null || action.getThumb() == null),
+                ErrorCode.PARAMS_ERROR, "参数错误");
+        return actions;
+    }
+
+    /**
+     * 异步点赞，异常通过返回的 future 传递
+     * 请求对象只在调用线程上访问：参数校验和读取会话在返回前完成，之后的数据库、Redis 操作异步执行
+     */
+    CompletableFuture<Boolean> doThumbAsync(DoThumbRequest doThumbRequest, HttpServletRequest request);
+
+    /**
+     * 异步取消点赞，异常通过返回的 future 传递，请求对象的使用同 doThumbAsync
+     */
+    CompletableFuture<Boolean> undoThumbAsync(DoThumbRequest doThumbRequest, HttpServletRequest request);
+
+    /**
+     * 在请求线程上校验参数并读取会话中的登录用户 id，失败时返回失败的 future，与异步部分的异常一样通过 future 传递
+     * @param asyncPart 拿到登录用户 id 后执行，不能再访问请求
+     */
+    static <T> CompletableFuture<T> withLoginUserId(DoThumbRequest doThumbRequest, HttpServletRequest request,
+                                                    UserService userService,
+                                                    Function<Long, CompletableFuture<T>> asyncPart) {
+        long loginUserId;
+        try {
+            ThrowUtils.throwIf(doThumbRequest == null || doThumbRequest.getBlogId() == null,
+                    ErrorCode.PARAMS_ERROR, "参数错误");
+            loginUserId = userService.getLoginUserId(request);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return asyncPart.apply(loginUserId);
+    }
+
 }
@@ -9,4 +9,15 @@ import jakarta.servlet.http.HttpServletRequest;
  */
 public interface UserService extends IService<User> {
     User getLoginUser(HttpServletRequest request);
+
+    /**
+     * 从会话中读取登录用户 id，不查询数据库
+     * 会话属于请求，只能在处理请求的线程上调用；异步处理时先在请求线程上取出 id，再交给 getLoginUser(long)
+     */
+    long getLoginUserId(HttpServletRequest request);
+
+    /**
+     * 按会话中的用户 id 查询登录用户，不访问请求，可以在任意线程上调用
+     */
+    User getLoginUser(long loginUserId);
 }
@@ -4,7 +4,8 @@ package com.example.simplethumb.service.impl;
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.util.ObjUtil;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
-import com.example.simplethumb.constant.ThumbConstant;
+import com.example.simplethumb.manager.cache.CacheManager;
+import com.example.simplethumb.manager.counter.ThumbCountCache;
 import com.example.simplethumb.mapper.BlogMapper;
 import com.example.simplethumb.model.entity.Blog;
 import com.example.simplethumb.model.entity.Thumb;
@@ -17,7 +18,6 @@ import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.BeanUtils;
 import org.springframework.context.annotation.Lazy;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -34,7 +34,10 @@ public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog>
     private UserService userService;
 
     @Resource
-    private RedisTemplate<String, Object> redisTemplate;
+    private CacheManager cacheManager;
+
+    @Resource
+    private ThumbCountCache thumbCountCache;
     // @Lazy 解决循环引用问题
     @Resource
     @Lazy
@@ -62,16 +65,16 @@ public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog>
         // 判断用户是否登录
         if(ObjUtil.isNotEmpty(loginUser)) {
             // 若登录，获取到所有博客的 id
-            List<Object> blogIdList = blogList.stream().map(blog -> blog.getId().toString()).collect(Collectors.toList());
-            // 从 Redis 中找到所有的点赞记录
-            List<Object> thumbList = redisTemplate.opsForHash().multiGet(ThumbConstant.USER_THUMB_KEY_PREFIX + loginUser.getId().toString(), blogIdList);
-            for (int i = 0; i < thumbList.size(); i++) {
-                // 如果没有记录则继续
-                if(thumbList.get(i) == null) {
+            List<Long> blogIdList = blogList.stream().map(Blog::getId).collect(Collectors.toList());
+            // 先查点赞集合、近缓存和本地缓存，未命中的点赞记录用一次 HMGET 从 Redis 获取
+            boolean[] thumbed = cacheManager.hasThumbBatch(loginUser.getId(), blogIdList);
+            for (int i = 0; i < thumbed.length; i++) {
+                // 如果没有记录或已取消点赞则继续
+                if(!thumbed[i]) {
                     continue;
                 }
                 // 如果有记录，则将博客 id 和点赞状态存入哈希表
-                blogIdHasThumbMap.put(Long.valueOf(blogIdList.get(i).toString()), true);
+                blogIdHasThumbMap.put(blogIdList.get(i), true);
             }
         }
         // 将博客列表转换为博客VO列表
@@ -79,6 +82,7 @@ public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog>
         for (Blog blog : blogList) {
             BlogVO blogVO = new BlogVO();
             BeanUtil.copyProperties(blog, blogVO);
+            blogVO.setThumbCount(thumbCountCache.currentCount(blog.getId(), blog.getThumbCount()));
             // 默认是未点赞的，如果有点赞则为 true
             blogVO.setHasThumb(blogIdHasThumbMap.getOrDefault(blog.getId(), false));
             blogVOList.add(blogVO);
@@ -86,10 +90,17 @@ public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog>
            return blogVOList;
     }
 
+    @Override
+    public boolean blogExists(Long blogId) {
+        return cacheManager.blogExists(blogId, id -> this.lambdaQuery().eq(Blog::getId, id).exists());
+    }
+
     private BlogVO getBlogVO(Blog blog, User loginUser) {
         BlogVO blogVO = new BlogVO();
         // 将博客信息复制到博客VO中
         BeanUtils.copyProperties(blog, blogVO);
+        // 数据库中的点赞数加上尚未写入的增量
+        blogVO.setThumbCount(thumbCountCache.currentCount(blog.getId(), blog.getThumbCount()));
         // 没有登录用户直接返回博客信息
         if(loginUser == null) {
             return blogVO;
@@ -3,7 +3,7 @@ package com.example.simplethumb.service.impl;
 import cn.hutool.core.lang.Pair;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.example.simplethumb.listener.thumb.msg.ThumbEvent;
-import com.example.simplethumb.mapper.BlogMapper;
+import com.example.simplethumb.manager.counter.ThumbCountCache;
 import com.example.simplethumb.model.entity.Thumb;
 import com.example.simplethumb.service.ThumbService;
 import lombok.RequiredArgsConstructor;
@@ -15,6 +15,8 @@ import org.apache.pulsar.common.schema.SchemaType;
 import org.springframework.pulsar.annotation.PulsarListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
@@ -30,10 +32,10 @@ import java.util.stream.Collectors;
 @Slf4j
 public class ThumbConsumer {
 
-    private final BlogMapper blogMapper; // 博客数据访问对象
-
     private final ThumbService thumbService; // 点赞服务对象
 
+    private final ThumbCountCache thumbCountCache; // 博客点赞数写回缓存
+
     @PulsarListener(
             subscriptionName = "thumb-subscription", // 订阅名称
             topics = "thumb-topic", // 主题名称
@@ -87,7 +89,7 @@ public class ThumbConsumer {
 
             // 点赞事件
             if(finalAction == ThumbEvent.EventType.INCR) {
-                countMap.merge(userBlogPair.getKey(), 1L, Long::sum); // 更新点赞计数
+                countMap.merge(event.getBlogId(), 1L, Long::sum); // 更新点赞计数
                 Thumb thumb = new Thumb();
                 thumb.setBlogId(event.getBlogId()); // 设置博客ID
                 thumb.setUserId(event.getUserId()); // 设置用户ID
@@ -107,13 +109,24 @@ public class ThumbConsumer {
         batchInsertThumbs(thumbs); // 批量插入点赞信息
     }
 
+    /**
+     * 点赞数交给写回缓存，与本节点其他批次的增量合并后每秒写入一次数据库，读取博客时立即计入
+     * 增量在事务提交后才累加，点赞记录写入失败回滚时点赞数不变
+     */
     public void batchUpdateBlogs(Map<Long, Long> countMap) {
-    // 检查传入的countMap是否为空
-        if(!countMap.isEmpty()) {
-        // 如果countMap不为空，则调用blogMapper的batchUpdateThumbCount方法
-        // 该方法用于批量更新博客的点赞数
-            blogMapper.batchUpdateThumbCount(countMap);
+        if(countMap.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            countMap.forEach(thumbCountCache::increment);
+            return;
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                countMap.forEach(thumbCountCache::increment);
+            }
+        });
     }
 
     public void batchInsertThumbs(List<Thumb> thumbs) {
@@ -6,14 +6,17 @@ import com.example.simplethumb.common.ErrorCode;
 import com.example.simplethumb.constant.ThumbConstant;
 import com.example.simplethumb.exception.ThrowUtils;
 import com.example.simplethumb.manager.cache.CacheManager;
+import com.example.simplethumb.manager.counter.ThumbCountCache;
+import com.example.simplethumb.manager.lock.UserLockManager;
 import com.example.simplethumb.mapper.ThumbMapper;
 import com.example.simplethumb.model.dto.thumb.DoThumbRequest;
-import com.example.simplethumb.model.entity.Blog;
 import com.example.simplethumb.model.entity.Thumb;
 import com.example.simplethumb.model.entity.User;
 import com.example.simplethumb.service.BlogService;
 import com.example.simplethumb.service.ThumbService;
 import com.example.simplethumb.service.UserService;
+import com.example.simplethumb.util.RedisKeyUtil;
+import com.example.simplethumb.util.VirtualThreadUtil;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -21,6 +24,8 @@ import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.concurrent.CompletableFuture;
+
 // 显示指定 Bean 的名称为 thumbServiceDB，注入时只需要把变量名改成thumbServiceDB即可
 @Service("thumbServiceLocalCache")
 @Slf4j
@@ -36,19 +41,51 @@ public class ThumbServiceImpl extends ServiceImpl<ThumbMapper, Thumb>
 
     private final CacheManager cacheManager;
 
+    private final ThumbCountCache thumbCountCache;
+
+    private final UserLockManager userLockManager;
+
     @Override
     public Boolean doThumb(DoThumbRequest doThumbRequest, HttpServletRequest request) {
         // 参数校验
         ThrowUtils.throwIf(doThumbRequest == null || doThumbRequest.getBlogId() == null,
                 ErrorCode.PARAMS_ERROR, "参数错误");
         User loginUser = userService.getLoginUser(request);
-        // 加锁，避免用户短时间多次点赞
-        synchronized (loginUser.getId().toString().intern()) {
+        return doThumb(loginUser, doThumbRequest.getBlogId());
+    }
+
+    @Override
+    public Boolean undoThumb(DoThumbRequest doThumbRequest, HttpServletRequest request) {
+        // 参数校验
+        ThrowUtils.throwIf(doThumbRequest == null || doThumbRequest.getBlogId() == null, ErrorCode.PARAMS_ERROR, "参数错误");
+        User loginUser = userService.getLoginUser(request);
+        return undoThumb(loginUser, doThumbRequest.getBlogId());
+    }
 
+    /**
+     * 会话在请求线程上读取，查询用户、加锁和数据库事务都在虚拟线程上执行
+     */
+    @Override
+    public CompletableFuture<Boolean> doThumbAsync(DoThumbRequest doThumbRequest, HttpServletRequest request) {
+        return ThumbService.withLoginUserId(doThumbRequest, request, userService, loginUserId ->
+                CompletableFuture.supplyAsync(() -> doThumb(userService.getLoginUser(loginUserId),
+                        doThumbRequest.getBlogId()), VirtualThreadUtil.EXECUTOR));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> undoThumbAsync(DoThumbRequest doThumbRequest, HttpServletRequest request) {
+        return ThumbService.withLoginUserId(doThumbRequest, request, userService, loginUserId ->
+                CompletableFuture.supplyAsync(() -> undoThumb(userService.getLoginUser(loginUserId),
+                        doThumbRequest.getBlogId()), VirtualThreadUtil.EXECUTOR));
+    }
+
+    private Boolean doThumb(User loginUser, Long blogId) {
+        // 博客不存在时不写入点赞记录，存在性结果缓存在本地，不在事务中逐次查询
+        ThrowUtils.throwIf(!blogService.blogExists(blogId), ErrorCode.NOT_FOUND_ERROR, "博客不存在");
+        // 加锁，避免用户短时间多次点赞
+        return userLockManager.executeWithLock(loginUser.getId(), () -> {
             // 编程式事务
-            return transactionTemplate.execute(status -> {
-                // 获取当前当前进行点赞的博客id
-                Long blogId = doThumbRequest.getBlogId();
+            Boolean thumbed = transactionTemplate.execute(status -> {
                 // 判断当前用户是否已经点赞过该博客,利用Redis缓存提高效率
                 Boolean exists = this.hasThumb(blogId, loginUser.getId());
 //                  原先采用数据库直接判断是否点赞
@@ -60,20 +97,17 @@ public class ThumbServiceImpl extends ServiceImpl<ThumbMapper, Thumb>
                 // 如果已经点赞过，抛出异常
                 ThrowUtils.throwIf(exists, ErrorCode.OPERATION_ERROR, "已经点赞过");
 
-                // 更新博客点赞数 + 1
-                boolean update = blogService.lambdaUpdate()
-                        .eq(Blog::getId, blogId)
-                        .setSql("thumbCount = thumbCount + 1")
-                        .update();
-
+                // 博客点赞数不再逐次 UPDATE，事务提交后累加到写回缓存，由后台批量写入
                 Thumb thumb = new Thumb();
                 thumb.setBlogId(blogId);
                 thumb.setUserId(loginUser.getId());
                 //  保存点赞记录到数据库
-                boolean success = update && this.save(thumb);
+                boolean success = this.save(thumb);
+                // 写缓存和提交前尽力确认仍持有跨节点租约，租约丢失或即将过期时抛出异常回滚事务
+                userLockManager.ensureHeld(loginUser.getId());
                 if(success) {
                     // 如果成功保存点赞记录，则将其存储在缓存，key是点赞前缀 + 用户id，field 是博客id，value是点赞记录id
-                    String hashKey = ThumbConstant.USER_THUMB_KEY_PREFIX + loginUser.getId();
+                    String hashKey = RedisKeyUtil.getUserThumbKey(loginUser.getId());
                     String fieldKey = blogId.toString();
                     Long realThumbId = thumb.getId();
                     redisTemplate.opsForHash().put(hashKey, fieldKey, realThumbId);
@@ -81,38 +115,35 @@ public class ThumbServiceImpl extends ServiceImpl<ThumbMapper, Thumb>
                 }
                 return success;
             });
-        }
+            if (Boolean.TRUE.equals(thumbed)) {
+                thumbCountCache.increment(blogId, 1);
+            }
+            return thumbed;
+        });
     }
 
-    @Override
-    public Boolean undoThumb(DoThumbRequest doThumbRequest, HttpServletRequest request) {
-        // 参数校验
-        ThrowUtils.throwIf(doThumbRequest == null || doThumbRequest.getBlogId() == null, ErrorCode.PARAMS_ERROR, "参数错误");
-        User loginUser = userService.getLoginUser(request);
+    private Boolean undoThumb(User loginUser, Long blogId) {
+        ThrowUtils.throwIf(!blogService.blogExists(blogId), ErrorCode.NOT_FOUND_ERROR, "博客不存在");
         // 加锁，避免用户短时间多次取消点赞
-        synchronized (loginUser.getId().toString().intern()) {
+        return userLockManager.executeWithLock(loginUser.getId(), () -> {
             // 编程式事务
-            return transactionTemplate.execute(status -> {
-                Long blogId = doThumbRequest.getBlogId();
+            Boolean undone = transactionTemplate.execute(status -> {
                 // 判断当前用户是否已经点赞过该博客
 //                Thumb thumb = this.lambdaQuery()
 //                        .eq(Thumb::getBlogId, blogId)
 //                        .eq(Thumb::getUserId, loginUser.getId())
 //                        .one();
-                Object thumbIdObj = cacheManager.getCache(ThumbConstant.USER_THUMB_KEY_PREFIX + loginUser.getId().toString(), blogId.toString());
+                long thumbId = cacheManager.getThumbValue(loginUser.getId(), blogId);
                 // 如果没有点赞过，抛出异常
-                ThrowUtils.throwIf(thumbIdObj == null || thumbIdObj.equals(ThumbConstant.UN_THUMB_CONSTANT), ErrorCode.OPERATION_ERROR, "未点赞过");
-                Long thumbId = Long.valueOf(thumbIdObj.toString());
-                // 更新博客点赞数 - 1
-                boolean update = blogService.lambdaUpdate()
-                        .eq(Blog::getId, blogId)
-                        .setSql("thumbCount = thumbCount - 1")
-                        .update();
+                ThrowUtils.throwIf(thumbId == CacheManager.NO_VALUE || thumbId == ThumbConstant.UN_THUMB_CONSTANT, ErrorCode.OPERATION_ERROR, "未点赞过");
+                // 博客点赞数在事务提交后由写回缓存 - 1
                 // 删除点赞记录
-                 boolean success = update && this.removeById(thumbId);
+                 boolean success = this.removeById(thumbId);
+                 // 写缓存和提交前尽力确认仍持有跨节点租约，租约丢失或即将过期时抛出异常回滚事务
+                 userLockManager.ensureHeld(loginUser.getId());
                  if(success) {
                      // 如果成功删除点赞记录，则将其从缓存中删除
-                     String hashKey = ThumbConstant.USER_THUMB_KEY_PREFIX + loginUser.getId();
+                     String hashKey = RedisKeyUtil.getUserThumbKey(loginUser.getId());
                      String fieldKey = blogId.toString();
                      redisTemplate.opsForHash().delete(hashKey, fieldKey);
                      // 如果取消点赞了，但是如果是热点key，就设置本地缓存的值为 0
@@ -121,7 +152,11 @@ public class ThumbServiceImpl extends ServiceImpl<ThumbMapper, Thumb>
                  }
                  return success;
             });
-        }
+            if (Boolean.TRUE.equals(undone)) {
+                thumbCountCache.increment(blogId, -1);
+            }
+            return undone;
+        });
     }
     private final RedisTemplate<String, Object> redisTemplate;
 
@@ -133,17 +168,9 @@ public class ThumbServiceImpl extends ServiceImpl<ThumbMapper, Thumb>
      */
     @Override
     public Boolean hasThumb(Long blogId, Long userId) {
-    // ThumbConstant.USER_THUMB_KEY_PREFIX是点赞记录的键前缀，加上userId和blogId形成完整的键
-        Object thumbIdObj = cacheManager.getCache(ThumbConstant.USER_THUMB_KEY_PREFIX + userId.toString(), blogId.toString());
-    // 检查缓存中是否存在该用户的点赞记录
-        if(thumbIdObj == null) {
-        // 如果缓存中没有记录，说明用户没有点赞，返回false
-            return false;
-        }
-    // 将缓存中的点赞记录转换为Long类型
-        Long thumbId = (long) thumbIdObj;
-    // 避免取消点赞导致存储在本地缓存的热点 key 未删除，而 Redis 中的缓存已经被删除，约定当值为 0 时表示未点赞。
-        return !thumbId.equals(ThumbConstant.UN_THUMB_CONSTANT);
+    // 按 (userId, blogId) 查询，本地命中时不拼接点赞记录的键
+    // 活跃用户的完整点赞集合已在本地时直接判断，否则按单条记录查询本地缓存 -> Redis，值为 0 表示已取消点赞
+        return cacheManager.hasThumb(userId, blogId);
     }
 }
 
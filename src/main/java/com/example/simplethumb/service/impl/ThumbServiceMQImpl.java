@@ -8,16 +8,20 @@ import com.example.simplethumb.constant.ThumbConstant;
 import com.example.simplethumb.exception.ThrowUtils;
 import com.example.simplethumb.listener.thumb.msg.ThumbEvent;
 import com.example.simplethumb.manager.cache.CacheManager;
+import com.example.simplethumb.manager.redis.GroupCommitScriptExecutor;
 import com.example.simplethumb.mapper.ThumbMapper;
+import com.example.simplethumb.model.dto.thumb.BatchThumbRequest;
 import com.example.simplethumb.model.dto.thumb.DoThumbRequest;
 import com.example.simplethumb.model.entity.Blog;
 import com.example.simplethumb.model.entity.Thumb;
 import com.example.simplethumb.model.entity.User;
 import com.example.simplethumb.model.enums.LuaStatusEnum;
+import com.example.simplethumb.model.enums.ThumbTypeEnum;
 import com.example.simplethumb.service.BlogService;
 import com.example.simplethumb.service.ThumbService;
 import com.example.simplethumb.service.UserService;
 import com.example.simplethumb.util.RedisKeyUtil;
+import com.example.simplethumb.util.VirtualThreadUtil;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -28,7 +32,11 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 消息队列优化
@@ -44,8 +52,13 @@ public class ThumbServiceMQImpl extends ServiceImpl<ThumbMapper, Thumb>
     private final UserService userService;
 
     private final RedisTemplate<String, Object> redisTemplate;
+
+    private final GroupCommitScriptExecutor scriptExecutor;
+
     private final PulsarTemplate<ThumbEvent> pulsarTemplate;
 
+    private final CacheManager cacheManager;
+
     /**
      * 消息队列优化点赞功能
      * 服务发送方
@@ -68,30 +81,12 @@ public class ThumbServiceMQImpl extends ServiceImpl<ThumbMapper, Thumb>
     // 生成用户点赞的 Redis 键
         String userThumbKey = RedisKeyUtil.getUserThumbKey(loginUserId);
         // 执行 Lua 脚本，点赞存入 Redis
-        long result = redisTemplate.execute(
+        long result = scriptExecutor.execute(
                 RedisLuaScriptConstant.THUMB_SCRIPT_MQ,
                 List.of(userThumbKey),
                 blogId
         );
-        ThrowUtils.throwIf(LuaStatusEnum.FAIL.getValue() == result, ErrorCode.OPERATION_ERROR, "点赞失败,用户已经点赞");
-        ThumbEvent thumbEvent = ThumbEvent.builder()
-                .userId(loginUserId)
-                .blogId(blogId)
-                .type(ThumbEvent.EventType.INCR)
-                .eventTime(LocalDateTime.now())
-                .build();
-        // 发送点赞事件到 Pulsar
-        // 当sendAsync方法出现异常时，会调用 exceptionally 的逻辑
-        pulsarTemplate.sendAsync("thumb-topic", thumbEvent).exceptionally(ex -> {
-            // 删除缓存
-            redisTemplate.opsForHash().delete(userThumbKey, blogId.toString(), true);
-            // 记录日志
-            log.error("点赞事件发送失败: userId={}, blogId={}", loginUserId, blogId);
-            // 新开线程,没有需要返回的内容
-            return null;
-        });
-
-        return true;
+        return afterThumb(result, loginUserId, blogId, userThumbKey);
     }
 
     /**
@@ -111,28 +106,173 @@ public class ThumbServiceMQImpl extends ServiceImpl<ThumbMapper, Thumb>
         // 获取到当前登录用户点赞信息
         String userThumbKey = RedisKeyUtil.getUserThumbKey(loginUserId);
         // 执行 Lua 脚本，点赞记录从 Redis 中删除
-        long result = redisTemplate.execute(
+        long result = scriptExecutor.execute(
                 RedisLuaScriptConstant.UNTHUMB_SCRIPT_MQ,
                 List.of(userThumbKey),
                 blogId
         );
+        return afterUndoThumb(result, loginUserId, blogId, userThumbKey);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> doThumbAsync(DoThumbRequest doThumbRequest, HttpServletRequest request) {
+        return executeScriptAsync(RedisLuaScriptConstant.THUMB_SCRIPT_MQ, doThumbRequest, request, this::afterThumb);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> undoThumbAsync(DoThumbRequest doThumbRequest, HttpServletRequest request) {
+        return executeScriptAsync(RedisLuaScriptConstant.UNTHUMB_SCRIPT_MQ, doThumbRequest, request, this::afterUndoThumb);
+    }
+
+    /**
+     * 异步执行点赞 / 取消点赞脚本
+     * 会话在请求线程上读取；按 id 查询登录用户、脚本执行后的本地缓存同步和事件发送都在虚拟线程上执行，
+     * 开启组提交时脚本随同一批请求一起发送，等待 Redis 期间不占用线程
+     */
+    private CompletableFuture<Boolean> executeScriptAsync(RedisScript<Long> script, DoThumbRequest doThumbRequest,
+                                                          HttpServletRequest request, ScriptCallback callback) {
+        return ThumbService.withLoginUserId(doThumbRequest, request, userService, sessionUserId -> CompletableFuture
+                .supplyAsync(() -> userService.getLoginUser(sessionUserId).getId(), VirtualThreadUtil.EXECUTOR)
+                .thenCompose(loginUserId -> {
+                    Long blogId = doThumbRequest.getBlogId();
+                    String userThumbKey = RedisKeyUtil.getUserThumbKey(loginUserId);
+                    return scriptExecutor.submit(script, List.of(userThumbKey), blogId)
+                            // 后续步骤会访问 Redis，不在组提交线程上执行
+                            .thenApplyAsync(result -> callback.apply(result, loginUserId, blogId, userThumbKey),
+                                    VirtualThreadUtil.EXECUTOR);
+                }));
+    }
+
+    /**
+     * 点赞脚本执行成功后，同步本地缓存并发送点赞事件
+     */
+    private Boolean afterThumb(long result, Long loginUserId, Long blogId, String userThumbKey) {
+        ThrowUtils.throwIf(LuaStatusEnum.FAIL.getValue() == result, ErrorCode.OPERATION_ERROR, "点赞失败,用户已经点赞");
+        // 同步本地缓存，并广播给其他节点
+        cacheManager.putIfPresent(userThumbKey, blogId.toString(), 1L);
+        ThumbEvent thumbEvent = ThumbEvent.builder()
+                .userId(loginUserId)
+                .blogId(blogId)
+                .type(ThumbEvent.EventType.INCR)
+                .eventTime(LocalDateTime.now())
+                .build();
+        // 发送点赞事件到 Pulsar
+        sendThumbEvent(thumbEvent, userThumbKey);
+        return true;
+    }
+
+    /**
+     * 取消点赞脚本执行成功后，同步本地缓存并发送取消点赞事件
+     */
+    private Boolean afterUndoThumb(long result, Long loginUserId, Long blogId, String userThumbKey) {
         ThrowUtils.throwIf(LuaStatusEnum.FAIL.getValue() == result, ErrorCode.OPERATION_ERROR, "取消点赞失败,用户未点赞");
+        // 同步本地缓存，约定值为 0 表示已取消点赞
+        cacheManager.putIfPresent(userThumbKey, blogId.toString(), ThumbConstant.UN_THUMB_CONSTANT);
         ThumbEvent thumbEvent = ThumbEvent.builder()
                 .userId(loginUserId)
                 .blogId(blogId)
                 .eventTime(LocalDateTime.now())
                 .type(ThumbEvent.EventType.DECR)
                 .build();
-        pulsarTemplate.sendAsync("thumb-topic", thumbEvent).exceptionally(ex -> {
-            // 删除缓存
-            redisTemplate.opsForHash().delete(userThumbKey, blogId.toString(), true);
-            // 记录日志
-            log.error("取消点赞事件发送失败: userId={}, blogId={}", loginUserId, blogId);
-            // 新开线程,没有需要返回的内容
-            return null;
-        });
+        sendThumbEvent(thumbEvent, userThumbKey);
         return true;
+    }
+
+    /**
+     * 批量点赞 / 取消点赞
+     * 所有操作在一次 Lua 脚本中原子执行，只有一次 Redis 往返；同一博客在批次中出现多次时，
+     * 生效的操作必然交替出现，按净变化为每个状态改变的博客同步一次本地缓存、发送一个事件，互相抵消的操作不发送事件。
+     * 事件连续调用 sendAsync 发送，生产者默认开启批量发送，这些事件会合并在同一批次中发往 Pulsar；
+     * 发送失败的事件各自回滚 Redis 中的点赞记录，全部发送完成后汇总记录失败数量
+     */
+    @Override
+    public List<Boolean> batchThumb(BatchThumbRequest batchThumbRequest, HttpServletRequest request) {
+        // 参数校验
+        List<BatchThumbRequest.ThumbAction> actions = ThumbService.validateBatch(batchThumbRequest);
+        Long loginUserId = userService.getLoginUser(request).getId();
+        String userThumbKey = RedisKeyUtil.getUserThumbKey(loginUserId);
+        // 参数依次为 博客 ID、操作类型
+        Object[] args = new Object[actions.size() * 2];
+        for (int i = 0; i < actions.size(); i++) {
+            BatchThumbRequest.ThumbAction action = actions.get(i);
+            args[2 * i] = action.getBlogId();
+            args[2 * i + 1] = action.getThumb() ? ThumbTypeEnum.INCR.getValue() : ThumbTypeEnum.DECR.getValue();
+        }
+        // 执行 Lua 脚本，一次写入所有点赞记录
+        List<?> statuses = scriptExecutor.execute(RedisLuaScriptConstant.BATCH_THUMB_SCRIPT_MQ, List.of(userThumbKey), args);
+        ThrowUtils.throwIf(statuses == null || statuses.size() != actions.size(), ErrorCode.SYSTEM_ERROR, "批量点赞失败");
+
+        List<Boolean> results = new ArrayList<>(actions.size());
+        // 每个博客的净变化，按首次生效的顺序排列
+        Map<Long, ThumbEvent.EventType> changes = new LinkedHashMap<>();
+        for (int i = 0; i < actions.size(); i++) {
+            BatchThumbRequest.ThumbAction action = actions.get(i);
+            boolean applied = LuaStatusEnum.SUCCESS.getValue() == ((Number) statuses.get(i)).longValue();
+            results.add(applied);
+            if (!applied) {
+                continue;
+            }
+            // 同一博客上一次生效的操作与本次方向相反，两者抵消
+            if (changes.remove(action.getBlogId()) == null) {
+                changes.put(action.getBlogId(), action.getThumb() ? ThumbEvent.EventType.INCR : ThumbEvent.EventType.DECR);
+            }
+        }
+        if (changes.isEmpty()) {
+            return results;
+        }
+
+        LocalDateTime eventTime = LocalDateTime.now();
+        List<CompletableFuture<Boolean>> sends = new ArrayList<>(changes.size());
+        changes.forEach((blogId, type) -> {
+            // 同步本地缓存，约定值为 0 表示已取消点赞
+            cacheManager.putIfPresent(userThumbKey, blogId.toString(),
+                    type == ThumbEvent.EventType.INCR ? 1L : ThumbConstant.UN_THUMB_CONSTANT);
+            sends.add(sendThumbEvent(ThumbEvent.builder()
+                    .userId(loginUserId)
+                    .blogId(blogId)
+                    .type(type)
+                    .eventTime(eventTime)
+                    .build(), userThumbKey));
+        });
+        CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).thenRun(() -> {
+            long failed = sends.stream().filter(send -> !send.join()).count();
+            if (failed > 0) {
+                log.error("批量点赞事件部分发送失败，已回滚: userId={}, failed={}, total={}", loginUserId, failed, sends.size());
+            }
+        });
+        return results;
+    }
+
+    /**
+     * 发送点赞 / 取消点赞事件到 Pulsar
+     * 发送失败时回滚 Redis 中的点赞记录和本地缓存，使其与数据库保持一致：
+     * 点赞事件失败删除点赞记录，取消点赞事件失败恢复点赞记录
+     * @return 发送成功返回 true，发送失败并已回滚返回 false
+     */
+    private CompletableFuture<Boolean> sendThumbEvent(ThumbEvent thumbEvent, String userThumbKey) {
+        Long loginUserId = thumbEvent.getUserId();
+        Long blogId = thumbEvent.getBlogId();
+        return pulsarTemplate.sendAsync("thumb-topic", thumbEvent).handle((messageId, ex) -> {
+            if (ex == null) {
+                return true;
+            }
+            if (thumbEvent.getType() == ThumbEvent.EventType.INCR) {
+                redisTemplate.opsForHash().delete(userThumbKey, blogId.toString());
+                cacheManager.putIfPresent(userThumbKey, blogId.toString(), ThumbConstant.UN_THUMB_CONSTANT);
+                // 记录日志
+                log.error("点赞事件发送失败: userId={}, blogId={}", loginUserId, blogId, ex);
+            } else {
+                redisTemplate.opsForHash().put(userThumbKey, blogId.toString(), 1L);
+                cacheManager.putIfPresent(userThumbKey, blogId.toString(), 1L);
+                log.error("取消点赞事件发送失败: userId={}, blogId={}", loginUserId, blogId, ex);
+            }
+            return false;
+        });
+    }
 
+    @FunctionalInterface
+    private interface ScriptCallback {
+        Boolean apply(long result, Long loginUserId, Long blogId, String userThumbKey);
     }
 
     /**
@@ -143,7 +283,7 @@ public class ThumbServiceMQImpl extends ServiceImpl<ThumbMapper, Thumb>
      */
     @Override
     public Boolean hasThumb(Long blogId, Long userId) {
-        return redisTemplate.opsForHash().hasKey(RedisKeyUtil.getUserThumbKey(userId), blogId.toString());
+        return cacheManager.hasThumb(userId, blogId);
     }
 }
 
@@ -1,14 +1,13 @@
 package com.example.simplethumb.service.impl;
 
 
-import cn.hutool.core.date.DateTime;
-import cn.hutool.core.date.DateUnit;
-import cn.hutool.core.date.DateUtil;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.example.simplethumb.common.ErrorCode;
 import com.example.simplethumb.constant.RedisLuaScriptConstant;
 import com.example.simplethumb.constant.ThumbConstant;
 import com.example.simplethumb.exception.ThrowUtils;
+import com.example.simplethumb.manager.cache.CacheManager;
+import com.example.simplethumb.manager.redis.GroupCommitScriptExecutor;
 import com.example.simplethumb.mapper.ThumbMapper;
 import com.example.simplethumb.model.dto.thumb.DoThumbRequest;
 import com.example.simplethumb.model.entity.Blog;
@@ -19,14 +18,17 @@ import com.example.simplethumb.service.BlogService;
 import com.example.simplethumb.service.ThumbService;
 import com.example.simplethumb.service.UserService;
 import com.example.simplethumb.util.RedisKeyUtil;
+import com.example.simplethumb.util.TimeSliceClock;
+import com.example.simplethumb.util.VirtualThreadUtil;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 时间片策略实现Redis点赞和取消点赞，基于 Lua 脚本实现
@@ -39,7 +41,9 @@ public class ThumbServiceRedisImpl extends ServiceImpl<ThumbMapper, Thumb>
 
     private final UserService userService;
 
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final GroupCommitScriptExecutor scriptExecutor;
+
+    private final CacheManager cacheManager;
 
     /**
      * 点赞逻辑
@@ -55,23 +59,24 @@ public class ThumbServiceRedisImpl extends ServiceImpl<ThumbMapper, Thumb>
         User loginUser = userService.getLoginUser(request);
         Long blogId = doThumbRequest.getBlogId();
         // 计算时间片
-        String timeSlice = getTimeSlice();
-        // 拼接 Redis Key
-        String tempThumbKey = RedisKeyUtil.getTempThumbKey(timeSlice);
+        String timeSlice = TimeSliceClock.currentSlice();
+        // 拼接 Redis Key，按用户 id 选择时间片的分片
+        String tempThumbKey = RedisKeyUtil.getTempThumbKey(timeSlice, RedisKeyUtil.getTempThumbShard(loginUser.getId()));
         String userThumbKey = RedisKeyUtil.getUserThumbKey(loginUser.getId());
 
         // 执行 Lua 脚本
-        Long result = redisTemplate.execute(
+        Long result = scriptExecutor.execute(
                 RedisLuaScriptConstant.THUMB_SCRIPT,
-                Arrays.asList(tempThumbKey, userThumbKey),
-                loginUser.getId(),
+                Collections.singletonList(userThumbKey),
                 blogId
         );
         // 判断执行结果
         ThrowUtils.throwIf(LuaStatusEnum.FAIL.getValue().equals(result),
                 ErrorCode.OPERATION_ERROR, "点赞失败");
+        // 点赞状态写入成功后再累加时间片临时计数
+        incrTempThumb(result, tempThumbKey, userThumbKey, loginUser.getId(), blogId, 1L);
         // 更新成功则返回
-        return LuaStatusEnum.SUCCESS.getValue().equals(result);
+        return afterScript(result, userThumbKey, blogId, 1L);
 
     }
 
@@ -88,32 +93,129 @@ public class ThumbServiceRedisImpl extends ServiceImpl<ThumbMapper, Thumb>
         User loginUser = userService.getLoginUser(request);
         Long blogId = doThumbRequest.getBlogId();
         // 计算时间片
-        String timeSlice = getTimeSlice();
-        // 拼接 Redis Key
-        String tempThumbKey = RedisKeyUtil.getTempThumbKey(timeSlice);
+        String timeSlice = TimeSliceClock.currentSlice();
+        // 拼接 Redis Key，按用户 id 选择时间片的分片
+        String tempThumbKey = RedisKeyUtil.getTempThumbKey(timeSlice, RedisKeyUtil.getTempThumbShard(loginUser.getId()));
         String userThumbKey = RedisKeyUtil.getUserThumbKey(loginUser.getId());
 
         // 执行 Lua 脚本
-        Long result = redisTemplate.execute(
+        Long result = scriptExecutor.execute(
                 RedisLuaScriptConstant.UNDO_THUMB_SCRIPT,
-                Arrays.asList(tempThumbKey, userThumbKey),
-                loginUser.getId(),
+                Collections.singletonList(userThumbKey),
                 blogId
         );
         // 根据返回值处理结果
         ThrowUtils.throwIf(LuaStatusEnum.FAIL.getValue().equals(result), ErrorCode.OPERATION_ERROR, "取消点赞失败");
+        // 点赞状态删除成功后再扣减时间片临时计数
+        incrTempThumb(result, tempThumbKey, userThumbKey, loginUser.getId(), blogId, -1L);
         // 更新成功则返回
-        return LuaStatusEnum.SUCCESS.getValue().equals(result);
+        return afterScript(result, userThumbKey, blogId, ThumbConstant.UN_THUMB_CONSTANT);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> doThumbAsync(DoThumbRequest doThumbRequest, HttpServletRequest request) {
+        return executeScriptAsync(RedisLuaScriptConstant.THUMB_SCRIPT, doThumbRequest, request, "点赞失败", 1L, 1L);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> undoThumbAsync(DoThumbRequest doThumbRequest, HttpServletRequest request) {
+        return executeScriptAsync(RedisLuaScriptConstant.UNDO_THUMB_SCRIPT, doThumbRequest, request, "取消点赞失败",
+                -1L, ThumbConstant.UN_THUMB_CONSTANT);
+    }
+
+    /**
+     * 异步执行点赞 / 取消点赞脚本
+     * 会话在请求线程上读取；按 id 查询登录用户访问数据库，在虚拟线程上执行；
+     * 开启组提交时脚本随同一批请求一起发送，等待 Redis 期间不占用线程
+     * @param delta 执行成功后累加到时间片临时计数的增量
+     * @param cachedValue 执行成功后写入本地缓存的值
+     */
+    private CompletableFuture<Boolean> executeScriptAsync(RedisScript<Long> script, DoThumbRequest doThumbRequest,
+                                                          HttpServletRequest request, String failMessage,
+                                                          long delta, long cachedValue) {
+        return ThumbService.withLoginUserId(doThumbRequest, request, userService, loginUserId -> CompletableFuture
+                .supplyAsync(() -> userService.getLoginUser(loginUserId), VirtualThreadUtil.EXECUTOR)
+                .thenCompose(loginUser -> {
+                    String tempThumbKey = RedisKeyUtil.getTempThumbKey(TimeSliceClock.currentSlice(),
+                            RedisKeyUtil.getTempThumbShard(loginUser.getId()));
+                    String userThumbKey = RedisKeyUtil.getUserThumbKey(loginUser.getId());
+                    return scriptExecutor.submit(script, Collections.singletonList(userThumbKey),
+                                    doThumbRequest.getBlogId())
+                            .thenCompose(result -> {
+                                // 判断执行结果
+                                ThrowUtils.throwIf(LuaStatusEnum.FAIL.getValue().equals(result),
+                                        ErrorCode.OPERATION_ERROR, failMessage);
+                                if (!LuaStatusEnum.SUCCESS.getValue().equals(result)) {
+                                    return CompletableFuture.completedFuture(result);
+                                }
+                                return submitTempThumb(tempThumbKey, userThumbKey, loginUser.getId(),
+                                        doThumbRequest.getBlogId(), delta).thenApply(ignored -> result);
+                            })
+                            // 同步本地缓存时会广播失效消息，不在组提交线程上执行
+                            .thenApplyAsync(result -> afterScript(result, userThumbKey, doThumbRequest.getBlogId(),
+                                    cachedValue), VirtualThreadUtil.EXECUTOR);
+                }));
+    }
+
+    /**
+     * 点赞状态变更成功后累加时间片临时计数
+     * 临时计数键按用户分片，与用户点赞状态键不在同一个槽中，只能单独写入；
+     * 写入失败时撤销刚才的点赞状态变更，避免点赞状态与落库的计数不一致
+     */
+    private void incrTempThumb(Long result, String tempThumbKey, String userThumbKey, Long userId, Long blogId,
+                               long delta) {
+        if (!LuaStatusEnum.SUCCESS.getValue().equals(result)) {
+            return;
+        }
+        try {
+            scriptExecutor.execute(RedisLuaScriptConstant.TEMP_THUMB_DELTA_SCRIPT,
+                    Collections.singletonList(tempThumbKey), userId, blogId, delta);
+        } catch (RuntimeException e) {
+            revertUserThumb(userThumbKey, blogId, delta, e);
+            throw e;
+        }
+    }
+
+    /**
+     * incrTempThumb 的异步版本，回调在组提交线程上执行，撤销也只提交不等待
+     */
+    private CompletableFuture<Long> submitTempThumb(String tempThumbKey, String userThumbKey, Long userId,
+                                                    Long blogId, long delta) {
+        return scriptExecutor.submit(RedisLuaScriptConstant.TEMP_THUMB_DELTA_SCRIPT,
+                        Collections.singletonList(tempThumbKey), userId, blogId, delta)
+                .whenComplete((ignored, e) -> {
+                    if (e != null) {
+                        revertUserThumb(userThumbKey, blogId, delta, e);
+                    }
+                });
+    }
+
+    /**
+     * 执行相反的脚本撤销点赞状态变更，撤销失败只能记录日志，由对账任务修复
+     */
+    private void revertUserThumb(String userThumbKey, Long blogId, long delta, Throwable cause) {
+        log.error("写入时间片临时计数失败，撤销点赞状态变更, key: {}, blogId: {}", userThumbKey, blogId, cause);
+        RedisScript<Long> revertScript = delta > 0
+                ? RedisLuaScriptConstant.UNDO_THUMB_SCRIPT
+                : RedisLuaScriptConstant.THUMB_SCRIPT;
+        scriptExecutor.submit(revertScript, Collections.singletonList(userThumbKey), blogId)
+                .whenComplete((ignored, e) -> {
+                    if (e != null) {
+                        log.error("撤销点赞状态变更失败, key: {}, blogId: {}", userThumbKey, blogId, e);
+                    }
+                });
     }
 
     /**
-     * 获取当前时间的时间片，用于拼接缓存 Key
-     * @return
+     * 脚本执行成功后同步本地缓存并广播给其他节点，避免本节点和其他节点在过期前读到旧的点赞状态
+     * @param cachedValue 点赞为 1，取消点赞约定为 0
      */
-    private String getTimeSlice() {
-        DateTime nowDate = DateUtil.date();
-        // 获取到当前时间前最近的整数秒，例如 12:30:34, 则获取到 12:30:30
-        return DateUtil.format(nowDate, "HH:mm:") + (DateUtil.second(nowDate) / 10) * 10;
+    private Boolean afterScript(Long result, String userThumbKey, Long blogId, long cachedValue) {
+        if (!LuaStatusEnum.SUCCESS.getValue().equals(result)) {
+            return false;
+        }
+        cacheManager.putIfPresent(userThumbKey, blogId.toString(), cachedValue);
+        return true;
     }
 
     /**
@@ -124,7 +226,8 @@ public class ThumbServiceRedisImpl extends ServiceImpl<ThumbMapper, Thumb>
      */
     @Override
     public Boolean hasThumb(Long blogId, Long userId) {
-        return redisTemplate.opsForHash().hasKey(ThumbConstant.USER_THUMB_KEY_PREFIX + userId, blogId.toString());
+        // 与写入路径同步的本地缓存 -> Redis，点赞后本节点和其他节点立即读到最新状态
+        return cacheManager.hasThumb(userId, blogId);
     }
 }
 
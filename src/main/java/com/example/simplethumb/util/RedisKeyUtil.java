@@ -3,21 +3,76 @@ package com.example.simplethumb.util;
 import com.example.simplethumb.constant.ThumbConstant;
 
 public class RedisKeyUtil {
+    // 分片临时点赞 key 中时间片与分片标签之间的分隔符
+    private static final String TEMP_THUMB_SHARD_SEPARATOR = ":{";
+    // 旧格式分片 key（thumb:temp:12:30:30:s3）的分隔符，补偿任务仍需解析
+    private static final String LEGACY_TEMP_THUMB_SHARD_SEPARATOR = ":s";
+
     /**
-     * 获取用户点赞 key
+     * 获取用户点赞 key，形如 thumb:123
+     * 不带哈希标签，不同用户的点赞记录按各自的 key 分散到 Redis Cluster 的所有槽上
      * @param userId
      * @return
      */
-    public static String getUserThumbKey(Long userId) {
+    public static String getUserThumbKey(long userId) {
         return ThumbConstant.USER_THUMB_KEY_PREFIX + userId;
     }
 
     /**
-     * 获取临时表点赞记录 key
+     * 从用户点赞 key 中解析用户 id
+     * @param userThumbKey
+     * @return
+     */
+    public static long getUserIdFromThumbKey(String userThumbKey) {
+        return Long.parseLong(userThumbKey.substring(userThumbKey.lastIndexOf(':') + 1));
+    }
+
+    /**
+     * 获取临时表点赞记录 key（未分片）
      * @param time
      * @return
      */
     public static String getTempThumbKey(String time) {
-        return ThumbConstant.TEMP_THUMB_KEY_PREFIX.formatted(time);
+        return ThumbConstant.TEMP_THUMB_KEY_PREFIX + time;
+    }
+
+    /**
+     * 获取临时表点赞记录的分片 key，形如 thumb:temp:12:30:30:{s3}
+     * 同一时间片的数据分散到 TEMP_THUMB_SHARDS 个 key 上，在 Redis Cluster 中落到不同的槽；
+     * 点赞脚本只操作用户点赞 key，临时计数由单独的单 key 脚本写入，两者不需要在同一个槽
+     * @param time 时间片
+     * @param shard 分片号，见 getTempThumbShard
+     * @return
+     */
+    public static String getTempThumbKey(String time, int shard) {
+        return ThumbConstant.TEMP_THUMB_KEY_PREFIX + time + ":" + getShardTag(shard);
+    }
+
+    private static String getShardTag(int shard) {
+        return "{s" + shard + "}";
+    }
+
+    /**
+     * 按用户 id 选择分片，同一用户对同一博客的操作总在同一个分片里累加
+     * @param userId
+     * @return
+     */
+    public static int getTempThumbShard(long userId) {
+        long h = userId * 0x9E3779B97F4A7C15L;
+        return (int) ((h ^ (h >>> 32)) & (ThumbConstant.TEMP_THUMB_SHARDS - 1));
+    }
+
+    /**
+     * 从临时表点赞记录 key 中解析时间片，分片、旧格式分片与未分片的 key 都支持
+     * @param tempThumbKey
+     * @return
+     */
+    public static String getTempThumbSlice(String tempThumbKey) {
+        String suffix = tempThumbKey.substring(ThumbConstant.TEMP_THUMB_KEY_PREFIX.length());
+        int separator = suffix.lastIndexOf(TEMP_THUMB_SHARD_SEPARATOR);
+        if (separator < 0) {
+            separator = suffix.lastIndexOf(LEGACY_TEMP_THUMB_SHARD_SEPARATOR);
+        }
+        return separator < 0 ? suffix : suffix.substring(0, separator);
     }
 }
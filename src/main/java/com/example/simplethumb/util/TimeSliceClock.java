@@ -0,0 +1,53 @@
+package com.example.simplethumb.util;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 点赞临时数据的时间片时钟，每 10 秒一个时间片，标签形如 12:30:30
+ * 当前时间片的标签缓存起来，同一时间片内的请求直接返回，不再每次 DateUtil.format
+ */
+public final class TimeSliceClock {
+    // 时间片长度
+    public static final long SLICE_MILLIS = 10_000;
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss")
+            .withZone(ZoneId.systemDefault());
+
+    private static volatile Slice latest = new Slice(Long.MIN_VALUE, "");
+
+    private TimeSliceClock() {
+    }
+
+    /**
+     * 当前时间所在的时间片，点赞请求写入这个时间片
+     */
+    public static String currentSlice() {
+        return sliceAt(System.currentTimeMillis());
+    }
+
+    /**
+     * 上一个时间片，同步任务消费这个时间片，此时已没有请求写入
+     */
+    public static String previousSlice() {
+        return sliceAt(System.currentTimeMillis() - SLICE_MILLIS);
+    }
+
+    static String sliceAt(long epochMillis) {
+        // 时区偏移都是整分钟，按 epoch 毫秒取整与按本地时间取整一致
+        long start = epochMillis - Math.floorMod(epochMillis, SLICE_MILLIS);
+        Slice slice = latest;
+        if (slice.startMillis() == start) {
+            return slice.label();
+        }
+        Slice computed = new Slice(start, FORMATTER.format(Instant.ofEpochMilli(start)));
+        // 只缓存较新的时间片，同步任务查询上一个时间片时不覆盖
+        if (start > slice.startMillis()) {
+            latest = computed;
+        }
+        return computed.label();
+    }
+
+    private record Slice(long startMillis, String label) {
+    }
+}
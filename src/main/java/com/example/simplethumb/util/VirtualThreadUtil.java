@@ -0,0 +1,16 @@
+package com.example.simplethumb.util;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * 虚拟线程工具
+ */
+public class VirtualThreadUtil {
+    /**
+     * 每个任务一个虚拟线程，异步接口中的阻塞调用（会话、数据库、Redis）放在这里执行，
+     * 等待 I/O 时虚拟线程让出载体线程，不占用平台线程
+     */
+    public static final Executor EXECUTOR = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("thumb-async-", 0).factory());
+}
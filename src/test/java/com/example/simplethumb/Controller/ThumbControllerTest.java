@@ -0,0 +1,74 @@
+package com.example.simplethumb.Controller;
+
+import com.example.simplethumb.common.BaseResponse;
+import com.example.simplethumb.common.ErrorCode;
+import com.example.simplethumb.exception.BusinessException;
+import com.example.simplethumb.model.dto.thumb.DoThumbRequest;
+import com.example.simplethumb.service.ThumbService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 异步点赞接口的返回格式测试：两个异步接口的异常都按全局异常处理器的规则返回
+ */
+class ThumbControllerTest {
+
+    private final ThumbService thumbService = mock(ThumbService.class);
+
+    private final HttpServletRequest request = mock(HttpServletRequest.class);
+
+    private final DoThumbRequest doThumbRequest = new DoThumbRequest();
+
+    private final ThumbController controller = new ThumbController(new SimpleMeterRegistry());
+
+    ThumbControllerTest() {
+        ReflectionTestUtils.setField(controller, "thumbService", thumbService);
+    }
+
+    @Test
+    void businessErrorsKeepTheirCodeOnBothEndpoints() {
+        // 虚拟线程上抛出的异常被包装成 CompletionException
+        CompletionException failure = new CompletionException(new BusinessException(ErrorCode.NOT_LOGIN_ERROR));
+        when(thumbService.doThumbAsync(doThumbRequest, request)).thenReturn(CompletableFuture.failedFuture(failure));
+        when(thumbService.undoThumbAsync(doThumbRequest, request)).thenReturn(CompletableFuture.failedFuture(failure));
+
+        BaseResponse<Boolean> thumbed = controller.doThumbAsync(doThumbRequest, request).join();
+        BaseResponse<Boolean> undone = controller.cancelThumbAsync(doThumbRequest, request).join();
+
+        assertThat(thumbed).isEqualTo(undone);
+        assertThat(thumbed.getCode()).isEqualTo(ErrorCode.NOT_LOGIN_ERROR.getCode());
+        assertThat(thumbed.getMessage()).isEqualTo(ErrorCode.NOT_LOGIN_ERROR.getMessage());
+    }
+
+    @Test
+    void otherErrorsBecomeSystemErrorsOnBothEndpoints() {
+        IllegalStateException failure = new IllegalStateException("connection reset");
+        when(thumbService.doThumbAsync(doThumbRequest, request)).thenReturn(CompletableFuture.failedFuture(failure));
+        when(thumbService.undoThumbAsync(doThumbRequest, request)).thenReturn(CompletableFuture.failedFuture(failure));
+
+        BaseResponse<Boolean> thumbed = controller.doThumbAsync(doThumbRequest, request).join();
+        BaseResponse<Boolean> undone = controller.cancelThumbAsync(doThumbRequest, request).join();
+
+        assertThat(thumbed).isEqualTo(undone);
+        assertThat(thumbed.getCode()).isEqualTo(ErrorCode.SYSTEM_ERROR.getCode());
+        assertThat(thumbed.getMessage()).isEqualTo("系统错误");
+    }
+
+    @Test
+    void successfulCallsReturnTheResult() {
+        when(thumbService.doThumbAsync(doThumbRequest, request)).thenReturn(CompletableFuture.completedFuture(true));
+        when(thumbService.undoThumbAsync(doThumbRequest, request)).thenReturn(CompletableFuture.completedFuture(true));
+
+        assertThat(controller.doThumbAsync(doThumbRequest, request).join().getData()).isTrue();
+        assertThat(controller.cancelThumbAsync(doThumbRequest, request).join().getData()).isTrue();
+    }
+}
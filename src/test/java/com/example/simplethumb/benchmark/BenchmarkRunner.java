@@ -0,0 +1,32 @@
+package com.example.simplethumb.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.results.format.ResultFormatType;
+
+/**
+ * 依次以不同线程数运行基准测试，结果写入 target/jmh-threads-N.json，便于对比前后两次的数据
+ * 同时启用 GC 分析器，结果中的 gc.alloc.rate.norm 是每次调用分配的字节数
+ * 用法：mvn -P benchmark test-compile exec:exec -Dbenchmark.args="HeavyKeeperBenchmark.add"
+ */
+public class BenchmarkRunner {
+
+    private static final int[] THREAD_COUNTS = {1, 4, 16};
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "HeavyKeeperBenchmark|CacheManagerBenchmark";
+        for (int threads : THREAD_COUNTS) {
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("target/jmh-threads-" + threads + ".json")
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.simplethumb.benchmark;
+
+import com.example.simplethumb.manager.cache.CacheInvalidationBus;
+import com.example.simplethumb.manager.cache.CacheManager;
+import com.example.simplethumb.manager.cache.CacheManagerTestSupport;
+import com.example.simplethumb.manager.cache.ClusterHotKeyManager;
+import com.example.simplethumb.manager.cache.HotKeySnapshotStore;
+import com.example.simplethumb.manager.cache.Item;
+import com.example.simplethumb.util.RedisKeyUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * CacheManager 本地缓存命中路径的基准测试
+ * Redis 用 Mockito 替身代替，本地缓存预先放入全部条目，测量的是热点记录 + Caffeine 查询的开销
+ * hasThumbHit 走 (userId, blogId) 近缓存，配合 BenchmarkRunner 的 GC 分析器，gc.alloc.rate.norm 应为 0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CacheManagerBenchmark {
+
+    private static final int USERS = 90;
+
+    private static final int BLOGS_PER_USER = 10;
+
+    private static final int SEQUENCE_LENGTH = 1 << 16;
+
+    @Param({"0.8", "1.2"})
+    public double skew;
+
+    private CacheManager cacheManager;
+
+    private ClusterHotKeyManager clusterHotKeyManager;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+        HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.get(any(), any())).thenReturn(1L);
+
+        clusterHotKeyManager = new ClusterHotKeyManager(new HotKeySnapshotStore() {
+            @Override
+            public void publish(String nodeId, List<Item> items, Duration ttl) {
+            }
+
+            @Override
+            public Map<String, List<Item>> loadAll(Duration ttl) {
+                return Map.of();
+            }
+        });
+        CacheInvalidationBus bus = new CacheInvalidationBus() {
+            @Override
+            public void publish(String key) {
+            }
+
+            @Override
+            public void subscribe(Consumer<String> listener) {
+            }
+        };
+        cacheManager = CacheManagerTestSupport.newCacheManager(redisTemplate, clusterHotKeyManager,
+                new SimpleMeterRegistry(), bus, null, Ticker.systemTicker(),
+                Executors.newVirtualThreadPerTaskExecutor(), null);
+        Cache<String, Object> localCache = CacheManagerTestSupport.localCache(cacheManager);
+        // 所有条目预先放入本地缓存，总数小于缓存容量，基准中只走命中路径
+        for (int user = 0; user < USERS; user++) {
+            for (int blog = 0; blog < BLOGS_PER_USER; blog++) {
+                localCache.put(hashKey(user) + ":" + blog, 1L);
+                // 读取一次放入近缓存
+                cacheManager.getThumbValue(user, blog);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cacheManager.closeHotKeySketches();
+        clusterHotKeyManager.close();
+    }
+
+    private static String hashKey(long user) {
+        return RedisKeyUtil.getUserThumbKey(user);
+    }
+
+    /**
+     * 每个线程独立的访问序列，排名 r 对应用户 r / 10 的第 r % 10 篇博客
+     */
+    @State(Scope.Thread)
+    public static class Requests {
+        String[] hashKeys;
+        String[] keys;
+        long[] userIds;
+        long[] blogIds;
+        int index;
+
+        @Setup(Level.Trial)
+        public void setUp(CacheManagerBenchmark benchmark, ThreadParams threadParams) {
+            long[] ranks = ZipfKeys.generate(USERS * BLOGS_PER_USER, benchmark.skew, SEQUENCE_LENGTH,
+                    threadParams.getThreadIndex() + 1);
+            hashKeys = new String[SEQUENCE_LENGTH];
+            keys = new String[SEQUENCE_LENGTH];
+            userIds = new long[SEQUENCE_LENGTH];
+            blogIds = new long[SEQUENCE_LENGTH];
+            for (int i = 0; i < SEQUENCE_LENGTH; i++) {
+                userIds[i] = ranks[i] / BLOGS_PER_USER;
+                blogIds[i] = ranks[i] % BLOGS_PER_USER;
+                hashKeys[i] = hashKey(userIds[i]);
+                keys[i] = Long.toString(blogIds[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    public Object getCacheHit(Requests requests) {
+        int i = requests.index++ & (SEQUENCE_LENGTH - 1);
+        return cacheManager.getCache(requests.hashKeys[i], requests.keys[i]);
+    }
+
+    @Benchmark
+    public boolean hasThumbHit(Requests requests) {
+        int i = requests.index++ & (SEQUENCE_LENGTH - 1);
+        return cacheManager.hasThumb(requests.userIds[i], requests.blogIds[i]);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.simplethumb.benchmark;
+
+import com.example.simplethumb.manager.cache.ConcurrentHeavyKeeper;
+import com.example.simplethumb.manager.cache.HeavyKeeper;
+import com.example.simplethumb.manager.cache.Item;
+import com.example.simplethumb.manager.cache.TopK;
+import com.example.simplethumb.manager.cache.WindowedHeavyKeeper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 热点检测 sketch 的基准测试
+ * 线程数由 BenchmarkRunner 或命令行 -t 指定，key 服从不同倾斜度的 Zipf 分布
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HeavyKeeperBenchmark {
+
+    private static final int KEY_SPACE = 1_000_000;
+
+    private static final int SEQUENCE_LENGTH = 1 << 16;
+
+    @Param({"heavy", "concurrent", "windowed"})
+    public String impl;
+
+    @Param({"0.8", "1.0", "1.2"})
+    public double skew;
+
+    private TopK topK;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // 参数与 CacheManager 中的博客维度一致
+        topK = switch (impl) {
+            case "heavy" -> new HeavyKeeper(100, 100000, 5, 0.92, 10);
+            case "concurrent" -> new ConcurrentHeavyKeeper(100, 100000, 5, 0.92, 10);
+            case "windowed" -> new WindowedHeavyKeeper(100, 100000, 5, 0.92, 10, Duration.ofSeconds(10));
+            default -> throw new IllegalArgumentException(impl);
+        };
+        // 预先写入一轮，让 TopK 处于填满的稳态
+        for (String key : ZipfKeys.toStrings(ZipfKeys.generate(KEY_SPACE, skew, SEQUENCE_LENGTH, 0), 0)) {
+            topK.add(key, 1);
+        }
+    }
+
+    /**
+     * 每个线程独立的 key 序列
+     */
+    @State(Scope.Thread)
+    public static class Keys {
+        String[] keys;
+        int index;
+
+        @Setup(Level.Trial)
+        public void setUp(HeavyKeeperBenchmark benchmark, ThreadParams threadParams) {
+            keys = ZipfKeys.toStrings(
+                    ZipfKeys.generate(KEY_SPACE, benchmark.skew, SEQUENCE_LENGTH, threadParams.getThreadIndex() + 1), 0);
+        }
+
+        String next() {
+            return keys[index++ & (SEQUENCE_LENGTH - 1)];
+        }
+    }
+
+    @Benchmark
+    public Object add(Keys keys) {
+        return topK.add(keys.next(), 1);
+    }
+
+    @Benchmark
+    public boolean addAndCheckHot(Keys keys) {
+        return topK.addAndCheckHot(keys.next(), 1);
+    }
+
+    @Benchmark
+    public List<Item> list() {
+        return topK.list();
+    }
+
+    /**
+     * 衰减与写入并发进行时的开销，每次调用都是一次完整的 fading
+     */
+    @Benchmark
+    public void fading(Blackhole blackhole) {
+        topK.fading();
+        blackhole.consume(topK.total());
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.simplethumb.benchmark;
+
+import com.example.simplethumb.manager.cache.CacheInvalidationBus;
+import com.example.simplethumb.manager.cache.CacheManager;
+import com.example.simplethumb.manager.cache.CacheManagerTestSupport;
+import com.example.simplethumb.manager.cache.ClusterHotKeyManager;
+import com.example.simplethumb.manager.cache.InMemoryHotKeySnapshotStore;
+import com.example.simplethumb.manager.redis.GroupCommitScriptExecutor;
+import com.example.simplethumb.model.dto.thumb.DoThumbRequest;
+import com.example.simplethumb.model.entity.User;
+import com.example.simplethumb.service.UserService;
+import com.example.simplethumb.service.impl.ThumbServiceRedisImpl;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisScriptingCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * 点赞接口两种模式的负载对比：同时到达 REQUESTS 个点赞请求，全部完成所需的时间
+ * blocking：与 Tomcat 默认配置一样由 200 个平台线程执行同步的 doThumb，每个线程阻塞在登录用户查询和 Lua 脚本上
+ * async：doThumbAsync 在请求线程上读取会话，在虚拟线程上查询登录用户，脚本经组提交合并为 pipeline 发送
+ * 登录用户查询（会话 + 数据库）模拟 1ms，每次 Redis 往返模拟 200µs；redisRoundTrips 是每轮测量中 Redis 往返的总次数
+ * 用法：mvn -P benchmark test-compile exec:exec -Dbenchmark.args="ThumbEndpointBenchmark"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ThumbEndpointBenchmark {
+
+    private static final int REQUESTS = 5000;
+
+    // Tomcat 默认最大线程数
+    private static final int TOMCAT_MAX_THREADS = 200;
+
+    private static final long LOGIN_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final long REDIS_ROUND_TRIP_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    @Param({"blocking", "async"})
+    public String mode;
+
+    private final AtomicLong redisRoundTrips = new AtomicLong();
+
+    private final AtomicInteger nextBlogId = new AtomicInteger();
+
+    private HttpServletRequest[] requests;
+
+    private ThumbServiceRedisImpl thumbService;
+
+    private GroupCommitScriptExecutor scriptExecutor;
+
+    private CacheManager cacheManager;
+
+    private ExecutorService tomcatThreads;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        requests = new HttpServletRequest[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest();
+            request.setAttribute("userId", (long) i);
+            requests[i] = request;
+        }
+        // 用动态代理代替 Mockito，Mockito 查找桩时的同步块会让大量并发调用互相等待
+        UserService userService = (UserService) Proxy.newProxyInstance(UserService.class.getClassLoader(),
+                new Class<?>[]{UserService.class}, (proxy, method, args) -> {
+                    // 读取会话不计耗时，按 id 查询用户模拟数据库查询
+                    if (method.getName().equals("getLoginUserId")) {
+                        return ((HttpServletRequest) args[0]).getAttribute("userId");
+                    }
+                    if (!method.getName().equals("getLoginUser")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    LockSupport.parkNanos(LOGIN_NANOS);
+                    User user = new User();
+                    user.setId(args[0] instanceof HttpServletRequest request
+                            ? (Long) request.getAttribute("userId") : (Long) args[0]);
+                    return user;
+                });
+
+        scriptExecutor = new GroupCommitScriptExecutor();
+        ReflectionTestUtils.setField(scriptExecutor, "redisTemplate", new SimulatedRedisTemplate());
+        ReflectionTestUtils.setField(scriptExecutor, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(scriptExecutor, "enabled", mode.equals("async"));
+        scriptExecutor.init();
+        // 点赞成功后同步本地缓存，广播为空操作
+        CacheInvalidationBus bus = new CacheInvalidationBus() {
+            @Override
+            public void publish(String key) {
+            }
+
+            @Override
+            public void subscribe(Consumer<String> listener) {
+            }
+        };
+        cacheManager = CacheManagerTestSupport.newCacheManager(new SimulatedRedisTemplate(),
+                new ClusterHotKeyManager(new InMemoryHotKeySnapshotStore()), new SimpleMeterRegistry(), bus, null,
+                Ticker.systemTicker(), Executors.newVirtualThreadPerTaskExecutor(), null);
+        thumbService = new ThumbServiceRedisImpl(userService, scriptExecutor, cacheManager);
+        tomcatThreads = Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        tomcatThreads.shutdown();
+        scriptExecutor.shutdown();
+        cacheManager.closeHotKeySketches();
+    }
+
+    /**
+     * 本次测量的 Redis 往返次数
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RoundTrips {
+        public long redisRoundTrips;
+    }
+
+    @Benchmark
+    public int burst(RoundTrips roundTrips) {
+        long before = redisRoundTrips.get();
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>(REQUESTS);
+        for (HttpServletRequest request : requests) {
+            DoThumbRequest doThumbRequest = new DoThumbRequest();
+            doThumbRequest.setBlogId((long) nextBlogId.incrementAndGet());
+            if (mode.equals("async")) {
+                futures.add(thumbService.doThumbAsync(doThumbRequest, request));
+            } else {
+                futures.add(CompletableFuture.supplyAsync(() -> thumbService.doThumb(doThumbRequest, request), tomcatThreads));
+            }
+        }
+        int succeeded = 0;
+        for (CompletableFuture<Boolean> future : futures) {
+            if (future.join()) {
+                succeeded++;
+            }
+        }
+        roundTrips.redisRoundTrips += redisRoundTrips.get() - before;
+        return succeeded;
+    }
+
+    /**
+     * 每次脚本调用或 pipeline 模拟一次 Redis 往返，脚本总是返回成功
+     */
+    private class SimulatedRedisTemplate extends RedisTemplate<String, Object> {
+
+        // 只有组提交线程会执行 pipeline，计数不需要区分线程
+        private final AtomicInteger pipelinedCalls = new AtomicInteger();
+
+        private final RedisConnection pipelinedConnection = mock(RedisConnection.class, withSettings().stubOnly());
+
+        SimulatedRedisTemplate() {
+            setKeySerializer(RedisSerializer.string());
+            setValueSerializer(new GenericToStringSerializer<>(Object.class));
+            RedisScriptingCommands scriptingCommands = mock(RedisScriptingCommands.class, withSettings().stubOnly());
+            when(pipelinedConnection.scriptingCommands()).thenReturn(scriptingCommands);
+            when(scriptingCommands.evalSha(anyString(), any(ReturnType.class), anyInt(), any(byte[][].class)))
+                    .thenAnswer(invocation -> {
+                        pipelinedCalls.incrementAndGet();
+                        return null;
+                    });
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+            redisRoundTrips.incrementAndGet();
+            LockSupport.parkNanos(REDIS_ROUND_TRIP_NANOS);
+            return (T) Long.valueOf(1);
+        }
+
+        @Override
+        public List<Object> executePipelined(RedisCallback<?> action) {
+            redisRoundTrips.incrementAndGet();
+            pipelinedCalls.set(0);
+            action.doInRedis(pipelinedConnection);
+            LockSupport.parkNanos(REDIS_ROUND_TRIP_NANOS);
+            List<Object> results = new ArrayList<>(pipelinedCalls.get());
+            for (int i = 0; i < pipelinedCalls.get(); i++) {
+                results.add(1L);
+            }
+            return results;
+        }
+    }
+}
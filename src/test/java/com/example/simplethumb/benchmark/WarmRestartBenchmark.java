@@ -0,0 +1,212 @@
+package com.example.simplethumb.benchmark;
+
+import com.example.simplethumb.manager.cache.CacheInvalidationBus;
+import com.example.simplethumb.manager.cache.CacheManager;
+import com.example.simplethumb.manager.cache.CacheManagerTestSupport;
+import com.example.simplethumb.manager.cache.ClusterHotKeyManager;
+import com.example.simplethumb.manager.cache.HotKeySnapshotStore;
+import com.example.simplethumb.manager.cache.Item;
+import com.example.simplethumb.util.RedisKeyUtil;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 重启后达到稳态命中率所需的时间：冷启动与读取预热快照对比
+ * 试验开始前用同样的访问分布运行一个 "上一次部署" 的 CacheManager，记下稳态命中率并保存快照；
+ * 每次测量新建一个 CacheManager（warm=true 时先 warmUp），回放请求直到最近一个窗口的本地命中率达到稳态的 95%
+ * 得分是所用时间，requests 是所用请求数；Redis 用 Mockito 替身代替，每次读取模拟 50µs 的往返
+ * 用法：mvn -P benchmark test-compile exec:exec -Dbenchmark.args="WarmRestartBenchmark"
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WarmRestartBenchmark {
+
+    private static final int USERS = 1000;
+
+    private static final int BLOGS_PER_USER = 100;
+
+    private static final int SEQUENCE_LENGTH = 1 << 18;
+
+    private static final int WINDOW = 2000;
+
+    private static final long REDIS_ROUND_TRIP_NANOS = 50_000;
+
+    // 上一次部署运行的时长，足够热点检测和本地缓存进入稳态
+    private static final Duration PREVIOUS_RUN = Duration.ofSeconds(10);
+
+    // 最长等待时间，超过则认为未达到稳态
+    private static final Duration GIVE_UP_AFTER = Duration.ofSeconds(60);
+
+    @Param({"false", "true"})
+    public boolean warm;
+
+    private String[] hashKeys;
+
+    private String[] keys;
+
+    private Path snapshotPath;
+
+    private double targetHitRatio;
+
+    private final AtomicLong redisReads = new AtomicLong();
+
+    private CacheManager cacheManager;
+
+    private ClusterHotKeyManager clusterHotKeyManager;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() throws IOException {
+        long[] ranks = ZipfKeys.generate(USERS * BLOGS_PER_USER, 1.0, SEQUENCE_LENGTH, 1);
+        hashKeys = new String[SEQUENCE_LENGTH];
+        keys = new String[SEQUENCE_LENGTH];
+        for (int i = 0; i < SEQUENCE_LENGTH; i++) {
+            hashKeys[i] = RedisKeyUtil.getUserThumbKey(ranks[i] / BLOGS_PER_USER);
+            keys[i] = Long.toString(ranks[i] % BLOGS_PER_USER);
+        }
+        snapshotPath = Files.createTempDirectory("warm-restart").resolve("warm-snapshot.bin");
+
+        // 上一次部署：运行到稳态，记下命中率并在停机时保存快照
+        setUpCacheManager();
+        long deadline = System.nanoTime() + PREVIOUS_RUN.toNanos();
+        int index = 0;
+        double hitRatio = 0;
+        while (System.nanoTime() < deadline) {
+            hitRatio = replayWindow(index);
+            index += WINDOW;
+        }
+        targetHitRatio = hitRatio * 0.95;
+        cacheManager.shutdown();
+        clusterHotKeyManager.close();
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() {
+        setUpCacheManager();
+        if (warm) {
+            cacheManager.warmUp();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDownIteration() {
+        cacheManager.closeHotKeySketches();
+        clusterHotKeyManager.close();
+    }
+
+    /**
+     * 本次测量使用的请求数
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Progress {
+        public long requests;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            requests = 0;
+        }
+    }
+
+    @Benchmark
+    public double timeToSteadyState(Progress progress) {
+        long deadline = System.nanoTime() + GIVE_UP_AFTER.toNanos();
+        int index = 0;
+        double hitRatio;
+        do {
+            hitRatio = replayWindow(index);
+            index += WINDOW;
+        } while (hitRatio < targetHitRatio && System.nanoTime() < deadline);
+        progress.requests = index;
+        return hitRatio;
+    }
+
+    /**
+     * 回放一个窗口的请求
+     * @return 窗口内没有回源 Redis 的请求比例
+     */
+    private double replayWindow(int start) {
+        long readsBefore = redisReads.get();
+        for (int i = start; i < start + WINDOW; i++) {
+            int n = i & (SEQUENCE_LENGTH - 1);
+            cacheManager.getCache(hashKeys[n], keys[n]);
+        }
+        return 1 - (double) (redisReads.get() - readsBefore) / WINDOW;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void setUpCacheManager() {
+        RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+        HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.get(any(), any())).thenAnswer(invocation -> {
+            redisReads.incrementAndGet();
+            LockSupport.parkNanos(REDIS_ROUND_TRIP_NANOS);
+            return 1L;
+        });
+        when(hashOperations.multiGet(any(), any())).thenAnswer(invocation -> {
+            LockSupport.parkNanos(REDIS_ROUND_TRIP_NANOS);
+            Collection<?> fields = invocation.getArgument(1);
+            return fields.stream().map(field -> (Object) 1L).toList();
+        });
+
+        clusterHotKeyManager = new ClusterHotKeyManager(new HotKeySnapshotStore() {
+            @Override
+            public void publish(String nodeId, List<Item> items, Duration ttl) {
+            }
+
+            @Override
+            public Map<String, List<Item>> loadAll(Duration ttl) {
+                return Map.of();
+            }
+        });
+        CacheInvalidationBus bus = new CacheInvalidationBus() {
+            @Override
+            public void publish(String key) {
+            }
+
+            @Override
+            public void subscribe(Consumer<String> listener) {
+            }
+        };
+        cacheManager = CacheManagerTestSupport.newCacheManager(redisTemplate, clusterHotKeyManager,
+                new SimpleMeterRegistry(), bus, null, Ticker.systemTicker(),
+                Executors.newVirtualThreadPerTaskExecutor(), snapshotPath);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.simplethumb.benchmark;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * 预先生成服从 Zipf 分布的 key 序列，基准测试中按顺序循环读取，不把随机数生成计入耗时
+ */
+final class ZipfKeys {
+
+    private ZipfKeys() {
+    }
+
+    /**
+     * @param items key 的取值范围 [0, items)，排名越靠前出现越频繁
+     * @param skew Zipf 指数，越大越集中
+     * @param length 序列长度，需为 2 的幂，便于用掩码循环
+     */
+    static long[] generate(int items, double skew, int length, long seed) {
+        if (Integer.bitCount(length) != 1) {
+            throw new IllegalArgumentException("length must be a power of two");
+        }
+        double[] cdf = new double[items];
+        double sum = 0;
+        for (int i = 0; i < items; i++) {
+            sum += 1 / Math.pow(i + 1, skew);
+            cdf[i] = sum;
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] keys = new long[length];
+        for (int i = 0; i < length; i++) {
+            int rank = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+            keys[i] = rank >= 0 ? rank : -rank - 1;
+        }
+        return keys;
+    }
+
+    /**
+     * 同一序列的字符串形式，模拟业务中以博客 id 字符串作为 key
+     */
+    static String[] toStrings(long[] keys, long offset) {
+        String[] result = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            result[i] = Long.toString(offset + keys[i]);
+        }
+        return result;
+    }
+}
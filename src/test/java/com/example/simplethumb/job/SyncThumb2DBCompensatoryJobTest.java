@@ -0,0 +1,41 @@
+package com.example.simplethumb.job;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 补偿任务按时间片先后同步测试
+ */
+class SyncThumb2DBCompensatoryJobTest {
+
+    @Test
+    void slicesAreGroupedInTimeOrder() {
+        Map<String, List<String>> keysBySlice = SyncThumb2DBCompensatoryJob.groupBySliceInTimeOrder(List.of(
+                "thumb:temp:01:00:10:{s1}",
+                "thumb:temp:00:59:50:{s1}",
+                "thumb:temp:01:00:10:{s2}",
+                "thumb:temp:00:59:50:s1"), "02:00:00");
+
+        assertThat(keysBySlice.keySet()).containsExactly("00:59:50", "01:00:10");
+        assertThat(keysBySlice.get("00:59:50")).containsExactlyInAnyOrder("thumb:temp:00:59:50:{s1}",
+                "thumb:temp:00:59:50:s1");
+        assertThat(keysBySlice.get("01:00:10")).containsExactlyInAnyOrder("thumb:temp:01:00:10:{s1}",
+                "thumb:temp:01:00:10:{s2}");
+    }
+
+    @Test
+    void slicesLeftFromThePreviousDayComeFirst() {
+        Map<String, List<String>> keysBySlice = SyncThumb2DBCompensatoryJob.groupBySliceInTimeOrder(List.of(
+                "thumb:temp:00:00:10:{s0}",
+                "thumb:temp:23:59:50:{s0}",
+                "thumb:temp:01:59:40:{s0}",
+                "thumb:temp:12:00:00:{s0}"), "02:00:00");
+
+        // 23:59:50 和 12:00:00 晚于当前时间片，是前一天的数据
+        assertThat(keysBySlice.keySet()).containsExactly("12:00:00", "23:59:50", "00:00:10", "01:59:40");
+    }
+}
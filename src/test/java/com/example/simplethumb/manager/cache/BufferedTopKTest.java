@@ -0,0 +1,136 @@
+package com.example.simplethumb.manager.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * BufferedTopK 测试
+ */
+class BufferedTopKTest {
+
+    @Test
+    void aggregatesBufferedKeysFromManyThreads() throws Exception {
+        ConcurrentHeavyKeeper delegate = new ConcurrentHeavyKeeper(10, 10000, 5, 0.92, 5);
+        try (BufferedTopK topK = new BufferedTopK(delegate, Duration.ofHours(1), Duration.ofHours(1))) {
+            int threads = 8;
+            // 溢出批次总数不超过后台队列容量，即使后台线程一直没有运行也不会丢弃
+            int hits = 2000;
+            CountDownLatch done = new CountDownLatch(threads);
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            for (int t = 0; t < threads; t++) {
+                pool.execute(() -> {
+                    for (int i = 0; i < hits; i++) {
+                        topK.addAndCheckHot("blog", 1);
+                        topK.addAndCheckHot(42L, 1);
+                    }
+                    done.countDown();
+                });
+            }
+            assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+            pool.shutdown();
+            topK.flush();
+
+            assertThat(topK.total()).isEqualTo(2L * threads * hits);
+            assertThat(topK.list()).containsExactlyInAnyOrder(
+                    new Item("blog", threads * hits), new Item("42", threads * hits));
+        }
+    }
+
+    @Test
+    void overflowIsWrittenByDrainerThread() throws Exception {
+        ConcurrentHeavyKeeper sketch = new ConcurrentHeavyKeeper(10, 10000, 5, 0.92, 5);
+        Set<String> writers = ConcurrentHashMap.newKeySet();
+        TopK delegate = new TopK() {
+            @Override
+            public AddResult add(String key, int increment) {
+                writers.add(Thread.currentThread().getName());
+                return sketch.add(key, increment);
+            }
+
+            @Override
+            public List<Item> list() {
+                return sketch.list();
+            }
+
+            @Override
+            public BlockingQueue<Item> expelled() {
+                return sketch.expelled();
+            }
+
+            @Override
+            public void fading() {
+                sketch.fading();
+            }
+
+            @Override
+            public long total() {
+                return sketch.total();
+            }
+        };
+        try (BufferedTopK topK = new BufferedTopK(delegate, Duration.ofHours(1), Duration.ofHours(1))) {
+            // 写满一个缓冲区
+            for (int i = 0; i < 256; i++) {
+                topK.addAndCheckHot("blog", 1);
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (topK.total() < 256 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertThat(topK.total()).isEqualTo(256);
+            // 写满时请求线程只交出批次，由后台线程写入 sketch
+            assertThat(writers).containsExactly("hot-key-drainer");
+            assertThat(topK.droppedSampleCount()).isZero();
+        }
+    }
+
+    @Test
+    void closeIsIdempotent() {
+        ConcurrentHeavyKeeper delegate = new ConcurrentHeavyKeeper(10, 10000, 5, 0.92, 5);
+        BufferedTopK topK = new BufferedTopK(delegate, Duration.ofHours(1), Duration.ofHours(1));
+        topK.addAndCheckHot("blog", 1);
+        topK.close();
+        topK.addAndCheckHot("blog", 1);
+        // 第二次关闭不再汇总
+        topK.close();
+
+        assertThat(topK.total()).isEqualTo(1);
+    }
+
+    @Test
+    void hotDecisionComesFromPublishedSnapshot() {
+        ConcurrentHeavyKeeper delegate = new ConcurrentHeavyKeeper(10, 10000, 5, 0.92, 5);
+        try (BufferedTopK topK = new BufferedTopK(delegate, Duration.ofHours(1), Duration.ofHours(1))) {
+            for (int i = 0; i < 10; i++) {
+                // 快照尚未刷新，不会被判为热点
+                assertThat(topK.addAndCheckHot("blog", 1)).isFalse();
+            }
+            topK.flush();
+            assertThat(topK.addAndCheckHot("blog", 1)).isTrue();
+            assertThat(topK.addAndCheckHot("other", 1)).isFalse();
+        }
+    }
+
+    @Test
+    void staleSnapshotIsRefreshedByCaller() {
+        ConcurrentHeavyKeeper delegate = new ConcurrentHeavyKeeper(10, 10000, 5, 0.92, 5);
+        try (BufferedTopK topK = new BufferedTopK(delegate, Duration.ofHours(1), Duration.ZERO)) {
+            boolean hot = false;
+            for (int i = 0; i < 5; i++) {
+                hot = topK.addAndCheckHot("blog", 1);
+            }
+            // 允许的延迟为 0，每次判断前都会先汇总
+            assertThat(hot).isTrue();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.simplethumb.manager.cache;
+
+import com.example.simplethumb.util.RedisKeyUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * CacheManager 批量查询测试：本地命中的不回源，其余一次 HMGET
+ */
+class CacheBatchTest {
+
+    private static final String HASH_KEY = RedisKeyUtil.getUserThumbKey(1);
+
+    private final InMemoryCacheInvalidationBus channel = new InMemoryCacheInvalidationBus();
+
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+
+    @SuppressWarnings("unchecked")
+    private final HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+
+    CacheBatchTest() {
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+    }
+
+    @Test
+    void missesAreFetchedWithOneHmgetAndCachedLocally() {
+        CacheManager cacheManager = CacheManagerTestSupport.newCacheManager(redisTemplate, channel.node(), true);
+        when(hashOperations.get(HASH_KEY, "100")).thenReturn(7L);
+        assertThat(cacheManager.getCache(HASH_KEY, "100")).isEqualTo(7L);
+        when(hashOperations.multiGet(HASH_KEY, List.of("101", "102", "103")))
+                .thenReturn(Arrays.asList(8L, null, 0));
+
+        List<String> keys = List.of("100", "101", "102", "103");
+        assertThat(cacheManager.getCacheBatch(HASH_KEY, keys)).containsExactly(7L, 8L, null, 0);
+
+        // 第二次全部在本地回答：命中本地缓存或负缓存
+        assertThat(cacheManager.getCacheBatch(HASH_KEY, keys)).containsExactly(7L, 8L, null, 0);
+        verify(hashOperations, times(1)).multiGet(any(), any());
+        verify(hashOperations, times(1)).get(any(), any());
+    }
+
+    @Test
+    void localHitsSkipRedisEntirely() {
+        CacheManager cacheManager = CacheManagerTestSupport.newCacheManager(redisTemplate, channel.node(), true);
+        cacheManager.localCache().put(HASH_KEY + ":100", 7L);
+        cacheManager.localCache().put(HASH_KEY + ":101", 8L);
+
+        assertThat(cacheManager.getCacheBatch(HASH_KEY, List.of("100", "101"))).containsExactly(7L, 8L);
+        verify(hashOperations, never()).multiGet(any(), any());
+    }
+
+    @Test
+    void userDimensionIsRecordedOncePerBatch() {
+        CacheManager cacheManager = CacheManagerTestSupport.newCacheManager(redisTemplate, channel.node(), true);
+        when(hashOperations.multiGet(any(), any())).thenReturn(Arrays.asList(1L, 1L, 1L));
+
+        cacheManager.getCacheBatch(HASH_KEY, List.of("100", "101", "102"));
+
+        HotKeySketches sketches = cacheManager.hotKeySketches();
+        assertThat(sketches.get(HotKeyDimension.USER).estimate(HASH_KEY)).isEqualTo(3);
+        assertThat(sketches.get(HotKeyDimension.BLOG).estimate("101")).isEqualTo(1);
+        assertThat(sketches.get(HotKeyDimension.ENTRY).estimate(HASH_KEY + ":102")).isEqualTo(1);
+    }
+
+    @Test
+    void thumbBatchIsAnsweredFromLikedSetWithoutRedis() {
+        CacheManager cacheManager = CacheManagerTestSupport.newCacheManager(redisTemplate, channel.node(), true);
+        when(hashOperations.size(HASH_KEY)).thenReturn(2L);
+        when(hashOperations.entries(HASH_KEY)).thenReturn(Map.of("100", 1L, "102", 1L));
+        when(hashOperations.multiGet(any(), any())).thenReturn(Arrays.asList(1L, null));
+        // 第一批回源一次，用户成为热点后加载点赞集合
+        assertThat(cacheManager.hasThumbBatch(1, List.of(100L, 101L))).containsExactly(true, false);
+
+        assertThat(cacheManager.hasThumbBatch(1, List.of(100L, 101L, 102L, 103L)))
+                .containsExactly(true, false, true, false);
+        verify(hashOperations, times(1)).multiGet(any(), any());
+        verify(hashOperations, times(1)).size(HASH_KEY);
+    }
+
+    @Test
+    void thumbBatchUsesNearCacheAndFetchesOnlyTheRest() {
+        CacheManager cacheManager = CacheManagerTestSupport.newCacheManager(redisTemplate, channel.node(), false);
+        // 不加载点赞集合
+        when(hashOperations.size(HASH_KEY)).thenReturn(1_000_000L);
+        // 读取一次放入近缓存
+        cacheManager.localCache().put(HASH_KEY + ":100", 1L);
+        assertThat(cacheManager.getThumbValue(1, 100)).isEqualTo(1L);
+        when(hashOperations.multiGet(HASH_KEY, List.of("101", "102"))).thenReturn(Arrays.asList(1L, null));
+
+        assertThat(cacheManager.hasThumbBatch(1, List.of(100L, 101L, 102L))).containsExactly(true, true, false);
+        verify(hashOperations, times(1)).multiGet(HASH_KEY, List.of("101", "102"));
+    }
+
+    @Test
+    void hotUserBatchLoadsLikedSetOnce() {
+        CacheManager cacheManager = CacheManagerTestSupport.newCacheManager(redisTemplate, channel.node(), true);
+        when(hashOperations.size(HASH_KEY)).thenReturn(1_000_000L);
+        when(hashOperations.multiGet(any(), any())).thenReturn(Arrays.asList(1L, 1L, 1L));
+
+        cacheManager.getCacheBatch(HASH_KEY, List.of("100", "101", "102"));
+
+        verify(hashOperations, times(1)).size(HASH_KEY);
+        verify(hashOperations, never()).get(any(), any());
+    }
+
+    @Test
+    void zeroInAnyNumericTypeMeansNotLiked() {
+        assertThat(CacheManager.isLikedValue(null)).isFalse();
+        assertThat(CacheManager.isLikedValue(0)).isFalse();
+        assertThat(CacheManager.isLikedValue(0L)).isFalse();
+        assertThat(CacheManager.isLikedValue(1)).isTrue();
+        assertThat(CacheManager.isLikedValue(12345678901L)).isTrue();
+    }
+}
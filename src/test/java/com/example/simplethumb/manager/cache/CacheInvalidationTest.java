@@ -0,0 +1,72 @@
+package com.example.simplethumb.manager.cache;
+
+import com.example.simplethumb.util.RedisKeyUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 多节点本地缓存失效广播与版本号测试
+ */
+class CacheInvalidationTest {
+
+    private static final String HASH_KEY = RedisKeyUtil.getUserThumbKey(1);
+
+    private static final String KEY = "100";
+
+    private static final String COMPOSITE_KEY = HASH_KEY + ":" + KEY;
+
+    private final InMemoryCacheInvalidationBus channel = new InMemoryCacheInvalidationBus();
+
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+
+    @SuppressWarnings("unchecked")
+    private final HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+
+    CacheInvalidationTest() {
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+    }
+
+    @Test
+    void writeOnOneNodeInvalidatesOtherNodes() {
+        CacheManager nodeA = CacheManagerTestSupport.newCacheManager(redisTemplate, channel.node(), true);
+        CacheManager nodeB = CacheManagerTestSupport.newCacheManager(redisTemplate, channel.node(), true);
+        when(hashOperations.get(HASH_KEY, KEY)).thenReturn(1L);
+        assertThat(nodeA.getCache(HASH_KEY, KEY)).isEqualTo(1L);
+        assertThat(nodeB.getCache(HASH_KEY, KEY)).isEqualTo(1L);
+
+        // 节点 A 取消点赞：Redis 已更新，A 的本地缓存改为新值，B 的条目被删除
+        when(hashOperations.get(HASH_KEY, KEY)).thenReturn(0L);
+        nodeA.putIfPresent(HASH_KEY, KEY, 0L);
+
+        assertThat(nodeA.localCache().getIfPresent(COMPOSITE_KEY)).isEqualTo(0L);
+        assertThat(nodeB.localCache().getIfPresent(COMPOSITE_KEY)).isNull();
+        assertThat(nodeB.getCache(HASH_KEY, KEY)).isEqualTo(0L);
+    }
+
+    @Test
+    void loadRacingWithInvalidationIsNotCached() {
+        CacheManager node = CacheManagerTestSupport.newCacheManager(redisTemplate, channel.node(), true);
+        CacheInvalidationBus writer = channel.node();
+        // 回源读到旧值的同时，另一个节点写入并广播失效
+        when(hashOperations.get(HASH_KEY, KEY)).thenAnswer(invocation -> {
+            writer.publish(COMPOSITE_KEY);
+            return 1L;
+        });
+
+        assertThat(node.getCache(HASH_KEY, KEY)).isEqualTo(1L);
+        Cache<String, Object> localCache = node.localCache();
+        assertThat(localCache.getIfPresent(COMPOSITE_KEY)).isNull();
+
+        // 没有并发写入时正常缓存
+        when(hashOperations.get(HASH_KEY, KEY)).thenReturn(0L);
+        assertThat(node.getCache(HASH_KEY, KEY)).isEqualTo(0L);
+        assertThat(localCache.getIfPresent(COMPOSITE_KEY)).isEqualTo(0L);
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.simplethumb.manager.cache;
+
+import com.example.simplethumb.util.RedisKeyUtil;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * CacheManager 回源合并与后台刷新测试
+ */
+class CacheLoadingTest {
+
+    private static final String HASH_KEY = RedisKeyUtil.getUserThumbKey(1);
+
+    private static final String KEY = "100";
+
+    private static final String COMPOSITE_KEY = HASH_KEY + ":" + KEY;
+
+    private static final int THREADS = 16;
+
+    private final InMemoryCacheInvalidationBus channel = new InMemoryCacheInvalidationBus();
+
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+
+    @SuppressWarnings("unchecked")
+    private final HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    // 后台刷新任务先排队，由测试决定何时执行
+    private final Queue<Runnable> refreshTasks = new ArrayDeque<>();
+
+    CacheLoadingTest() {
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+    }
+
+    @Test
+    void concurrentMissesShareOneRedisLoad() throws Exception {
+        CacheManager cacheManager = CacheManagerTestSupport.newCacheManager(redisTemplate, channel.node(), false);
+        CountDownLatch waiting = new CountDownLatch(THREADS - 1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(hashOperations.get(HASH_KEY, KEY)).thenAnswer(invocation -> {
+            // 第一个回源的请求阻塞在 Redis 上，直到其他请求都已开始等待
+            release.await(5, TimeUnit.SECONDS);
+            return 1L;
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<Object>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(pool.submit(() -> {
+                waiting.countDown();
+                return cacheManager.getCache(HASH_KEY, KEY);
+            }));
+        }
+        waiting.await();
+        // 给其他线程时间进入等待
+        Thread.sleep(200);
+        release.countDown();
+        for (Future<Object> result : results) {
+            assertThat(result.get()).isEqualTo(1L);
+        }
+        pool.shutdown();
+
+        verify(hashOperations, times(1)).get(HASH_KEY, KEY);
+    }
+
+    @Test
+    void waitersSeeTheOriginalFailureAndTheNextReadRetries() throws Exception {
+        CacheManager cacheManager = CacheManagerTestSupport.newCacheManager(redisTemplate, channel.node(), false);
+        CountDownLatch waiting = new CountDownLatch(THREADS - 1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(hashOperations.get(HASH_KEY, KEY)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            throw new RedisConnectionFailureException("connection reset");
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<Object>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(pool.submit(() -> {
+                waiting.countDown();
+                return cacheManager.getCache(HASH_KEY, KEY);
+            }));
+        }
+        waiting.await();
+        Thread.sleep(200);
+        release.countDown();
+        // 回源请求和等待者拿到的都是原始异常，不是包装后的 CompletionException
+        for (Future<Object> result : results) {
+            assertThatThrownBy(result::get).isInstanceOf(ExecutionException.class)
+                    .cause().isInstanceOf(RedisConnectionFailureException.class);
+        }
+        pool.shutdown();
+        verify(hashOperations, times(1)).get(HASH_KEY, KEY);
+
+        // 失败的回源不会留在合并表中，下一次读取重新回源
+        doReturn(1L).when(hashOperations).get(HASH_KEY, KEY);
+        assertThat(cacheManager.getCache(HASH_KEY, KEY)).isEqualTo(1L);
+        verify(hashOperations, times(2)).get(HASH_KEY, KEY);
+    }
+
+    @Test
+    void hotEntryRefreshesInBackground() {
+        CacheManager cacheManager = newCacheManagerWithManualClock();
+        when(hashOperations.get(HASH_KEY, KEY)).thenReturn(1L);
+        assertThat(cacheManager.getCache(HASH_KEY, KEY)).isEqualTo(1L);
+
+        // 超过刷新间隔后读取：立即返回旧值，后台重新加载
+        when(hashOperations.get(HASH_KEY, KEY)).thenReturn(2L);
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        assertThat(cacheManager.getCache(HASH_KEY, KEY)).isEqualTo(1L);
+        assertThat(refreshTasks).isNotEmpty();
+        runRefreshTasks();
+
+        assertThat(cacheManager.getCache(HASH_KEY, KEY)).isEqualTo(2L);
+        verify(hashOperations, times(2)).get(HASH_KEY, KEY);
+    }
+
+    @Test
+    void nearCacheHitsStillTriggerRefresh() {
+        CacheManager cacheManager = newCacheManagerWithManualClock();
+        when(hashOperations.get(HASH_KEY, KEY)).thenReturn(1L);
+        assertThat(cacheManager.getThumbValue(1, 100)).isEqualTo(1L);
+
+        // 之后的读取都由近缓存回答，不经过 Caffeine
+        when(hashOperations.get(HASH_KEY, KEY)).thenReturn(2L);
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        assertThat(cacheManager.getThumbValue(1, 100)).isEqualTo(1L);
+
+        // 汇总近缓存命中时读取一次本地缓存，到期的条目在后台刷新，刷新结果替换近缓存中的旧值
+        cacheManager.flushNearCacheHits();
+        runRefreshTasks();
+
+        assertThat(cacheManager.getThumbValue(1, 100)).isEqualTo(2L);
+        verify(hashOperations, times(2)).get(HASH_KEY, KEY);
+    }
+
+    @Test
+    void nearCacheIsClearedWithoutWaitingForRemovalNotifications() {
+        CacheManager cacheManager = newCacheManagerWithManualClock();
+        when(hashOperations.get(HASH_KEY, KEY)).thenReturn(1L);
+        assertThat(cacheManager.getThumbValue(1, 100)).isEqualTo(1L);
+
+        // 删除通知在排队的任务中，尚未执行
+        cacheManager.putIfPresent(HASH_KEY, KEY, 0L);
+        assertThat(cacheManager.getThumbValue(1, 100)).isEqualTo(0L);
+
+        when(hashOperations.get(HASH_KEY, KEY)).thenReturn(3L);
+        cacheManager.invalidateLocal(COMPOSITE_KEY);
+        assertThat(cacheManager.getThumbValue(1, 100)).isEqualTo(3L);
+    }
+
+    @Test
+    void refreshRacingWithInvalidationIsDiscarded() {
+        CacheManager cacheManager = newCacheManagerWithManualClock();
+        when(hashOperations.get(HASH_KEY, KEY)).thenReturn(1L);
+        assertThat(cacheManager.getCache(HASH_KEY, KEY)).isEqualTo(1L);
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        assertThat(cacheManager.getCache(HASH_KEY, KEY)).isEqualTo(1L);
+
+        // 刷新读到旧值之后、写回之前，其他节点写入并广播失效
+        cacheManager.invalidateLocal(COMPOSITE_KEY);
+        runRefreshTasks();
+
+        assertThat(cacheManager.localCache().getIfPresent(COMPOSITE_KEY)).isNull();
+    }
+
+    @Test
+    void shutdownWaitsForRunningRefreshesAndStopsTheExecutor() throws Exception {
+        ExecutorService refreshExecutor = Executors.newSingleThreadExecutor();
+        CacheManager cacheManager = CacheManagerTestSupport.newCacheManager(redisTemplate, channel.node(), false,
+                Ticker.systemTicker(), refreshExecutor);
+        CountDownLatch refreshing = new CountDownLatch(1);
+        refreshExecutor.execute(() -> {
+            refreshing.countDown();
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        refreshing.await();
+
+        cacheManager.shutdown();
+
+        // 进行中的刷新已结束，之后不会再有刷新访问 Redis
+        assertThat(refreshExecutor.isTerminated()).isTrue();
+    }
+
+    // 队列中还有 Caffeine 自身的维护任务，一并执行
+    private void runRefreshTasks() {
+        for (Runnable task; (task = refreshTasks.poll()) != null; ) {
+            task.run();
+        }
+    }
+
+    private CacheManager newCacheManagerWithManualClock() {
+        return CacheManagerTestSupport.newCacheManager(redisTemplate, channel.node(), true,
+                nanos::get, refreshTasks::add);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.simplethumb.manager.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * 不启动 Spring 容器构造 CacheManager，依赖通过构造方法传入
+ */
+public final class CacheManagerTestSupport {
+
+    private CacheManagerTestSupport() {
+    }
+
+    /**
+     * @param admitAll 为 true 时使用不缓冲的 sketch 且任何访问都准入本地缓存，便于测试缓存本身的行为
+     */
+    static CacheManager newCacheManager(RedisTemplate<String, Object> redisTemplate,
+                                        CacheInvalidationBus bus, boolean admitAll) {
+        return newCacheManager(redisTemplate, bus, admitAll, Ticker.systemTicker(), Runnable::run);
+    }
+
+    /**
+     * @param ticker 本地缓存使用的时钟，用于测试过期和刷新
+     * @param refreshExecutor 本地缓存后台刷新使用的线程池
+     */
+    static CacheManager newCacheManager(RedisTemplate<String, Object> redisTemplate, CacheInvalidationBus bus,
+                                        boolean admitAll, Ticker ticker, Executor refreshExecutor) {
+        // 默认不读写预热快照，需要的测试自行传入路径
+        return newCacheManager(redisTemplate, new ClusterHotKeyManager(new InMemoryHotKeySnapshotStore()),
+                new SimpleMeterRegistry(), bus, admitAll ? admitAllSketches() : null, ticker, refreshExecutor, null);
+    }
+
+    /**
+     * 构造并完成初始化，等同于 Spring 依次调用 init 和 getLocalCache
+     * @param hotKeySketches 为 null 时使用默认配置
+     * @param warmSnapshotPath 为 null 时不读写预热快照
+     */
+    public static CacheManager newCacheManager(RedisTemplate<String, Object> redisTemplate,
+                                               ClusterHotKeyManager clusterHotKeyManager, MeterRegistry meterRegistry,
+                                               CacheInvalidationBus bus, HotKeySketches hotKeySketches,
+                                               Ticker ticker, Executor refreshExecutor, Path warmSnapshotPath) {
+        CacheManager cacheManager = new CacheManager(redisTemplate, clusterHotKeyManager, meterRegistry, bus,
+                hotKeySketches, ticker, refreshExecutor, warmSnapshotPath);
+        cacheManager.init();
+        cacheManager.getLocalCache();
+        return cacheManager;
+    }
+
+    /**
+     * 当前的本地缓存实例，供其他包中的基准测试直接写入
+     */
+    public static Cache<String, Object> localCache(CacheManager cacheManager) {
+        return cacheManager.localCache();
+    }
+
+    /**
+     * 不缓冲的 sketch，准入规则为空，任何访问都准入本地缓存
+     */
+    public static HotKeySketches admitAllSketches() {
+        return new HotKeySketches(Map.of(
+                HotKeyDimension.BLOG, new ConcurrentHeavyKeeper(100, 1000, 3, 0.92, 1),
+                HotKeyDimension.USER, new ConcurrentHeavyKeeper(100, 1000, 3, 0.92, 1),
+                HotKeyDimension.ENTRY, new ConcurrentHeavyKeeper(100, 1000, 3, 0.92, 1)),
+                List.of(EnumSet.noneOf(HotKeyDimension.class)));
+    }
+}
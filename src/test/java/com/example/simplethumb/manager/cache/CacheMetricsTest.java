@@ -0,0 +1,84 @@
+package com.example.simplethumb.manager.cache;
+
+import com.example.simplethumb.util.RedisKeyUtil;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * CacheManager 分级缓存指标测试
+ */
+class CacheMetricsTest {
+
+    private static final String HASH_KEY = RedisKeyUtil.getUserThumbKey(1);
+
+    private final InMemoryCacheInvalidationBus channel = new InMemoryCacheInvalidationBus();
+
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+
+    @SuppressWarnings("unchecked")
+    private final HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+
+    private final CacheManager cacheManager;
+
+    private final MeterRegistry meterRegistry;
+
+    CacheMetricsTest() {
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.get(HASH_KEY, "100")).thenReturn(7L);
+        meterRegistry = new SimpleMeterRegistry();
+        cacheManager = CacheManagerTestSupport.newCacheManager(redisTemplate,
+                new ClusterHotKeyManager(new InMemoryHotKeySnapshotStore()), meterRegistry, channel.node(),
+                CacheManagerTestSupport.admitAllSketches(), Ticker.systemTicker(), Runnable::run, null);
+    }
+
+    @Test
+    void lookupsAreCountedPerTier() {
+        // 第一次回源 Redis，之后命中本地缓存
+        for (int i = 0; i < 3; i++) {
+            cacheManager.getCache(HASH_KEY, "100");
+        }
+        // 不存在的记录：第一次回源未命中，第二次命中负缓存
+        cacheManager.getCache(HASH_KEY, "101");
+        cacheManager.getCache(HASH_KEY, "101");
+        // 第一次经本地缓存放入近缓存，之后两次命中近缓存，在汇总时计数
+        for (int i = 0; i < 3; i++) {
+            cacheManager.getThumbValue(1, 100);
+        }
+        cacheManager.flushNearCacheHits();
+
+        assertThat(requests("local", "hit")).isEqualTo(3);
+        assertThat(requests("local", "miss")).isEqualTo(3);
+        assertThat(requests("absent", "hit")).isEqualTo(1);
+        assertThat(requests("redis", "hit")).isEqualTo(1);
+        assertThat(requests("redis", "miss")).isEqualTo(1);
+        assertThat(requests("near", "hit")).isEqualTo(2);
+        assertThat(meterRegistry.get("cache.redis.fetch").tag("op", "hget").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void caffeineStatsAndSketchSizesAreExported() {
+        cacheManager.getCache(HASH_KEY, "100");
+        cacheManager.getCache(HASH_KEY, "100");
+
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "local").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "absent").tag("result", "miss")
+                .functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.evictions").tag("cache", "local").functionCounter()).isNotNull();
+        assertThat(meterRegistry.get("hotkey.topk.size").tag("dimension", "entry").gauge().value()).isEqualTo(1);
+        assertThat(meterRegistry.get("hotkey.total").tag("dimension", "entry").gauge().value()).isEqualTo(2);
+    }
+
+    private double requests(String tier, String result) {
+        return meterRegistry.get("cache.requests").tag("tier", tier).tag("result", result).counter().count();
+    }
+}
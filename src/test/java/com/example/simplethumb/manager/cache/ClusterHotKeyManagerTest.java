@@ -0,0 +1,64 @@
+package com.example.simplethumb.manager.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 集群热点合并测试
+ */
+class ClusterHotKeyManagerTest {
+
+    @Test
+    void keyBelowLocalThresholdOnEveryNodeBecomesGlobalHotKey() {
+        InMemoryHotKeySnapshotStore store = new InMemoryHotKeySnapshotStore();
+        List<ClusterHotKeyManager> nodes = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            nodes.add(new ClusterHotKeyManager(store));
+        }
+        // 轮询负载均衡：每个节点只看到 viral 的 4 次访问，低于 minCount = 10
+        for (int round = 0; round < 4; round++) {
+            for (ClusterHotKeyManager node : nodes) {
+                node.record("viral");
+                node.record("cold-" + round + "-" + node.hashCode());
+            }
+        }
+        nodes.forEach(ClusterHotKeyManager::refresh);
+        // 后刷新的节点才能看到所有节点的快照，再同步一轮
+        nodes.forEach(ClusterHotKeyManager::refresh);
+
+        for (ClusterHotKeyManager node : nodes) {
+            assertThat(node.isHotKey("viral")).isTrue();
+            assertThat(node.isHotKey("cold-0-" + node.hashCode())).isFalse();
+            node.close();
+        }
+    }
+
+    @Test
+    void candidateSketchDoesNotQueueExpelledKeys() {
+        ClusterHotKeyManager node = new ClusterHotKeyManager(new InMemoryHotKeySnapshotStore());
+        // 远多于 K 个不同的 key，候选 TopK 不断挤出旧 key
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 5000; i++) {
+                node.record("key-" + round + "-" + i, round + 1);
+            }
+            node.refresh();
+            assertThat(node.candidates().expelled()).isEmpty();
+        }
+        assertThat(node.candidates().expelledDropCount()).isZero();
+        node.close();
+    }
+
+    @Test
+    void mergeSumsCountsAndKeepsTopK() {
+        List<Item> merged = ClusterHotKeyManager.merge(List.of(
+                List.of(new Item("a", 6), new Item("b", 3), new Item("c", 9)),
+                List.of(new Item("a", 6), new Item("b", 3), new Item("d", 1))
+        ), 2, 5);
+
+        assertThat(merged).containsExactly(new Item("a", 12), new Item("c", 9));
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.simplethumb.manager.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ConcurrentHeavyKeeper 多线程正确性测试
+ */
+class ConcurrentHeavyKeeperTest {
+
+    private static final int THREADS = 16;
+
+    private static final int HOT_KEYS = 10;
+
+    private static final int HITS_PER_THREAD = 2000;
+
+    @Test
+    void concurrentAddKeepsTotalAndFindsHotKeys() throws Exception {
+        ConcurrentHeavyKeeper topK = new ConcurrentHeavyKeeper(20, 100000, 5, 0.92, 10);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<Long>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                long added = 0;
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < HITS_PER_THREAD; i++) {
+                    for (int h = 0; h < HOT_KEYS; h++) {
+                        topK.add("hot-" + h, 1);
+                        added++;
+                    }
+                    // 混入大量只出现一两次的冷 key
+                    topK.add("cold-" + random.nextInt(1_000_000), 1);
+                    added++;
+                }
+                return added;
+            }));
+        }
+        start.countDown();
+        long expectedTotal = 0;
+        for (Future<Long> future : futures) {
+            expectedTotal += future.get();
+        }
+        pool.shutdown();
+
+        // LongAdder 累加不丢失
+        assertThat(topK.total()).isEqualTo(expectedTotal);
+
+        List<Item> items = topK.list();
+        assertThat(items).hasSizeLessThanOrEqualTo(20);
+        Set<String> top = items.stream().limit(HOT_KEYS).map(Item::key).collect(Collectors.toSet());
+        Set<String> expected = IntStream.range(0, HOT_KEYS).mapToObj(h -> "hot-" + h).collect(Collectors.toSet());
+        assertThat(top).isEqualTo(expected);
+
+        int trueCount = THREADS * HITS_PER_THREAD;
+        for (Item item : items.subList(0, HOT_KEYS)) {
+            assertThat(item.count()).isBetween((int) (trueCount * 0.9), trueCount);
+        }
+    }
+
+    @Test
+    void sizeMatchesListWithoutCopying() {
+        ConcurrentHeavyKeeper topK = new ConcurrentHeavyKeeper(3, 1000, 3, 0.92, 1);
+        assertThat(topK.size()).isZero();
+        for (int i = 0; i < 5; i++) {
+            topK.add("key-" + i, 10 + i);
+        }
+
+        assertThat(topK.size()).isEqualTo(3).isEqualTo(topK.list().size());
+        try (BufferedTopK buffered = new BufferedTopK(topK, Duration.ofMillis(100), Duration.ofSeconds(1))) {
+            assertThat(buffered.size()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void fadingHalvesCountsAndTotal() {
+        ConcurrentHeavyKeeper topK = new ConcurrentHeavyKeeper(10, 1000, 3, 0.92, 1);
+        for (int i = 0; i < 100; i++) {
+            topK.add("blog", 1);
+        }
+        topK.fading();
+
+        assertThat(topK.total()).isEqualTo(50);
+        assertThat(topK.list()).containsExactly(new Item("blog", 50));
+        // 衰减后桶中计数同样减半，再次累加从 50 开始
+        assertThat(topK.add("blog", 1).isHotKey()).isTrue();
+        assertThat(topK.list()).containsExactly(new Item("blog", 51));
+    }
+
+    @Test
+    void hotKeyCheckDoesNotAllocate() {
+        ConcurrentHeavyKeeper topK = new ConcurrentHeavyKeeper(100, 100000, 5, 0.92, 10);
+        String key = "1909000000000000001";
+        long id = Long.parseLong(key);
+        // 预热，让 key 进入 TopK 并完成 JIT
+        for (int i = 0; i < 20_000; i++) {
+            topK.addAndCheckHot(key, 1);
+            topK.addAndCheckHot(id, 1);
+            topK.addAndCheckHot("cold", 1);
+        }
+        assertThat(topK.addAndCheckHot(key, 1)).isTrue();
+        assertThat(topK.addAndCheckHot(id, 1)).isTrue();
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        boolean hot = true;
+        for (int i = 0; i < 100_000; i++) {
+            hot &= topK.addAndCheckHot(key, 1);
+            hot &= topK.addAndCheckHot(id, 1);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertThat(hot).isTrue();
+        // 20 万次调用，允许测量本身的少量分配
+        assertThat(allocated).isLessThan(4096);
+        // 字符串 key 和数字 id 统计到同一个 key 上
+        assertThat(topK.list().getFirst().key()).isEqualTo(key);
+    }
+
+    @Test
+    void expelledQueueIsBoundedAndCountsDrops() {
+        ConcurrentHeavyKeeper topK = new ConcurrentHeavyKeeper(1, 100000, 3, 0.92, 1);
+        int keys = ExpelledQueue.DEFAULT_CAPACITY + 1000;
+        // k = 1，每个新 key 都会挤出上一个
+        for (int i = 0; i < keys; i++) {
+            topK.add("key-" + i, 1);
+        }
+
+        assertThat(topK.expelled()).hasSize(ExpelledQueue.DEFAULT_CAPACITY);
+        assertThat(topK.expelledDropCount()).isPositive();
+        assertThat(topK.expelled().size() + topK.expelledDropCount()).isLessThan(keys);
+        // 队列满时丢弃最早的，保留的是最近被挤出的 key
+        assertThat(topK.expelled().stream().reduce((first, second) -> second).orElseThrow().key())
+                .isEqualTo("key-" + (keys - 2));
+        assertThat(topK.expelled()).extracting(Item::key).doesNotContain("key-0");
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.simplethumb.manager.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * HeavyKeeper 桶存储内存占用对比
+ * 通过线程分配字节数统计构造 sketch 时的堆内分配量，和原先 Bucket[depth][width] 对象布局对比
+ */
+class HeavyKeeperFootprintTest {
+
+    private static final int WIDTH = 100000;
+
+    private static final int DEPTH = 5;
+
+    // 桶数组以外的固定分配（TopK 堆、索引表、被挤出队列等）的上限
+    private static final long FIXED_OVERHEAD_BYTES = 256 * 1024;
+
+    @Test
+    void flatStorageUsesFarLessHeapThanBucketObjects() {
+        long legacy = allocatedBytes(() -> {
+            LegacyBucket[][] buckets = new LegacyBucket[DEPTH][WIDTH];
+            for (int i = 0; i < DEPTH; i++) {
+                for (int j = 0; j < WIDTH; j++) {
+                    buckets[i][j] = new LegacyBucket();
+                }
+            }
+            return buckets;
+        });
+        long parallelArrays = allocatedBytes(() -> new HeavyKeeper(100, WIDTH, DEPTH, 0.92, 10));
+        long packedOnHeap = allocatedBytes(() -> new ConcurrentHeavyKeeper(100, WIDTH, DEPTH, 0.92, 10));
+        long packedOffHeap = allocatedBytes(() -> new ConcurrentHeavyKeeper(100, WIDTH, DEPTH, 0.92, 10, true));
+
+        int buckets = WIDTH * DEPTH;
+        // 每个桶一个对象：对象头 + long + int 至少 16 字节，再加行数组中的引用
+        assertThat(legacy).isGreaterThan((long) buckets * 16);
+        // 平行数组：每个桶一个 long 指纹 + 一个 int 计数，其余只有 TopK 堆等少量对象
+        assertThat(parallelArrays).isBetween((long) buckets * 12, (long) buckets * 12 + FIXED_OVERHEAD_BYTES);
+        // 打包存储：每个桶一个 long
+        assertThat(packedOnHeap).isBetween((long) buckets * 8, (long) buckets * 8 + FIXED_OVERHEAD_BYTES);
+        // 原布局约 14MB（50 万个 24 字节对象 + 行数组），平行数组约 6MB，打包后约 4MB，堆外几乎不占堆
+        assertThat(parallelArrays).isLessThan(legacy / 2);
+        assertThat(packedOnHeap).isLessThan(legacy / 3);
+        assertThat(packedOffHeap).isLessThan(64 * 1024);
+    }
+
+    @Test
+    void offHeapStorageFindsHotKeys() {
+        ConcurrentHeavyKeeper topK = new ConcurrentHeavyKeeper(10, 10000, 5, 0.92, 5, true);
+        for (int i = 0; i < 1000; i++) {
+            topK.add("hot", 1);
+            topK.add("cold-" + i, 1);
+        }
+        assertThat(topK.list().getFirst()).isEqualTo(new Item("hot", 1000));
+        topK.fading();
+        assertThat(topK.list().getFirst()).isEqualTo(new Item("hot", 500));
+    }
+
+    private static long allocatedBytes(Supplier<Object> allocation) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        Object result = allocation.get();
+        long after = threads.getThreadAllocatedBytes(threadId);
+        assertThat(result).isNotNull();
+        return after - before;
+    }
+
+    /**
+     * 原 HeavyKeeper 每个桶一个对象的布局
+     */
+    private static class LegacyBucket {
+        long fingerprint;
+        int count;
+    }
+}
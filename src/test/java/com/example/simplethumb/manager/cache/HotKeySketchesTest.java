@@ -0,0 +1,95 @@
+package com.example.simplethumb.manager.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 按维度准入的本地缓存命中率测试，用固定种子生成的访问序列回放 CacheManager.getCache 的准入逻辑
+ */
+class HotKeySketchesTest {
+
+    private static final int CACHE_SIZE = 1000;
+
+    private static final int REQUESTS = 200_000;
+
+    @Test
+    void admissionNeedsAllDimensionsOfARule() {
+        HotKeySketches sketches = newSketches(List.of(
+                EnumSet.of(HotKeyDimension.ENTRY),
+                EnumSet.of(HotKeyDimension.USER, HotKeyDimension.BLOG)));
+        int blog = HotKeyDimension.BLOG.mask();
+        int user = HotKeyDimension.USER.mask();
+        int entry = HotKeyDimension.ENTRY.mask();
+
+        assertThat(sketches.admits(0)).isFalse();
+        assertThat(sketches.admits(blog)).isFalse();
+        assertThat(sketches.admits(user)).isFalse();
+        assertThat(sketches.admits(blog | user)).isTrue();
+        assertThat(sketches.admits(entry)).isTrue();
+        assertThat(sketches.admits(HotKeySketches.withHot(user, HotKeyDimension.BLOG))).isTrue();
+    }
+
+    @Test
+    void perDimensionAdmissionBeatsBlogOnlyAdmission() {
+        double blogOnly = replay(newSketches(List.of(EnumSet.of(HotKeyDimension.BLOG))));
+        double perDimension = replay(newSketches(List.of(
+                EnumSet.of(HotKeyDimension.ENTRY),
+                EnumSet.of(HotKeyDimension.USER, HotKeyDimension.BLOG))));
+
+        assertThat(perDimension).isGreaterThan(blogOnly + 0.1);
+    }
+
+    private static HotKeySketches newSketches(List<Set<HotKeyDimension>> rules) {
+        return new HotKeySketches(Map.of(
+                HotKeyDimension.BLOG, new ConcurrentHeavyKeeper(100, 100000, 5, 0.92, 10),
+                HotKeyDimension.USER, new ConcurrentHeavyKeeper(100, 20000, 3, 0.92, 10),
+                HotKeyDimension.ENTRY, new ConcurrentHeavyKeeper(1000, 100000, 5, 0.92, 3)), rules);
+    }
+
+    /**
+     * 访问序列：
+     * 60% 是热门博客被大量不同用户各看一次（复合键几乎不重复）
+     * 40% 是 200 个活跃用户反复查看各自关注的 3 篇博客（复合键反复读取）
+     * @return 本地缓存命中率
+     */
+    private static double replay(HotKeySketches sketches) {
+        Cache<String, Object> localCache = Caffeine.newBuilder()
+                .maximumSize(CACHE_SIZE)
+                .executor(Runnable::run)
+                .build();
+        Random random = new Random(42);
+        long hits = 0;
+        for (int i = 0; i < REQUESTS; i++) {
+            long userId;
+            long blogId;
+            if (random.nextInt(10) < 6) {
+                userId = 1_000_000 + random.nextInt(10_000_000);
+                blogId = random.nextInt(5);
+            } else {
+                int user = random.nextInt(200);
+                userId = user;
+                blogId = 1000 + user * 3L + random.nextInt(3);
+            }
+            String hashKey = "thumb:" + userId;
+            String key = Long.toString(blogId);
+            String compositeKey = hashKey + ":" + key;
+
+            int hotMask = sketches.record(hashKey, key, compositeKey);
+            if (localCache.getIfPresent(compositeKey) != null) {
+                hits++;
+            } else if (sketches.admits(hotMask)) {
+                localCache.put(compositeKey, 1L);
+            }
+        }
+        return (double) hits / REQUESTS;
+    }
+}
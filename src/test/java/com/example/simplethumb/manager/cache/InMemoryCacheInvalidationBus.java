@@ -0,0 +1,36 @@
+package com.example.simplethumb.manager.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 测试用的进程内失效广播，同一个频道上的多个节点共享订阅者列表，同步投递
+ */
+public class InMemoryCacheInvalidationBus {
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    /**
+     * 频道上的一个节点，只会收到其他节点发布的消息
+     */
+    public CacheInvalidationBus node() {
+        return new CacheInvalidationBus() {
+            @Override
+            public void publish(String key) {
+                for (Subscriber subscriber : subscribers) {
+                    if (subscriber.node() != this) {
+                        subscriber.listener().accept(key);
+                    }
+                }
+            }
+
+            @Override
+            public void subscribe(Consumer<String> listener) {
+                subscribers.add(new Subscriber(this, listener));
+            }
+        };
+    }
+
+    private record Subscriber(CacheInvalidationBus node, Consumer<String> listener) {
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.simplethumb.manager.cache;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 测试用的进程内快照存储，代替 Redis
+ */
+public class InMemoryHotKeySnapshotStore implements HotKeySnapshotStore {
+
+    private final Map<String, List<Item>> snapshots = new ConcurrentHashMap<>();
+
+    @Override
+    public void publish(String nodeId, List<Item> items, Duration ttl) {
+        snapshots.put(nodeId, List.copyOf(items));
+    }
+
+    @Override
+    public Map<String, List<Item>> loadAll(Duration ttl) {
+        return Map.copyOf(snapshots);
+    }
+}
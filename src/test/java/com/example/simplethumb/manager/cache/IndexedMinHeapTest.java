@@ -0,0 +1,56 @@
+package com.example.simplethumb.manager.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * IndexedMinHeap 与朴素实现的对拍测试
+ */
+class IndexedMinHeapTest {
+
+    @Test
+    void behavesLikeNaiveTopK() {
+        int capacity = 50;
+        IndexedMinHeap heap = new IndexedMinHeap(capacity);
+        // 朴素实现：普通 Map，每次线性找最小值
+        Map<String, Long> model = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 200_000; i++) {
+            String key = "k" + random.nextInt(500);
+            long hash = KeyHashing.hash(key);
+            long count = random.nextInt(10_000);
+            if (heap.updateIfPresent(hash, count)) {
+                assertThat(model.put(key, count)).isNotNull();
+            } else if (!heap.isFull()) {
+                heap.insert(hash, key, count);
+                model.put(key, count);
+            } else if (count >= heap.peekCount()) {
+                long modelMin = model.values().stream().min(Long::compare).orElseThrow();
+                assertThat(heap.peekCount()).isEqualTo(modelMin);
+                Item expelled = heap.replaceMin(hash, key, count);
+                assertThat(model.remove(expelled.key())).isEqualTo(modelMin);
+                model.put(key, count);
+            }
+            if (i % 1000 == 0) {
+                heap.halveCounts();
+                model.replaceAll((k, v) -> v >> 1);
+            }
+            assertThat(heap.size()).isEqualTo(model.size());
+        }
+
+        List<Item> items = heap.toList();
+        assertThat(items).isSortedAccordingTo(Comparator.comparingInt(Item::count).reversed());
+        for (Item item : items) {
+            assertThat(model.get(item.key())).isEqualTo((long) item.count());
+            assertThat(heap.contains(KeyHashing.hash(item.key()))).isTrue();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.simplethumb.manager.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * KeyHashing 测试
+ */
+class KeyHashingTest {
+
+    @Test
+    void numericIdHashesLikeItsDecimalString() {
+        long[] ids = {0, 1, 9, 10, 99, 100, 123456789, -1, -10, -987654321,
+                1909000000000000000L, Long.MAX_VALUE, Long.MIN_VALUE};
+        for (long id : ids) {
+            assertThat(KeyHashing.hash(id)).as("id %d", id).isEqualTo(KeyHashing.hash(Long.toString(id)));
+        }
+    }
+
+    @Test
+    void rowsMapToIndependentColumns() {
+        int width = 1000;
+        int depth = 5;
+        int sameColumnInAllRows = 0;
+        for (int a = 0; a < 2000; a++) {
+            long hashA = KeyHashing.hash("blog-" + a);
+            long hashB = KeyHashing.hash("blog-" + (a + 100_000));
+            if (KeyHashing.column(hashA, 0, width) != KeyHashing.column(hashB, 0, width)) {
+                continue;
+            }
+            // 第 0 层撞在同一列的两个 key，在其它层仍应大概率分开
+            boolean allRows = true;
+            for (int row = 1; row < depth; row++) {
+                allRows &= KeyHashing.column(hashA, row, width) == KeyHashing.column(hashB, row, width);
+            }
+            if (allRows) {
+                sameColumnInAllRows++;
+            }
+        }
+        assertThat(sameColumnInAllRows).isZero();
+
+        Set<Integer> columns = new HashSet<>();
+        long hash = KeyHashing.hash("blog-42");
+        for (int row = 0; row < depth; row++) {
+            int column = KeyHashing.column(hash, row, width);
+            assertThat(column).isBetween(0, width - 1);
+            columns.add(column);
+        }
+        assertThat(columns).hasSizeGreaterThan(1);
+    }
+}
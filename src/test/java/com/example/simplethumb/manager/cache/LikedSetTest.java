@@ -0,0 +1,114 @@
+package com.example.simplethumb.manager.cache;
+
+import com.example.simplethumb.constant.ThumbConstant;
+import com.example.simplethumb.util.RedisKeyUtil;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 活跃用户完整点赞集合的加载与写入同步测试
+ */
+class LikedSetTest {
+
+    private static final long USER_ID = 1;
+
+    private static final String HASH_KEY = RedisKeyUtil.getUserThumbKey(1);
+
+    private final InMemoryCacheInvalidationBus channel = new InMemoryCacheInvalidationBus();
+
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+
+    @SuppressWarnings("unchecked")
+    private final HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+
+    LikedSetTest() {
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.get(HASH_KEY, "100")).thenReturn(1);
+        when(hashOperations.size(HASH_KEY)).thenReturn(3L);
+        when(hashOperations.entries(HASH_KEY)).thenReturn(Map.of("100", 1, "101", 1, "102", 1));
+    }
+
+    @Test
+    void hotUserChecksAreAnsweredFromLikedSet() {
+        // 测试中第一次访问用户即成为热点
+        CacheManager cacheManager = CacheManagerTestSupport.newCacheManager(redisTemplate, channel.node(), true);
+
+        assertThat(cacheManager.hasThumb(USER_ID, 100)).isTrue();
+        verify(hashOperations, times(1)).entries(HASH_KEY);
+
+        // 之后的判断都不再回源
+        assertThat(cacheManager.hasThumb(USER_ID, 101)).isTrue();
+        assertThat(cacheManager.hasThumb(USER_ID, 102)).isTrue();
+        assertThat(cacheManager.hasThumb(USER_ID, 103)).isFalse();
+        verify(hashOperations, never()).get(HASH_KEY, "101");
+        verify(hashOperations, never()).get(HASH_KEY, "103");
+    }
+
+    @Test
+    void writesKeepLikedSetCurrent() {
+        CacheManager writer = CacheManagerTestSupport.newCacheManager(redisTemplate, channel.node(), true);
+        CacheManager reader = CacheManagerTestSupport.newCacheManager(redisTemplate, channel.node(), true);
+        assertThat(writer.hasThumb(USER_ID, 100)).isTrue();
+        assertThat(reader.hasThumb(USER_ID, 100)).isTrue();
+
+        // 写入节点直接更新集合
+        writer.putIfPresent(HASH_KEY, "103", 1L);
+        writer.putIfPresent(HASH_KEY, "100", ThumbConstant.UN_THUMB_CONSTANT);
+        assertThat(writer.hasThumb(USER_ID, 103)).isTrue();
+        assertThat(writer.hasThumb(USER_ID, 100)).isFalse();
+
+        // 其他节点收到广播后丢弃集合，重新回源
+        when(hashOperations.get(any(), any())).thenReturn(null);
+        when(hashOperations.get(HASH_KEY, "103")).thenReturn(1);
+        when(hashOperations.entries(HASH_KEY)).thenReturn(Map.of("101", 1, "102", 1, "103", 1));
+        assertThat(reader.hasThumb(USER_ID, 103)).isTrue();
+        assertThat(reader.hasThumb(USER_ID, 100)).isFalse();
+    }
+
+    @Test
+    void usersWithTooManyLikesAreNotLoaded() {
+        when(hashOperations.size(HASH_KEY)).thenReturn(1_000_000L);
+        CacheManager cacheManager = CacheManagerTestSupport.newCacheManager(redisTemplate, channel.node(), true);
+
+        assertThat(cacheManager.hasThumb(USER_ID, 100)).isTrue();
+        verify(hashOperations, never()).entries(HASH_KEY);
+
+        // 过大的标记与集合同样过期，期间的访问不再重复 HLEN
+        when(hashOperations.get(HASH_KEY, "101")).thenReturn(1);
+        assertThat(cacheManager.hasThumb(USER_ID, 101)).isTrue();
+        verify(hashOperations, times(1)).size(HASH_KEY);
+    }
+
+    @Test
+    void likedSetIsLoadedOffTheRequestThread() {
+        Queue<Runnable> tasks = new ArrayDeque<>();
+        CacheManager cacheManager = CacheManagerTestSupport.newCacheManager(redisTemplate, channel.node(), true,
+                Ticker.systemTicker(), tasks::add);
+
+        // 请求线程按单条记录回答，集合加载排队等待后台执行
+        assertThat(cacheManager.hasThumb(USER_ID, 100)).isTrue();
+        verify(hashOperations, never()).entries(HASH_KEY);
+
+        for (Runnable task; (task = tasks.poll()) != null; ) {
+            task.run();
+        }
+        verify(hashOperations, times(1)).entries(HASH_KEY);
+        assertThat(cacheManager.hasThumb(USER_ID, 101)).isTrue();
+        verify(hashOperations, never()).get(HASH_KEY, "101");
+    }
+}
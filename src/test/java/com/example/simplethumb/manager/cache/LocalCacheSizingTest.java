@@ -0,0 +1,103 @@
+package com.example.simplethumb.manager.cache;
+
+import com.example.simplethumb.util.RedisKeyUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 本地缓存按字节计算容量、按访问频率准入的测试
+ */
+class LocalCacheSizingTest {
+
+    private static final String HASH_KEY = RedisKeyUtil.getUserThumbKey(1);
+
+    private final InMemoryCacheInvalidationBus channel = new InMemoryCacheInvalidationBus();
+
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+
+    @SuppressWarnings("unchecked")
+    private final HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+
+    private final CacheManager cacheManager;
+
+    LocalCacheSizingTest() {
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.get(any(), any())).thenReturn(1L);
+        cacheManager = CacheManagerTestSupport.newCacheManager(redisTemplate, channel.node(), true);
+    }
+
+    @Test
+    void fullCacheAdmitsOnlyKeysHotterThanTheColdestEntry() {
+        // 容量恰好容纳两个条目
+        cacheManager.localCache().policy().eviction().orElseThrow().setMaximum(2L * entryWeight("1"));
+        cacheManager.getCache(HASH_KEY, "1");
+        cacheManager.getCache(HASH_KEY, "2");
+        assertThat(cacheManager.localCacheSize()).isEqualTo(2);
+        // 缓存已满后由定时任务取出最冷的条目作为准入阈值
+        cacheManager.refreshAdmissionThreshold();
+
+        // 新 key 只读过一次，频率不高于最冷的条目，不准入
+        cacheManager.getCache(HASH_KEY, "3");
+        assertThat(cacheManager.localCache().getIfPresent(HASH_KEY + ":3")).isNull();
+
+        // 再读一次后频率更高，替换最冷的条目
+        cacheManager.getCache(HASH_KEY, "3");
+        assertThat(cacheManager.localCache().getIfPresent(HASH_KEY + ":3")).isEqualTo(1L);
+        cacheManager.localCache().cleanUp();
+        assertThat(cacheManager.localCacheWeightedSize()).isLessThanOrEqualTo(cacheManager.localCacheMaxBytes());
+    }
+
+    @Test
+    void expelledEntryIsEvictedThroughIndex() {
+        // 只按复合键准入，复合键维度只保留 1 个热点
+        CacheManager cacheManager = CacheManagerTestSupport.newCacheManager(redisTemplate,
+                new ClusterHotKeyManager(new InMemoryHotKeySnapshotStore()), new SimpleMeterRegistry(), channel.node(),
+                new HotKeySketches(Map.of(
+                        HotKeyDimension.BLOG, new ConcurrentHeavyKeeper(100, 1000, 3, 0.92, 1),
+                        HotKeyDimension.USER, new ConcurrentHeavyKeeper(100, 1000, 3, 0.92, 1),
+                        HotKeyDimension.ENTRY, new ConcurrentHeavyKeeper(1, 1000, 3, 0.92, 1)),
+                        List.of(EnumSet.of(HotKeyDimension.ENTRY))),
+                Ticker.systemTicker(), Runnable::run, null);
+        cacheManager.getCache(HASH_KEY, "1");
+        // 读取 2 把 1 挤出复合键 TopK
+        cacheManager.getCache(HASH_KEY, "2");
+        cacheManager.getCache("thumb:2", "1");
+        assertThat(cacheManager.localCacheSize()).isEqualTo(3);
+
+        cacheManager.evictExpelledKeys();
+
+        // 被挤出且不再满足准入规则的条目被删除，仍在 TopK 中的保留
+        Cache<String, Object> localCache = cacheManager.localCache();
+        assertThat(localCache.getIfPresent(HASH_KEY + ":1")).isNull();
+        assertThat(localCache.getIfPresent(HASH_KEY + ":2")).isNull();
+        assertThat(localCache.getIfPresent("thumb:2:1")).isEqualTo(1L);
+    }
+
+    @Test
+    void hitRatioCountsLocalLookups() {
+        // 第一次未命中回源，之后三次命中
+        for (int i = 0; i < 4; i++) {
+            cacheManager.getCache(HASH_KEY, "1");
+        }
+
+        assertThat(cacheManager.localCacheHitRatio()).isEqualTo(0.75);
+    }
+
+    private static int entryWeight(String key) {
+        return CacheManager.weigh(HASH_KEY + ":" + key, 1L);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.simplethumb.manager.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * LongHashSet 与 HashSet 对照的随机测试
+ */
+class LongHashSetTest {
+
+    @Test
+    void behavesLikeHashSetUnderRandomEdits() {
+        Random random = new Random(7);
+        Set<Long> expected = new HashSet<>();
+        LongHashSet actual = LongHashSet.of();
+        for (int i = 0; i < 20_000; i++) {
+            // 取值范围较小，保证删除和重复加入都会发生，并覆盖 0
+            long value = random.nextInt(500) - 10;
+            LongHashSet before = actual;
+            if (random.nextInt(3) == 0) {
+                expected.remove(value);
+                actual = actual.without(value);
+            } else {
+                expected.add(value);
+                actual = actual.with(value);
+            }
+            assertThat(actual.size()).isEqualTo(expected.size());
+            assertThat(actual.contains(value)).isEqualTo(expected.contains(value));
+            // 写时复制，旧集合不受影响
+            if (before != actual) {
+                assertThat(before.contains(value)).isNotEqualTo(actual.contains(value));
+            }
+        }
+        for (long value = -20; value < 520; value++) {
+            assertThat(actual.contains(value)).isEqualTo(expected.contains(value));
+        }
+    }
+
+    @Test
+    void ofIgnoresDuplicates() {
+        LongHashSet set = LongHashSet.of(3, 1, 3, 0, 0, Long.MAX_VALUE);
+
+        assertThat(set.size()).isEqualTo(4);
+        assertThat(set).hasToString("[0, 1, 3, " + Long.MAX_VALUE + "]");
+        long[] many = new long[10_000];
+        for (int i = 0; i < many.length; i++) {
+            many[i] = 1_900_000_000_000_000_000L + i;
+        }
+        // 每个元素最多 32 字节
+        assertThat(LongHashSet.of(many).memoryBytes()).isLessThanOrEqualTo(32L * many.length + 16);
+    }
+}
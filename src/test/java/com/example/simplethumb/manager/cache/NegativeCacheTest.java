@@ -0,0 +1,96 @@
+package com.example.simplethumb.manager.cache;
+
+import com.example.simplethumb.util.RedisKeyUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongPredicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * CacheManager 负缓存测试：未点赞的查询在本地回答，写入后立即失效
+ */
+class NegativeCacheTest {
+
+    private static final String HASH_KEY = RedisKeyUtil.getUserThumbKey(1);
+
+    private static final String KEY = "100";
+
+    private final InMemoryCacheInvalidationBus channel = new InMemoryCacheInvalidationBus();
+
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+
+    @SuppressWarnings("unchecked")
+    private final HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+
+    NegativeCacheTest() {
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+    }
+
+    @Test
+    void repeatedMissesAreAnsweredLocally() {
+        CacheManager cacheManager = CacheManagerTestSupport.newCacheManager(redisTemplate, channel.node(), false);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(cacheManager.getCache(HASH_KEY, KEY)).isNull();
+        }
+
+        verify(hashOperations, times(1)).get(HASH_KEY, KEY);
+    }
+
+    @Test
+    void writeClearsAbsentMarkerOnAllNodes() {
+        CacheManager writer = CacheManagerTestSupport.newCacheManager(redisTemplate, channel.node(), false);
+        CacheManager reader = CacheManagerTestSupport.newCacheManager(redisTemplate, channel.node(), false);
+        assertThat(writer.getCache(HASH_KEY, KEY)).isNull();
+        assertThat(reader.getCache(HASH_KEY, KEY)).isNull();
+
+        // 点赞：先写 Redis，再通知 CacheManager
+        when(hashOperations.get(HASH_KEY, KEY)).thenReturn(7L);
+        writer.putIfPresent(HASH_KEY, KEY, 7L);
+
+        assertThat(writer.getCache(HASH_KEY, KEY)).isEqualTo(7L);
+        assertThat(reader.getCache(HASH_KEY, KEY)).isEqualTo(7L);
+    }
+
+    @Test
+    void missRacingWithWriteIsNotCached() {
+        CacheManager cacheManager = CacheManagerTestSupport.newCacheManager(redisTemplate, channel.node(), false);
+        CacheInvalidationBus writer = channel.node();
+        // 回源读到 "不存在" 的同时，另一个节点写入了点赞
+        when(hashOperations.get(HASH_KEY, KEY)).thenAnswer(invocation -> {
+            writer.publish(HASH_KEY + ":" + KEY);
+            return null;
+        });
+        assertThat(cacheManager.getCache(HASH_KEY, KEY)).isNull();
+
+        when(hashOperations.get(HASH_KEY, KEY)).thenReturn(7L);
+        assertThat(cacheManager.getCache(HASH_KEY, KEY)).isEqualTo(7L);
+    }
+
+    @Test
+    void blogExistenceIsLoadedOncePerBlog() {
+        CacheManager cacheManager = CacheManagerTestSupport.newCacheManager(redisTemplate, channel.node(), false);
+        AtomicInteger loads = new AtomicInteger();
+        LongPredicate loader = blogId -> {
+            loads.incrementAndGet();
+            return blogId == 100;
+        };
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(cacheManager.blogExists(100, loader)).isTrue();
+            assertThat(cacheManager.blogExists(404, loader)).isFalse();
+        }
+
+        // 存在和不存在的结果都在本地回答，每个博客只查询一次数据库
+        assertThat(loads).hasValue(2);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.simplethumb.manager.cache;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Redis 集群热点快照存储测试
+ */
+class RedisHotKeySnapshotStoreTest {
+
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+
+    @SuppressWarnings("unchecked")
+    private final HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+
+    @SuppressWarnings("unchecked")
+    private final ZSetOperations<String, Object> zSetOperations = mock(ZSetOperations.class);
+
+    @Test
+    void publishReplacesSnapshotThroughRename() {
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        RedisHotKeySnapshotStore store = new RedisHotKeySnapshotStore();
+        ReflectionTestUtils.setField(store, "redisTemplate", redisTemplate);
+
+        store.publish("node-1", List.of(new Item("blog", 12)), Duration.ofSeconds(30));
+
+        String snapshotKey = "hotkey:node:node-1";
+        String tempKey = "{hotkey:node:node-1}:tmp";
+        // 新快照写完整后才替换，读取方不会看到被删除后尚未写入的空快照
+        InOrder order = inOrder(redisTemplate, hashOperations);
+        order.verify(hashOperations).putAll(tempKey, Map.of("blog", 12));
+        order.verify(redisTemplate).expire(tempKey, Duration.ofSeconds(30));
+        order.verify(redisTemplate).rename(tempKey, snapshotKey);
+        verify(redisTemplate, never()).delete(snapshotKey);
+        verify(zSetOperations).add(anyString(), eq("node-1"), anyDouble());
+    }
+}
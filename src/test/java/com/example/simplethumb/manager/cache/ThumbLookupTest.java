@@ -0,0 +1,124 @@
+package com.example.simplethumb.manager.cache;
+
+import com.example.simplethumb.util.RedisKeyUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.lang.management.ManagementFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 按 (userId, blogId) 查询点赞记录的测试：类型转换、近缓存失效、命中不分配对象
+ */
+class ThumbLookupTest {
+
+    private static final long USER_ID = 1;
+
+    private static final long BLOG_ID = 100;
+
+    private static final String HASH_KEY = RedisKeyUtil.getUserThumbKey(1);
+
+    private static final String KEY = "100";
+
+    private final InMemoryCacheInvalidationBus channel = new InMemoryCacheInvalidationBus();
+
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+
+    @SuppressWarnings("unchecked")
+    private final HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+
+    ThumbLookupTest() {
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+    }
+
+    @Test
+    void integerValuesFromRedisAreReadAsLong() {
+        CacheManager cacheManager = CacheManagerTestSupport.newCacheManager(redisTemplate, channel.node(), true);
+        // Jackson 把较小的数字反序列化为 Integer
+        when(hashOperations.get(HASH_KEY, KEY)).thenReturn(42);
+
+        assertThat(cacheManager.getThumbValue(USER_ID, BLOG_ID)).isEqualTo(42L);
+        assertThat(cacheManager.hasThumb(USER_ID, BLOG_ID)).isTrue();
+        assertThat(cacheManager.getThumbValue(USER_ID, 101)).isEqualTo(CacheManager.NO_VALUE);
+        assertThat(cacheManager.hasThumb(USER_ID, 101)).isFalse();
+    }
+
+    @Test
+    void nearCacheFollowsWritesAndRemoteInvalidations() {
+        CacheManager writer = CacheManagerTestSupport.newCacheManager(redisTemplate, channel.node(), true);
+        CacheManager reader = CacheManagerTestSupport.newCacheManager(redisTemplate, channel.node(), true);
+        when(hashOperations.get(HASH_KEY, KEY)).thenReturn(42L);
+        assertThat(writer.getThumbValue(USER_ID, BLOG_ID)).isEqualTo(42L);
+        assertThat(reader.getThumbValue(USER_ID, BLOG_ID)).isEqualTo(42L);
+        // 第二次读取由近缓存回答
+        assertThat(reader.getThumbValue(USER_ID, BLOG_ID)).isEqualTo(42L);
+        verify(hashOperations, times(2)).get(HASH_KEY, KEY);
+
+        // 取消点赞：先写 Redis，再通知 CacheManager
+        when(hashOperations.get(HASH_KEY, KEY)).thenReturn(0L);
+        writer.putIfPresent(HASH_KEY, KEY, 0L);
+
+        assertThat(writer.hasThumb(USER_ID, BLOG_ID)).isFalse();
+        assertThat(reader.hasThumb(USER_ID, BLOG_ID)).isFalse();
+    }
+
+    @Test
+    void nearCacheIsClearedWhenLocalEntryIsEvicted() {
+        CacheManager cacheManager = CacheManagerTestSupport.newCacheManager(redisTemplate, channel.node(), true);
+        when(hashOperations.get(HASH_KEY, KEY)).thenReturn(42L);
+        assertThat(cacheManager.getThumbValue(USER_ID, BLOG_ID)).isEqualTo(42L);
+
+        cacheManager.localCache().invalidate(HASH_KEY + ":" + KEY);
+        when(hashOperations.get(HASH_KEY, KEY)).thenReturn(43L);
+
+        assertThat(cacheManager.getThumbValue(USER_ID, BLOG_ID)).isEqualTo(43L);
+    }
+
+    @Test
+    void nearCacheHitsAreFlushedToHotKeySketches() {
+        CacheManager cacheManager = CacheManagerTestSupport.newCacheManager(redisTemplate, channel.node(), true);
+        when(hashOperations.get(HASH_KEY, KEY)).thenReturn(42L);
+        for (int i = 0; i < 10; i++) {
+            cacheManager.hasThumb(USER_ID, BLOG_ID);
+        }
+        HotKeySketches sketches = cacheManager.hotKeySketches();
+        long before = sketches.get(HotKeyDimension.ENTRY).estimate(HASH_KEY + ":" + KEY);
+
+        cacheManager.flushNearCacheHits();
+
+        // 第一次回源时已经记录一次，其余 9 次命中在近缓存上累计
+        assertThat(before).isEqualTo(1);
+        assertThat(sketches.get(HotKeyDimension.ENTRY).estimate(HASH_KEY + ":" + KEY)).isEqualTo(10);
+    }
+
+    @Test
+    void nearCacheHitAllocatesNothing() {
+        CacheManager cacheManager = CacheManagerTestSupport.newCacheManager(redisTemplate, channel.node(), true);
+        when(hashOperations.get(HASH_KEY, KEY)).thenReturn(42L);
+        cacheManager.hasThumb(USER_ID, BLOG_ID);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        for (int i = 0; i < 10_000; i++) {
+            cacheManager.hasThumb(USER_ID, BLOG_ID);
+        }
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        boolean liked = true;
+        for (int i = 0; i < 100_000; i++) {
+            liked &= cacheManager.hasThumb(USER_ID, BLOG_ID);
+            liked &= cacheManager.getThumbValue(USER_ID, BLOG_ID) == 42L;
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertThat(liked).isTrue();
+        // 只允许测量本身的少量分配，任何按次分配都会远超这个值
+        assertThat(allocated).isLessThan(1024);
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.simplethumb.manager.cache;
+
+import com.example.simplethumb.util.RedisKeyUtil;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 重启预热测试：停机时保存快照，启动后恢复热点并按键重新读取本地缓存
+ */
+class WarmRestartTest {
+
+    private static final String HASH_KEY = RedisKeyUtil.getUserThumbKey(1);
+
+    private final InMemoryCacheInvalidationBus channel = new InMemoryCacheInvalidationBus();
+
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+
+    @SuppressWarnings("unchecked")
+    private final HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+
+    @TempDir
+    Path tempDir;
+
+    WarmRestartTest() {
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+    }
+
+    @Test
+    void restartRestoresHotKeysAndRereadsEntries() {
+        Path snapshotPath = tempDir.resolve("warm-snapshot.bin");
+        CacheManager before = newCacheManager(true, snapshotPath);
+        when(hashOperations.get(any(), any())).thenReturn(1L);
+        for (int i = 0; i < 5; i++) {
+            before.getCache(HASH_KEY, "100");
+            before.getCache(HASH_KEY, "101");
+        }
+        before.shutdown();
+        assertThat(snapshotPath).exists();
+
+        // 停机期间 101 被其他节点取消点赞，预热读到的是 Redis 中的最新值
+        Map<String, Object> redis = Map.of("100", 1L, "101", 0L);
+        when(hashOperations.multiGet(any(), any())).thenAnswer(invocation -> {
+            Collection<?> keys = invocation.getArgument(1);
+            return keys.stream().map(redis::get).toList();
+        });
+        CacheManager after = newCacheManager(false, snapshotPath);
+        after.warmUp();
+
+        HotKeySketches sketches = after.hotKeySketches();
+        assertThat(sketches.get(HotKeyDimension.ENTRY).list()).extracting(Item::key)
+                .contains(HASH_KEY + ":100", HASH_KEY + ":101");
+        // 用户被读取 10 次，达到用户维度的最小计数
+        assertThat(sketches.get(HotKeyDimension.USER).list()).extracting(Item::key).contains(HASH_KEY);
+        assertThat(after.localCache().getIfPresent(HASH_KEY + ":100")).isEqualTo(1L);
+        assertThat(after.localCache().getIfPresent(HASH_KEY + ":101")).isEqualTo(0L);
+        verify(hashOperations, times(1)).multiGet(any(), any());
+        after.shutdown();
+    }
+
+    @Test
+    void staleSnapshotIsIgnored() throws Exception {
+        Path snapshotPath = tempDir.resolve("warm-snapshot.bin");
+        long savedAt = System.currentTimeMillis() - Duration.ofMinutes(11).toMillis();
+        new WarmSnapshot(savedAt, Map.of(HotKeyDimension.BLOG, List.of(new Item("100", 50))),
+                List.of(HASH_KEY + ":100")).writeTo(snapshotPath);
+
+        CacheManager cacheManager = newCacheManager(false, snapshotPath);
+        cacheManager.warmUp();
+
+        HotKeySketches sketches = cacheManager.hotKeySketches();
+        assertThat(sketches.get(HotKeyDimension.BLOG).list()).isEmpty();
+        verify(hashOperations, never()).multiGet(any(), any());
+        cacheManager.closeHotKeySketches();
+    }
+
+    @Test
+    void corruptSnapshotFallsBackToColdStart() throws Exception {
+        Path snapshotPath = tempDir.resolve("warm-snapshot.bin");
+        Files.write(snapshotPath, new byte[]{1, 2, 3});
+
+        CacheManager cacheManager = newCacheManager(false, snapshotPath);
+        cacheManager.warmUp();
+
+        assertThat(cacheManager.localCacheSize()).isZero();
+        cacheManager.closeHotKeySketches();
+    }
+
+    @Test
+    void snapshotRoundTrips() throws Exception {
+        Path snapshotPath = tempDir.resolve("nested").resolve("warm-snapshot.bin");
+        WarmSnapshot snapshot = new WarmSnapshot(42L,
+                Map.of(HotKeyDimension.USER, List.of(new Item("thumb:1", 7), new Item("thumb:中文", 3))),
+                List.of("thumb:1:100", "thumb:2:200"));
+
+        snapshot.writeTo(snapshotPath);
+
+        assertThat(WarmSnapshot.readFrom(snapshotPath)).isEqualTo(snapshot);
+    }
+
+    @Test
+    void concurrentWritersReplaceTheSnapshotAtomically() throws Exception {
+        Path snapshotPath = tempDir.resolve("warm-snapshot.bin");
+        WarmSnapshot first = new WarmSnapshot(1L, Map.of(HotKeyDimension.BLOG, List.of(new Item("100", 5))), List.of());
+        WarmSnapshot second = new WarmSnapshot(2L, Map.of(HotKeyDimension.BLOG, List.of(new Item("200", 5))), List.of());
+
+        // 两个进程同时保存同一个快照：各自写入自己的临时文件，最终文件总是其中一个完整的快照
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        List<Future<?>> writes = new ArrayList<>();
+        for (WarmSnapshot snapshot : List.of(first, second)) {
+            writes.add(pool.submit(() -> {
+                for (int i = 0; i < 50; i++) {
+                    snapshot.writeTo(snapshotPath);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> write : writes) {
+            write.get();
+        }
+        pool.shutdown();
+
+        assertThat(WarmSnapshot.readFrom(snapshotPath)).isIn(first, second);
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertThat(files).containsExactly(snapshotPath);
+        }
+    }
+
+    private CacheManager newCacheManager(boolean admitAll, Path snapshotPath) {
+        return CacheManagerTestSupport.newCacheManager(redisTemplate,
+                new ClusterHotKeyManager(new InMemoryHotKeySnapshotStore()), new SimpleMeterRegistry(), channel.node(),
+                admitAll ? CacheManagerTestSupport.admitAllSketches() : null, Ticker.systemTicker(), Runnable::run,
+                snapshotPath);
+    }
+}
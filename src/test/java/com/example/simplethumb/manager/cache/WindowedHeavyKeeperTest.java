@@ -0,0 +1,143 @@
+package com.example.simplethumb.manager.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * WindowedHeavyKeeper 按 epoch 衰减的正确性测试，时间由测试推进
+ */
+class WindowedHeavyKeeperTest {
+
+    private static final Duration EPOCH = Duration.ofSeconds(10);
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private WindowedHeavyKeeper newTopK(int k, int minCount) {
+        return new WindowedHeavyKeeper(k, 1000, 3, 0.92, minCount, EPOCH, false, clock::get);
+    }
+
+    private void advanceEpochs(int epochs) {
+        clock.addAndGet(EPOCH.toNanos() * epochs);
+    }
+
+    @Test
+    void countsHalveOncePerEpochWithoutFading() {
+        WindowedHeavyKeeper topK = newTopK(10, 1);
+        for (int i = 0; i < 100; i++) {
+            topK.add("blog", 1);
+        }
+        assertThat(topK.list()).containsExactly(new Item("blog", 100));
+
+        advanceEpochs(1);
+        assertThat(topK.total()).isEqualTo(50);
+        assertThat(topK.list()).containsExactly(new Item("blog", 50));
+
+        // 桶在下次写入时惰性衰减，再次累加从 50 开始
+        assertThat(topK.addAndCheckHot("blog", 1)).isTrue();
+        assertThat(topK.list()).containsExactly(new Item("blog", 51));
+
+        advanceEpochs(2);
+        assertThat(topK.list()).containsExactly(new Item("blog", 12));
+    }
+
+    @Test
+    void recentKeyOvertakesStaleKey() {
+        WindowedHeavyKeeper topK = newTopK(1, 1);
+        for (int i = 0; i < 1000; i++) {
+            topK.add("old", 1);
+        }
+        advanceEpochs(5);
+        // old 只剩 1000 >> 5 = 31
+        for (int i = 0; i < 40; i++) {
+            topK.add("new", 1);
+        }
+
+        assertThat(topK.list()).containsExactly(new Item("new", 40));
+        assertThat(topK.expelled().poll()).isEqualTo(new Item("old", 31));
+    }
+
+    @Test
+    void expelledCountIsExactWhenScoreExceedsIntRange() {
+        WindowedHeavyKeeper topK = newTopK(1, 1);
+        // 距基准 25 个 epoch，堆中分数为 100000 << 25，远超 Integer.MAX_VALUE
+        advanceEpochs(25);
+        topK.add("old", 100_000);
+        topK.add("new", 200_000);
+
+        assertThat(topK.list()).containsExactly(new Item("new", 200_000));
+        assertThat(topK.expelled().poll()).isEqualTo(new Item("old", 100_000));
+    }
+
+    @Test
+    void staleKeysDisappearAfterLongIdle() {
+        WindowedHeavyKeeper topK = newTopK(10, 1);
+        for (int i = 0; i < 1000; i++) {
+            topK.add("blog", 1);
+        }
+        advanceEpochs(40);
+
+        assertThat(topK.list()).isEmpty();
+        assertThat(topK.total()).isZero();
+    }
+
+    @Test
+    void heapScoresSurviveRebase() {
+        WindowedHeavyKeeper topK = newTopK(10, 1);
+        // 跨越多次基准前移，每个 epoch 都持续写入
+        for (int epoch = 0; epoch < 100; epoch++) {
+            for (int i = 0; i < 64; i++) {
+                topK.add("steady", 1);
+            }
+            for (int i = 0; i < 8; i++) {
+                topK.add("light", 1);
+            }
+            topK.fading();
+            advanceEpochs(1);
+        }
+
+        List<Item> items = topK.list();
+        assertThat(items).extracting(Item::key).containsExactly("steady", "light");
+        // 稳态下计数约为每个 epoch 写入量的 2 倍（再经过一次减半后约为 1 倍）
+        assertThat(items.get(0).count()).isBetween(60, 64);
+        assertThat(items.get(1).count()).isBetween(6, 8);
+    }
+
+    @Test
+    void fadingSweepsBucketsBeforeTagWrapsAround() {
+        WindowedHeavyKeeper topK = newTopK(10, 1);
+        for (int i = 0; i < 100; i++) {
+            topK.add("blog", 1);
+        }
+        // 256 个 epoch 后 8 位标记回绕，只要期间 fading 扫过一轮，旧计数就不会被误认为是当前 epoch 的
+        for (int epoch = 0; epoch < 256; epoch++) {
+            advanceEpochs(1);
+            topK.fading();
+        }
+
+        assertThat(topK.addAndCheckHot("blog", 1)).isTrue();
+        assertThat(topK.list()).containsExactly(new Item("blog", 1));
+    }
+
+    @Test
+    void estimateCoversKeysOutsideTopKAndDecaysWithEpochs() {
+        WindowedHeavyKeeper topK = newTopK(1, 1);
+        for (int i = 0; i < 100; i++) {
+            topK.add("hot", 1);
+        }
+        for (int i = 0; i < 20; i++) {
+            topK.add("warm", 1);
+        }
+        // warm 不在 TopK 中，仍能从桶中得到估计
+        assertThat(topK.list()).extracting(Item::key).containsExactly("hot");
+        assertThat(topK.estimate("warm")).isEqualTo(20);
+        assertThat(topK.estimate("missing")).isZero();
+
+        advanceEpochs(2);
+        assertThat(topK.estimate("hot")).isEqualTo(25);
+    }
+}
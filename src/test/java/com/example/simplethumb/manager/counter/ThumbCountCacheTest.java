@@ -0,0 +1,96 @@
+package com.example.simplethumb.manager.counter;
+
+import com.example.simplethumb.mapper.BlogMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 点赞数写回缓存测试
+ */
+class ThumbCountCacheTest {
+
+    private final BlogMapper blogMapper = mock(BlogMapper.class);
+
+    private final ThumbCountCache thumbCountCache = new ThumbCountCache();
+
+    ThumbCountCacheTest() {
+        ReflectionTestUtils.setField(thumbCountCache, "blogMapper", blogMapper);
+        ReflectionTestUtils.setField(thumbCountCache, "meterRegistry", new SimpleMeterRegistry());
+        thumbCountCache.init();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void concurrentIncrementsAreMergedIntoOneUpdate() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            long blogId = i % 2 == 0 ? 1L : 2L;
+            executor.execute(() -> thumbCountCache.increment(blogId, 1));
+        }
+        executor.execute(() -> thumbCountCache.increment(2L, -1));
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        thumbCountCache.flush();
+
+        ArgumentCaptor<Map<Long, Long>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(blogMapper, times(1)).batchUpdateThumbCount(captor.capture());
+        assertThat(captor.getValue()).containsExactlyInAnyOrderEntriesOf(Map.of(1L, 500L, 2L, 499L));
+        assertThat(thumbCountCache.unflushedDelta(1L)).isZero();
+    }
+
+    @Test
+    void readsIncludeUnflushedDeltas() {
+        thumbCountCache.increment(1L, 1);
+        thumbCountCache.increment(1L, 1);
+        thumbCountCache.increment(2L, -1);
+
+        assertThat(thumbCountCache.currentCount(1L, 10)).isEqualTo(12);
+        assertThat(thumbCountCache.currentCount(2L, 10)).isEqualTo(9);
+        assertThat(thumbCountCache.currentCount(2L, null)).isZero();
+        assertThat(thumbCountCache.currentCount(3L, 10)).isEqualTo(10);
+    }
+
+    @Test
+    void cancelledDeltasAreNotWritten() {
+        thumbCountCache.increment(1L, 1);
+        thumbCountCache.increment(1L, -1);
+
+        thumbCountCache.flush();
+
+        verify(blogMapper, never()).batchUpdateThumbCount(anyMap());
+    }
+
+    @Test
+    void failedFlushIsRetried() {
+        thumbCountCache.increment(1L, 3);
+        doThrow(new RuntimeException("db down")).when(blogMapper).batchUpdateThumbCount(anyMap());
+
+        thumbCountCache.flush();
+        // 失败的增量放回，读取结果不变
+        assertThat(thumbCountCache.currentCount(1L, 10)).isEqualTo(13);
+
+        thumbCountCache.increment(1L, 1);
+        reset(blogMapper);
+        thumbCountCache.flush();
+
+        verify(blogMapper).batchUpdateThumbCount(Map.of(1L, 4L));
+        assertThat(thumbCountCache.unflushedDelta(1L)).isZero();
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.simplethumb.manager.lock;
+
+import com.example.simplethumb.exception.BusinessException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 用户分段锁测试
+ */
+class UserLockManagerTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final InMemoryLockLease lockLease = new InMemoryLockLease();
+
+    private UserLockManager newLockManager(int stripes, boolean leaseEnabled) {
+        UserLockManager lockManager = new UserLockManager(stripes);
+        ReflectionTestUtils.setField(lockManager, "lockLease", lockLease);
+        ReflectionTestUtils.setField(lockManager, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(lockManager, "leaseEnabled", leaseEnabled);
+        lockManager.init();
+        return lockManager;
+    }
+
+    @Test
+    void stripeCountIsRoundedToPowerOfTwo() {
+        assertThat(new UserLockManager(100).stripeCount()).isEqualTo(128);
+        assertThat(new UserLockManager(64).stripeCount()).isEqualTo(64);
+    }
+
+    @Test
+    void sameUserIsMutuallyExclusive() throws Exception {
+        UserLockManager lockManager = newLockManager(64, false);
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger maxInside = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 200; i++) {
+            executor.submit(() -> lockManager.executeWithLock(42L, () -> {
+                maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                Thread.yield();
+                return inside.decrementAndGet();
+            }));
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(maxInside.get()).isEqualTo(1);
+        assertThat(meterRegistry.get("lock.wait").tag("mode", "local").tag("result", "acquired").timer().count())
+                .isEqualTo(200);
+    }
+
+    @Test
+    void lockedStripeTimesOut() throws Exception {
+        UserLockManager lockManager = newLockManager(64, false);
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> holder = executor.submit(() -> lockManager.executeWithLock(7L, () -> {
+            held.countDown();
+            try {
+                return release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+        held.await();
+
+        assertThatThrownBy(() -> lockManager.executeWithLock(7L, () -> true))
+                .isInstanceOf(BusinessException.class);
+        assertThat(meterRegistry.get("lock.wait").tag("mode", "local").tag("result", "timeout").timer().count())
+                .isEqualTo(1);
+
+        release.countDown();
+        holder.get();
+        executor.shutdown();
+    }
+
+    @Test
+    void usersSharingAStripeDoNotWaitForEachOther() throws Exception {
+        // 只有两个分段，找一个与 7 落在同一段上的用户
+        UserLockManager lockManager = newLockManager(2, false);
+        long sameStripeUser = 8;
+        while (lockManager.stripe(sameStripeUser) != lockManager.stripe(7L)) {
+            sameStripeUser++;
+        }
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> holder = executor.submit(() -> lockManager.executeWithLock(7L, () -> {
+            held.countDown();
+            try {
+                return release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+        held.await();
+
+        // 用户 7 的操作还在执行，同一段上的其他用户立即拿到锁
+        long start = System.nanoTime();
+        assertThat(lockManager.executeWithLock(sameStripeUser, () -> true)).isTrue();
+        assertThat(System.nanoTime() - start).isLessThan(UserLockManager.MAX_WAIT.toNanos() / 2);
+
+        release.countDown();
+        holder.get();
+        executor.shutdown();
+    }
+
+    @Test
+    void leaseIsHeldDuringActionAndReleasedAfterwards() {
+        UserLockManager lockManager = newLockManager(64, true);
+
+        boolean leasedInside = lockManager.executeWithLock(9L, () -> lockLease.holders.containsKey("lock:thumb:9"));
+
+        assertThat(leasedInside).isTrue();
+        assertThat(lockLease.holders).isEmpty();
+        assertThat(meterRegistry.get("lock.wait").tag("mode", "lease").tag("result", "acquired").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void leaseHeldByAnotherNodeTimesOut() {
+        UserLockManager lockManager = newLockManager(64, true);
+        lockLease.holders.put("lock:thumb:9", "other-node");
+
+        assertThatThrownBy(() -> lockManager.executeWithLock(9L, () -> true))
+                .isInstanceOf(BusinessException.class);
+        // 不会释放其他节点的租约
+        assertThat(lockLease.holders).containsEntry("lock:thumb:9", "other-node");
+        assertThat(meterRegistry.get("lock.wait").tag("mode", "lease").tag("result", "timeout").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void leaseIsRenewedWhileHeld() {
+        UserLockManager lockManager = newLockManager(64, true);
+
+        boolean renewed = lockManager.executeWithLock(9L, () -> {
+            lockManager.renewLeases();
+            lockManager.ensureHeld(9L);
+            return lockLease.renewals.get() > 0;
+        });
+
+        assertThat(renewed).isTrue();
+        // 释放后不再续期
+        lockManager.renewLeases();
+        assertThat(lockLease.renewals.get()).isEqualTo(1);
+    }
+
+    @Test
+    void lostLeaseIsRejectedBeforeCommit() {
+        UserLockManager lockManager = newLockManager(64, true);
+
+        assertThatThrownBy(() -> lockManager.executeWithLock(9L, () -> {
+            // 租约过期后被其他节点拿到，续期失败
+            lockLease.holders.put("lock:thumb:9", "other-node");
+            lockManager.renewLeases();
+            lockManager.ensureHeld(9L);
+            return true;
+        })).isInstanceOf(BusinessException.class);
+        // 不会释放其他节点的租约
+        assertThat(lockLease.holders).containsEntry("lock:thumb:9", "other-node");
+    }
+
+    @Test
+    void ensureHeldRequiresTheCallerToHoldTheLease() {
+        UserLockManager lockManager = newLockManager(64, true);
+
+        assertThatThrownBy(() -> lockManager.ensureHeld(9L)).isInstanceOf(BusinessException.class);
+        // 未开启租约时不检查
+        newLockManager(64, false).ensureHeld(9L);
+    }
+
+    @Test
+    void nestedCallReusesOuterLease() {
+        UserLockManager lockManager = newLockManager(64, true);
+
+        boolean result = lockManager.executeWithLock(9L, () -> lockManager.executeWithLock(9L, () -> true));
+
+        assertThat(result).isTrue();
+        assertThat(lockLease.holders).isEmpty();
+    }
+
+    /**
+     * 内存中的租约，不处理过期
+     */
+    private static class InMemoryLockLease implements LockLease {
+        private final Map<String, String> holders = new ConcurrentHashMap<>();
+        private final AtomicInteger renewals = new AtomicInteger();
+
+        @Override
+        public boolean tryAcquire(String key, String token, Duration ttl) {
+            return holders.putIfAbsent(key, token) == null;
+        }
+
+        @Override
+        public boolean renew(String key, String token, Duration ttl) {
+            renewals.incrementAndGet();
+            return token.equals(holders.get(key));
+        }
+
+        @Override
+        public void release(String key, String token) {
+            holders.remove(key, token);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.simplethumb.manager.redis;
+
+import com.example.simplethumb.exception.BusinessException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.connection.RedisScriptingCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Lua 脚本组提交测试
+ * 替身脚本返回第一个参数的数值，"fail" 参数模拟该条脚本在 pipeline 中返回 NOSCRIPT，
+ * "error" 参数模拟脚本执行到一半出错
+ */
+class GroupCommitScriptExecutorTest {
+
+    private static final RedisScript<Long> SCRIPT = RedisScript.of("return tonumber(ARGV[1])", Long.class);
+
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final AtomicInteger pipelines = new AtomicInteger();
+
+    private final GroupCommitScriptExecutor executor = new GroupCommitScriptExecutor();
+
+    @SuppressWarnings("unchecked")
+    GroupCommitScriptExecutorTest() {
+        doReturn(StringRedisSerializer.UTF_8).when(redisTemplate).getKeySerializer();
+        doReturn(new GenericToStringSerializer<>(Object.class)).when(redisTemplate).getValueSerializer();
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(invocation -> {
+            pipelines.incrementAndGet();
+            RedisConnection connection = mock(RedisConnection.class);
+            RedisScriptingCommands scriptingCommands = mock(RedisScriptingCommands.class);
+            when(connection.scriptingCommands()).thenReturn(scriptingCommands);
+            List<Object> results = new ArrayList<>();
+            when(scriptingCommands.evalSha(anyString(), any(ReturnType.class), anyInt(), any(byte[][].class)))
+                    .thenAnswer(eval -> {
+                        byte[][] keysAndArgs = (byte[][]) eval.getRawArguments()[3];
+                        String arg = new String(keysAndArgs[1], StandardCharsets.UTF_8);
+                        results.add(switch (arg) {
+                            case "fail" -> new RedisSystemException("NOSCRIPT", null);
+                            case "error" -> new RedisSystemException("ERR user_script:1: OOM command not allowed", null);
+                            default -> Long.valueOf(arg);
+                        });
+                        return null;
+                    });
+            ((RedisCallback<Object>) invocation.getArgument(0)).doInRedis(connection);
+            if (results.stream().anyMatch(Exception.class::isInstance)) {
+                throw new RedisPipelineException(new RuntimeException("pipeline failed"), results);
+            }
+            return results;
+        });
+        when(redisTemplate.execute(eq(SCRIPT), anyList(), any())).thenAnswer(invocation -> {
+            Object arg = invocation.getArgument(2);
+            if (arg.equals("fail")) {
+                return -1L;
+            }
+            return Long.valueOf(arg.toString());
+        });
+        ReflectionTestUtils.setField(executor, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(executor, "meterRegistry", meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        executor.shutdown();
+    }
+
+    @Test
+    void disabledExecutesDirectly() {
+        executor.init();
+
+        assertThat(executor.execute(SCRIPT, List.of("k"), 5L)).isEqualTo(5L);
+
+        verify(redisTemplate, never()).executePipelined(any(RedisCallback.class));
+    }
+
+    @Test
+    void concurrentCallsShareOnePipelineAndGetTheirOwnResults() {
+        ReflectionTestUtils.setField(executor, "enabled", true);
+        executor.init();
+
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+        for (long i = 0; i < 100; i++) {
+            futures.add(executor.submit(SCRIPT, List.of("k" + i), i));
+        }
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(futures.get(i).join()).isEqualTo(i);
+        }
+        assertThat(pipelines.get()).isLessThan(100);
+        assertThat(meterRegistry.get("redis.group.commit.batch").summary().totalAmount()).isEqualTo(100);
+    }
+
+    @Test
+    void onlyFailedScriptsAreRetriedIndividually() {
+        ReflectionTestUtils.setField(executor, "enabled", true);
+        executor.init();
+        List<GroupCommitScriptExecutor.PendingScript<?>> batch = List.of(
+                pending(1L), pending("fail"), pending(3L));
+
+        executor.commit(batch);
+
+        assertThat(batch.get(0).future().join()).isEqualTo(1L);
+        assertThat(batch.get(1).future().join()).isEqualTo(-1L);
+        assertThat(batch.get(2).future().join()).isEqualTo(3L);
+        // 成功的脚本不会重复执行
+        verify(redisTemplate, never()).execute(eq(SCRIPT), anyList(), eq(1L));
+        assertThat(meterRegistry.get("redis.group.commit.fallback").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void nonNoScriptErrorsAreNotRetried() {
+        ReflectionTestUtils.setField(executor, "enabled", true);
+        executor.init();
+        List<GroupCommitScriptExecutor.PendingScript<?>> batch = List.of(
+                pending(1L), pending("error"), pending("fail"));
+
+        executor.commit(batch);
+
+        assertThat(batch.get(0).future().join()).isEqualTo(1L);
+        // 脚本可能已经写入了一部分，重新执行会重复写入
+        assertThatThrownBy(() -> batch.get(1).future().join())
+                .hasCauseInstanceOf(RedisSystemException.class)
+                .hasMessageContaining("OOM");
+        verify(redisTemplate, never()).execute(eq(SCRIPT), anyList(), eq("error"));
+        assertThat(batch.get(2).future().join()).isEqualTo(-1L);
+        assertThat(meterRegistry.get("redis.group.commit.fallback").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void slowFallbackDoesNotHoldUpLaterBatches() throws Exception {
+        ReflectionTestUtils.setField(executor, "enabled", true);
+        executor.init();
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return -1L;
+        }).when(redisTemplate).execute(eq(SCRIPT), anyList(), eq("fail"));
+        List<GroupCommitScriptExecutor.PendingScript<?>> failing = List.of(pending(1L), pending("fail"));
+        List<GroupCommitScriptExecutor.PendingScript<?>> next = List.of(pending(4L), pending(5L));
+
+        executor.commit(failing);
+        // 失败请求的重试还阻塞在 Redis 上，后面的批次照常完成
+        executor.commit(next);
+
+        assertThat(next.get(0).future().join()).isEqualTo(4L);
+        assertThat(next.get(1).future().join()).isEqualTo(5L);
+        assertThat(failing.get(0).future().join()).isEqualTo(1L);
+        assertThat(failing.get(1).future()).isNotDone();
+        release.countDown();
+        assertThat(failing.get(1).future().get(5, TimeUnit.SECONDS)).isEqualTo(-1L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void fullQueueRejectsNewCalls() {
+        ReflectionTestUtils.setField(executor, "enabled", true);
+        CountDownLatch release = new CountDownLatch(1);
+        Answer<Object> blocked = invocation -> {
+            // 组提交线程卡在 Redis 上，队列不断积压
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        };
+        doAnswer(blocked).when(redisTemplate).executePipelined(any(RedisCallback.class));
+        doAnswer(blocked).when(redisTemplate).execute(eq(SCRIPT), anyList(), any());
+        executor.init();
+
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+        for (long i = 0; i <= GroupCommitScriptExecutor.MAX_QUEUED + GroupCommitScriptExecutor.MAX_BATCH; i++) {
+            futures.add(executor.submit(SCRIPT, List.of("k"), i));
+        }
+        release.countDown();
+
+        CompletableFuture<Long> rejected = futures.get(futures.size() - 1);
+        assertThatThrownBy(rejected::join).hasCauseInstanceOf(BusinessException.class);
+        assertThat(meterRegistry.get("redis.group.commit.rejected").counter().count()).isPositive();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void connectionFailureFailsWholeBatch() {
+        ReflectionTestUtils.setField(executor, "enabled", true);
+        executor.init();
+        when(redisTemplate.executePipelined(any(RedisCallback.class)))
+                .thenThrow(new InvalidDataAccessApiUsageException("connection lost"));
+        List<GroupCommitScriptExecutor.PendingScript<?>> batch = List.of(pending(1L), pending(2L));
+
+        executor.commit(batch);
+
+        assertThatThrownBy(() -> batch.get(0).future().join()).hasCauseInstanceOf(InvalidDataAccessApiUsageException.class);
+        assertThatThrownBy(() -> batch.get(1).future().join()).hasCauseInstanceOf(InvalidDataAccessApiUsageException.class);
+        verify(redisTemplate, never()).execute(eq(SCRIPT), anyList(), any());
+    }
+
+    private GroupCommitScriptExecutor.PendingScript<Long> pending(Object arg) {
+        return new GroupCommitScriptExecutor.PendingScript<>(SCRIPT, List.of("k"), new Object[]{arg}, new CompletableFuture<>());
+    }
+}
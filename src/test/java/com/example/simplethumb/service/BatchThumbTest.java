@@ -0,0 +1,75 @@
+package com.example.simplethumb.service;
+
+import com.example.simplethumb.common.ErrorCode;
+import com.example.simplethumb.constant.ThumbConstant;
+import com.example.simplethumb.exception.BusinessException;
+import com.example.simplethumb.model.dto.thumb.BatchThumbRequest;
+import com.example.simplethumb.model.dto.thumb.DoThumbRequest;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * ThumbService 默认批量点赞实现测试
+ */
+class BatchThumbTest {
+
+    private final ThumbService thumbService = mock(ThumbService.class, CALLS_REAL_METHODS);
+
+    private final HttpServletRequest request = mock(HttpServletRequest.class);
+
+    @Test
+    void actionsAreAppliedInOrderAndFailuresDoNotStopTheBatch() {
+        doReturn(true).when(thumbService).doThumb(argThat(blog(1L)), any());
+        doThrow(new BusinessException(ErrorCode.OPERATION_ERROR, "已经点赞过")).when(thumbService).doThumb(argThat(blog(2L)), any());
+        doReturn(true).when(thumbService).undoThumb(argThat(blog(3L)), any());
+
+        List<Boolean> results = thumbService.batchThumb(batch(action(1L, true), action(2L, true), action(3L, false)), request);
+
+        assertThat(results).containsExactly(true, false, true);
+    }
+
+    @Test
+    void invalidBatchesAreRejected() {
+        assertThatThrownBy(() -> thumbService.batchThumb(batch(), request)).isInstanceOf(BusinessException.class);
+        assertThatThrownBy(() -> thumbService.batchThumb(batch(action(null, true)), request)).isInstanceOf(BusinessException.class);
+        BatchThumbRequest.ThumbAction[] tooMany = IntStream.rangeClosed(0, ThumbConstant.BATCH_THUMB_MAX_SIZE)
+                .mapToObj(i -> action((long) i, true))
+                .toArray(BatchThumbRequest.ThumbAction[]::new);
+        assertThatThrownBy(() -> thumbService.batchThumb(batch(tooMany), request)).isInstanceOf(BusinessException.class);
+
+        verify(thumbService, never()).doThumb(any(), any());
+    }
+
+    private static ArgumentMatcher<DoThumbRequest> blog(Long blogId) {
+        return doThumbRequest -> doThumbRequest != null && blogId.equals(doThumbRequest.getBlogId());
+    }
+
+    private static BatchThumbRequest.ThumbAction action(Long blogId, boolean thumb) {
+        BatchThumbRequest.ThumbAction action = new BatchThumbRequest.ThumbAction();
+        action.setBlogId(blogId);
+        action.setThumb(thumb);
+        return action;
+    }
+
+    private static BatchThumbRequest batch(BatchThumbRequest.ThumbAction... actions) {
+        BatchThumbRequest batchThumbRequest = new BatchThumbRequest();
+        batchThumbRequest.setActions(new ArrayList<>(List.of(actions)));
+        return batchThumbRequest;
+    }
+}
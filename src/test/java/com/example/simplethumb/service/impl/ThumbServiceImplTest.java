@@ -0,0 +1,92 @@
+package com.example.simplethumb.service.impl;
+
+import com.example.simplethumb.common.ErrorCode;
+import com.example.simplethumb.exception.BusinessException;
+import com.example.simplethumb.manager.cache.CacheManager;
+import com.example.simplethumb.manager.cache.CacheManagerTestSupport;
+import com.example.simplethumb.manager.cache.ClusterHotKeyManager;
+import com.example.simplethumb.manager.cache.InMemoryCacheInvalidationBus;
+import com.example.simplethumb.manager.cache.InMemoryHotKeySnapshotStore;
+import com.example.simplethumb.manager.counter.ThumbCountCache;
+import com.example.simplethumb.manager.lock.UserLockManager;
+import com.example.simplethumb.model.dto.thumb.DoThumbRequest;
+import com.example.simplethumb.model.entity.User;
+import com.example.simplethumb.service.BlogService;
+import com.example.simplethumb.service.UserService;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * 数据库点赞实现测试：博客不存在时不加锁、不写入点赞记录和缓存
+ */
+class ThumbServiceImplTest {
+
+    private static final long MISSING_BLOG_ID = 404;
+
+    private final UserService userService = mock(UserService.class);
+
+    private final BlogService blogService = mock(BlogService.class);
+
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+
+    // 不 mock CacheManager：inline mock 会改写类本身，影响其他测试中真实实例的行为
+    private final CacheManager cacheManager = CacheManagerTestSupport.newCacheManager(redisTemplate,
+            new ClusterHotKeyManager(new InMemoryHotKeySnapshotStore()), new SimpleMeterRegistry(),
+            new InMemoryCacheInvalidationBus().node(), null, Ticker.systemTicker(), Runnable::run, null);
+
+    private final ThumbCountCache thumbCountCache = mock(ThumbCountCache.class);
+
+    private final UserLockManager userLockManager = mock(UserLockManager.class);
+
+    private final HttpServletRequest request = mock(HttpServletRequest.class);
+
+    private final ThumbServiceImpl thumbService = new ThumbServiceImpl(userService, blogService, transactionTemplate,
+            cacheManager, thumbCountCache, userLockManager, redisTemplate);
+
+    ThumbServiceImplTest() {
+        User user = new User();
+        user.setId(1L);
+        when(userService.getLoginUser(request)).thenReturn(user);
+        when(blogService.blogExists(MISSING_BLOG_ID)).thenReturn(false);
+    }
+
+    @Test
+    void thumbOnMissingBlogIsRejected() {
+        assertThatThrownBy(() -> thumbService.doThumb(request(), request))
+                .isInstanceOf(BusinessException.class)
+                .extracting(e -> ((BusinessException) e).getCode()).isEqualTo(ErrorCode.NOT_FOUND_ERROR.getCode());
+
+        verify(userLockManager, never()).executeWithLock(anyLong(), any());
+        verifyNoInteractions(transactionTemplate, redisTemplate, thumbCountCache);
+    }
+
+    @Test
+    void undoOnMissingBlogIsRejected() {
+        assertThatThrownBy(() -> thumbService.undoThumb(request(), request)).isInstanceOf(BusinessException.class);
+
+        verify(userLockManager, never()).executeWithLock(anyLong(), any());
+        verifyNoInteractions(transactionTemplate, redisTemplate, thumbCountCache);
+    }
+
+    private static DoThumbRequest request() {
+        DoThumbRequest doThumbRequest = new DoThumbRequest();
+        doThumbRequest.setBlogId(MISSING_BLOG_ID);
+        return doThumbRequest;
+    }
+}
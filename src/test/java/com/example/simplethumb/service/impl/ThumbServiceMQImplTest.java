@@ -0,0 +1,198 @@
+package com.example.simplethumb.service.impl;
+
+import com.example.simplethumb.constant.RedisLuaScriptConstant;
+import com.example.simplethumb.listener.thumb.msg.ThumbEvent;
+import com.example.simplethumb.manager.cache.CacheManager;
+import com.example.simplethumb.manager.cache.CacheManagerTestSupport;
+import com.example.simplethumb.manager.cache.ClusterHotKeyManager;
+import com.example.simplethumb.manager.cache.InMemoryCacheInvalidationBus;
+import com.example.simplethumb.manager.cache.InMemoryHotKeySnapshotStore;
+import com.example.simplethumb.manager.redis.GroupCommitScriptExecutor;
+import com.example.simplethumb.model.dto.thumb.BatchThumbRequest;
+import com.example.simplethumb.model.entity.User;
+import com.example.simplethumb.model.enums.LuaStatusEnum;
+import com.example.simplethumb.model.enums.ThumbTypeEnum;
+import com.example.simplethumb.service.UserService;
+import com.example.simplethumb.util.RedisKeyUtil;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.pulsar.core.PulsarTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 消息队列点赞实现的批量点赞测试：脚本状态与结果的对应、本地缓存同步、事件发送以及发送失败后的回滚
+ */
+class ThumbServiceMQImplTest {
+
+    private static final long USER_ID = 1;
+
+    private static final String HASH_KEY = RedisKeyUtil.getUserThumbKey(USER_ID);
+
+    // 模拟 Redis 中的用户点赞记录
+    private final Map<String, Object> likes = new ConcurrentHashMap<>();
+
+    // 已发送到 Pulsar 的事件
+    private final List<ThumbEvent> sentEvents = new CopyOnWriteArrayList<>();
+
+    // 发送失败的博客 id
+    private final Set<Long> failingBlogIds = ConcurrentHashMap.newKeySet();
+
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+
+    private final GroupCommitScriptExecutor scriptExecutor = mock(GroupCommitScriptExecutor.class);
+
+    @SuppressWarnings("unchecked")
+    private final PulsarTemplate<ThumbEvent> pulsarTemplate = mock(PulsarTemplate.class);
+
+    private final HttpServletRequest request = mock(HttpServletRequest.class);
+
+    private final CacheManager cacheManager;
+
+    private final ThumbServiceMQImpl thumbService;
+
+    @SuppressWarnings("unchecked")
+    ThumbServiceMQImplTest() {
+        HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.get(eq(HASH_KEY), any())).thenAnswer(invocation -> likes.get(invocation.<String>getArgument(1)));
+        doAnswer(invocation -> likes.put(invocation.getArgument(1), invocation.getArgument(2)))
+                .when(hashOperations).put(eq(HASH_KEY), any(), any());
+        when(hashOperations.delete(eq(HASH_KEY), any())).thenAnswer(invocation -> {
+            likes.remove(invocation.<String>getArgument(1));
+            return 1L;
+        });
+        when(scriptExecutor.execute(eq(RedisLuaScriptConstant.BATCH_THUMB_SCRIPT_MQ), anyList(), any(Object[].class)))
+                .thenAnswer(invocation -> runBatchScript((Object[]) invocation.getRawArguments()[2]));
+        when(pulsarTemplate.sendAsync(anyString(), any())).thenAnswer(invocation -> {
+            ThumbEvent thumbEvent = invocation.getArgument(1);
+            if (failingBlogIds.contains(thumbEvent.getBlogId())) {
+                return CompletableFuture.failedFuture(new IllegalStateException("producer closed"));
+            }
+            sentEvents.add(thumbEvent);
+            return CompletableFuture.completedFuture(null);
+        });
+        User user = new User();
+        user.setId(USER_ID);
+        UserService userService = mock(UserService.class);
+        when(userService.getLoginUser(request)).thenReturn(user);
+        cacheManager = CacheManagerTestSupport.newCacheManager(redisTemplate,
+                new ClusterHotKeyManager(new InMemoryHotKeySnapshotStore()), new SimpleMeterRegistry(),
+                new InMemoryCacheInvalidationBus().node(), CacheManagerTestSupport.admitAllSketches(),
+                Ticker.systemTicker(), Runnable::run, null);
+        thumbService = new ThumbServiceMQImpl(userService, redisTemplate, scriptExecutor, pulsarTemplate, cacheManager);
+    }
+
+    @Test
+    void statusesMapToResultsAndOnlyChangedBlogsSendEvents() {
+        likes.put("2", 1L);
+        // 本地缓存中已有这些条目
+        assertThat(cacheManager.hasThumb(USER_ID, 1)).isFalse();
+        assertThat(cacheManager.hasThumb(USER_ID, 2)).isTrue();
+
+        List<Boolean> results = thumbService.batchThumb(batch(
+                action(1L, true), action(2L, true), action(3L, false), action(2L, false)), request);
+
+        assertThat(results).containsExactly(true, false, false, true);
+        assertThat(likes).containsOnlyKeys("1");
+        assertThat(cacheManager.hasThumb(USER_ID, 1)).isTrue();
+        assertThat(cacheManager.hasThumb(USER_ID, 2)).isFalse();
+        assertThat(sentEvents).extracting(ThumbEvent::getBlogId, ThumbEvent::getType).containsExactly(
+                tuple(1L, ThumbEvent.EventType.INCR),
+                tuple(2L, ThumbEvent.EventType.DECR));
+    }
+
+    @Test
+    void repeatedBlogIdsSendOnlyTheNetChange() {
+        assertThat(cacheManager.hasThumb(USER_ID, 5)).isFalse();
+
+        List<Boolean> results = thumbService.batchThumb(batch(
+                action(1L, true), action(1L, false), action(1L, true),
+                action(5L, true), action(5L, false),
+                action(6L, false), action(6L, false)), request);
+
+        // 脚本按顺序逐个执行，后面的操作看到前面操作的结果
+        assertThat(results).containsExactly(true, true, true, true, true, false, false);
+        assertThat(likes).containsOnlyKeys("1");
+        assertThat(cacheManager.hasThumb(USER_ID, 5)).isFalse();
+        // 博客 1 净增一次点赞，博客 5 的两次操作抵消，不发送事件
+        assertThat(sentEvents).singleElement().satisfies(thumbEvent -> {
+            assertThat(thumbEvent.getBlogId()).isEqualTo(1L);
+            assertThat(thumbEvent.getType()).isEqualTo(ThumbEvent.EventType.INCR);
+        });
+    }
+
+    @Test
+    void partialSendFailureRollsBackOnlyTheFailedBlogs() {
+        likes.put("2", 1L);
+        assertThat(cacheManager.hasThumb(USER_ID, 2)).isTrue();
+        assertThat(cacheManager.hasThumb(USER_ID, 3)).isFalse();
+        failingBlogIds.addAll(List.of(2L, 3L));
+
+        List<Boolean> results = thumbService.batchThumb(batch(
+                action(1L, true), action(2L, false), action(3L, true)), request);
+
+        // 结果反映脚本执行时的状态，发送失败的博客回到执行前的状态
+        assertThat(results).containsExactly(true, true, true);
+        assertThat(sentEvents).extracting(ThumbEvent::getBlogId).containsExactly(1L);
+        assertThat(likes).containsOnlyKeys("1", "2");
+        assertThat(cacheManager.hasThumb(USER_ID, 2)).isTrue();
+        assertThat(cacheManager.hasThumb(USER_ID, 3)).isFalse();
+    }
+
+    /**
+     * 与 BATCH_THUMB_SCRIPT_MQ 相同的逻辑：按顺序执行，已点赞时点赞、未点赞时取消点赞都返回失败
+     */
+    private List<Long> runBatchScript(Object[] args) {
+        List<Long> statuses = new ArrayList<>();
+        for (int i = 0; i < args.length; i += 2) {
+            String blogId = args[i].toString();
+            int thumbType = ((Number) args[i + 1]).intValue();
+            boolean exists = likes.containsKey(blogId);
+            if (thumbType == ThumbTypeEnum.INCR.getValue() && !exists) {
+                likes.put(blogId, 1L);
+                statuses.add(LuaStatusEnum.SUCCESS.getValue());
+            } else if (thumbType == ThumbTypeEnum.DECR.getValue() && exists) {
+                likes.remove(blogId);
+                statuses.add(LuaStatusEnum.SUCCESS.getValue());
+            } else {
+                statuses.add(LuaStatusEnum.FAIL.getValue());
+            }
+        }
+        return statuses;
+    }
+
+    private static BatchThumbRequest.ThumbAction action(Long blogId, boolean thumb) {
+        BatchThumbRequest.ThumbAction action = new BatchThumbRequest.ThumbAction();
+        action.setBlogId(blogId);
+        action.setThumb(thumb);
+        return action;
+    }
+
+    private static BatchThumbRequest batch(BatchThumbRequest.ThumbAction... actions) {
+        BatchThumbRequest batchThumbRequest = new BatchThumbRequest();
+        batchThumbRequest.setActions(new ArrayList<>(List.of(actions)));
+        return batchThumbRequest;
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.simplethumb.service.impl;
+
+import com.example.simplethumb.constant.RedisLuaScriptConstant;
+import com.example.simplethumb.exception.BusinessException;
+import com.example.simplethumb.manager.cache.CacheManager;
+import com.example.simplethumb.manager.cache.CacheManagerTestSupport;
+import com.example.simplethumb.manager.cache.ClusterHotKeyManager;
+import com.example.simplethumb.manager.cache.InMemoryCacheInvalidationBus;
+import com.example.simplethumb.manager.cache.InMemoryHotKeySnapshotStore;
+import com.example.simplethumb.manager.redis.GroupCommitScriptExecutor;
+import com.example.simplethumb.model.dto.thumb.DoThumbRequest;
+import com.example.simplethumb.model.entity.User;
+import com.example.simplethumb.service.UserService;
+import com.example.simplethumb.util.RedisKeyUtil;
+import com.example.simplethumb.util.TimeSliceClock;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Redis 点赞实现的测试：点赞 / 取消点赞后，本节点和其他节点通过 hasThumb 立即读到最新状态
+ */
+class ThumbServiceRedisImplTest {
+
+    private static final long USER_ID = 1;
+
+    private static final long BLOG_ID = 100;
+
+    private static final String HASH_KEY = RedisKeyUtil.getUserThumbKey(1);
+
+    private final InMemoryCacheInvalidationBus channel = new InMemoryCacheInvalidationBus();
+
+    // 模拟 Redis 中的用户点赞记录，脚本执行时写入
+    private final Map<String, Object> likes = new ConcurrentHashMap<>();
+
+    // 模拟 Redis 中的时间片临时计数，字段为 userId:blogId
+    private final Map<String, Long> tempCounts = new ConcurrentHashMap<>();
+
+    private volatile boolean failTempWrites;
+
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+
+    private final GroupCommitScriptExecutor scriptExecutor = mock(GroupCommitScriptExecutor.class);
+
+    private final HttpServletRequest request = mock(HttpServletRequest.class);
+
+    private final CacheManager local = newCacheManager();
+
+    private final CacheManager remote = newCacheManager();
+
+    private final ThumbServiceRedisImpl thumbService;
+
+    private final UserService userService = mock(UserService.class);
+
+    // 读取会话的线程
+    private final List<Thread> sessionThreads = new CopyOnWriteArrayList<>();
+
+    @SuppressWarnings("unchecked")
+    ThumbServiceRedisImplTest() {
+        HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.get(eq(HASH_KEY), any())).thenAnswer(invocation -> likes.get(invocation.<String>getArgument(1)));
+        when(scriptExecutor.execute(eq(RedisLuaScriptConstant.THUMB_SCRIPT), eq(List.of(HASH_KEY)), any()))
+                .thenAnswer(invocation -> likes.putIfAbsent(invocation.getArgument(2).toString(), 1L) == null ? 1L : -1L);
+        when(scriptExecutor.execute(eq(RedisLuaScriptConstant.UNDO_THUMB_SCRIPT), eq(List.of(HASH_KEY)), any()))
+                .thenAnswer(invocation -> likes.remove(invocation.getArgument(2).toString()) != null ? 1L : -1L);
+        when(scriptExecutor.execute(eq(RedisLuaScriptConstant.TEMP_THUMB_DELTA_SCRIPT), anyList(), any(Object[].class)))
+                .thenAnswer(invocation -> {
+                    if (failTempWrites) {
+                        throw new IllegalStateException("OOM command not allowed");
+                    }
+                    Object[] scriptArgs = (Object[]) invocation.getRawArguments()[2];
+                    String field = scriptArgs[0] + ":" + scriptArgs[1];
+                    return tempCounts.merge(field, ((Number) scriptArgs[2]).longValue(), Long::sum);
+                });
+        when(scriptExecutor.submit(any(), anyList(), any(Object[].class))).thenAnswer(invocation -> {
+            // 原始参数中可变参数是一个数组
+            Object[] scriptArgs = (Object[]) invocation.getRawArguments()[2];
+            // 与组提交一样，执行失败通过 future 返回
+            try {
+                return CompletableFuture.completedFuture(scriptExecutor.execute(invocation.getArgument(0),
+                        invocation.getArgument(1), scriptArgs));
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+        User user = new User();
+        user.setId(USER_ID);
+        when(userService.getLoginUser(request)).thenReturn(user);
+        when(userService.getLoginUserId(request)).thenAnswer(invocation -> {
+            sessionThreads.add(Thread.currentThread());
+            return USER_ID;
+        });
+        when(userService.getLoginUser(USER_ID)).thenReturn(user);
+        thumbService = new ThumbServiceRedisImpl(userService, scriptExecutor, local);
+    }
+
+    @Test
+    void thumbIsVisibleOnBothNodesRightAfterWrite() {
+        // 两个节点先读到未点赞，本地缓存中已有该条目
+        assertThat(thumbService.hasThumb(BLOG_ID, USER_ID)).isFalse();
+        assertThat(remote.hasThumb(USER_ID, BLOG_ID)).isFalse();
+
+        assertThat(thumbService.doThumb(request(), request)).isTrue();
+
+        assertThat(thumbService.hasThumb(BLOG_ID, USER_ID)).isTrue();
+        assertThat(remote.hasThumb(USER_ID, BLOG_ID)).isTrue();
+
+        assertThat(thumbService.undoThumb(request(), request)).isTrue();
+
+        assertThat(thumbService.hasThumb(BLOG_ID, USER_ID)).isFalse();
+        assertThat(remote.hasThumb(USER_ID, BLOG_ID)).isFalse();
+    }
+
+    @Test
+    void asyncThumbIsVisibleRightAfterCompletion() {
+        assertThat(thumbService.hasThumb(BLOG_ID, USER_ID)).isFalse();
+
+        assertThat(thumbService.doThumbAsync(request(), request).join()).isTrue();
+        assertThat(thumbService.hasThumb(BLOG_ID, USER_ID)).isTrue();
+
+        assertThat(thumbService.undoThumbAsync(request(), request).join()).isTrue();
+        assertThat(thumbService.hasThumb(BLOG_ID, USER_ID)).isFalse();
+    }
+
+    @Test
+    void tempCountIsWrittenSeparatelyFromTheUserKey() {
+        thumbService.doThumb(request(), request);
+        assertThat(tempCounts).containsEntry(USER_ID + ":" + BLOG_ID, 1L);
+        // 重复点赞不累加临时计数
+        assertThatThrownBy(() -> thumbService.doThumb(request(), request)).isInstanceOf(BusinessException.class);
+        assertThat(tempCounts).containsEntry(USER_ID + ":" + BLOG_ID, 1L);
+
+        thumbService.undoThumbAsync(request(), request).join();
+        assertThat(tempCounts).containsEntry(USER_ID + ":" + BLOG_ID, 0L);
+        // 临时计数写入按用户分片的临时计数键
+        verify(scriptExecutor).execute(eq(RedisLuaScriptConstant.TEMP_THUMB_DELTA_SCRIPT),
+                eq(List.of(RedisKeyUtil.getTempThumbKey(TimeSliceClock.currentSlice(),
+                        RedisKeyUtil.getTempThumbShard(USER_ID)))), eq(USER_ID), eq(BLOG_ID), eq(1L));
+    }
+
+    @Test
+    void failedTempWriteRevertsTheThumb() {
+        failTempWrites = true;
+
+        assertThatThrownBy(() -> thumbService.doThumb(request(), request)).isInstanceOf(IllegalStateException.class);
+        assertThat(likes).isEmpty();
+
+        likes.put(String.valueOf(BLOG_ID), 1L);
+        assertThatThrownBy(() -> thumbService.undoThumbAsync(request(), request).join())
+                .hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(likes).containsOnlyKeys(String.valueOf(BLOG_ID));
+        assertThat(tempCounts).isEmpty();
+    }
+
+    @Test
+    void asyncPathReadsTheSessionOnTheCallingThread() {
+        CompletableFuture<Boolean> thumbed = thumbService.doThumbAsync(request(), request);
+
+        assertThat(thumbed.join()).isTrue();
+        assertThat(sessionThreads).containsExactly(Thread.currentThread());
+        verify(userService, never()).getLoginUser(request);
+    }
+
+    @Test
+    void asyncPathReportsInvalidRequestsThroughTheFuture() {
+        CompletableFuture<Boolean> thumbed = thumbService.doThumbAsync(new DoThumbRequest(), request);
+
+        assertThatThrownBy(thumbed::join).hasCauseInstanceOf(BusinessException.class);
+        assertThat(sessionThreads).isEmpty();
+    }
+
+    private static DoThumbRequest request() {
+        DoThumbRequest doThumbRequest = new DoThumbRequest();
+        doThumbRequest.setBlogId(BLOG_ID);
+        return doThumbRequest;
+    }
+
+    private CacheManager newCacheManager() {
+        return CacheManagerTestSupport.newCacheManager(redisTemplate,
+                new ClusterHotKeyManager(new InMemoryHotKeySnapshotStore()), new SimpleMeterRegistry(), channel.node(),
+                CacheManagerTestSupport.admitAllSketches(), Ticker.systemTicker(), Runnable::run, null);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.simplethumb.util;
+
+import com.example.simplethumb.constant.ThumbConstant;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 时间片与分片临时点赞 key 测试
+ */
+class TempThumbKeyTest {
+
+    private static long at(int hour, int minute, int second, int millis) {
+        return LocalDateTime.of(2025, 1, 1, hour, minute, second, millis * 1_000_000)
+                .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    @Test
+    void slicesAreAlignedToTenSeconds() {
+        assertThat(TimeSliceClock.sliceAt(at(12, 30, 34, 999))).isEqualTo("12:30:30");
+        assertThat(TimeSliceClock.sliceAt(at(12, 30, 30, 0))).isEqualTo("12:30:30");
+        assertThat(TimeSliceClock.sliceAt(at(12, 30, 40, 0))).isEqualTo("12:30:40");
+        // 回到较早的时间片不影响缓存的最新时间片
+        assertThat(TimeSliceClock.sliceAt(at(12, 30, 9, 0))).isEqualTo("12:30:00");
+        assertThat(TimeSliceClock.sliceAt(at(12, 30, 41, 0))).isEqualTo("12:30:40");
+    }
+
+    @Test
+    void shardedKeysRoundTripToSlice() {
+        String key = RedisKeyUtil.getTempThumbKey("12:30:30", 3);
+
+        assertThat(key).isEqualTo("thumb:temp:12:30:30:{s3}");
+        assertThat(RedisKeyUtil.getTempThumbSlice(key)).isEqualTo("12:30:30");
+        assertThat(RedisKeyUtil.getTempThumbSlice(RedisKeyUtil.getTempThumbKey("12:30:30"))).isEqualTo("12:30:30");
+        // 旧格式的分片 key 仍能被补偿任务解析
+        assertThat(RedisKeyUtil.getTempThumbSlice("thumb:temp:12:30:30:s3")).isEqualTo("12:30:30");
+    }
+
+    @Test
+    void userKeyKeepsItsFormatAndTempShardsSpreadOverSlots() {
+        Set<Integer> slots = new HashSet<>();
+        for (long userId = 1; userId <= 1000; userId++) {
+            String userThumbKey = RedisKeyUtil.getUserThumbKey(userId);
+            // 用户点赞状态键不带哈希标签，已有的点赞记录无需迁移
+            assertThat(userThumbKey).isEqualTo(ThumbConstant.USER_THUMB_KEY_PREFIX + userId);
+            assertThat(RedisKeyUtil.getUserIdFromThumbKey(userThumbKey)).isEqualTo(userId);
+            slots.add(ClusterSlotHashUtil.calculateSlot(
+                    RedisKeyUtil.getTempThumbKey("12:30:30", RedisKeyUtil.getTempThumbShard(userId))));
+        }
+        // 同一时间片的写入分散到每个分片各自的槽
+        assertThat(slots).hasSize(ThumbConstant.TEMP_THUMB_SHARDS);
+    }
+
+    @Test
+    void usersSpreadOverAllShards() {
+        Set<Integer> shards = new HashSet<>();
+        for (long userId = 1; userId <= 1000; userId++) {
+            int shard = RedisKeyUtil.getTempThumbShard(userId);
+            assertThat(shard).isBetween(0, ThumbConstant.TEMP_THUMB_SHARDS - 1);
+            shards.add(shard);
+        }
+        assertThat(shards).hasSize(ThumbConstant.TEMP_THUMB_SHARDS);
+    }
+}